@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.ghosthack.turismo.annotation.GET;
+
+/**
+ * Cost of calling an annotated controller method: the reflective
+ * {@code Method.invoke} wrapper used before, the action bound by
+ * {@link Turismo#controller(Object)}, and a hand-written lambda.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ControllerInvokeBenchmark {
+
+    private Controller controller;
+    private Runnable reflective;
+    private Runnable bound;
+    private Runnable lambda;
+
+    /** Controller with a single cheap route. */
+    public static class Controller {
+        int count;
+
+        @GET("/bench")
+        void hello() {
+            count++;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        controller = new Controller();
+        Method method = Controller.class.getDeclaredMethod("hello");
+        method.setAccessible(true);
+        reflective = reflective(controller, method);
+        Turismo.controller(controller);
+        bound = Turismo.resolve("GET", "/bench").action;
+        Controller c = controller;
+        lambda = () -> c.hello();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Benchmark
+    public int reflective() {
+        reflective.run();
+        return controller.count;
+    }
+
+    @Benchmark
+    public int bound() {
+        bound.run();
+        return controller.count;
+    }
+
+    @Benchmark
+    public int lambda() {
+        lambda.run();
+        return controller.count;
+    }
+
+    /** The reflective action formerly built by {@code Turismo.toAction}. */
+    private static Runnable reflective(Object instance, Method method) {
+        return () -> {
+            try {
+                method.invoke(instance);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (cause instanceof Error err) {
+                    throw err;
+                }
+                throw new RuntimeException(cause);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+}
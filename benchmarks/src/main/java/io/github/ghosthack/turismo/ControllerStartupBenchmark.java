@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.ghosthack.turismo.annotation.DELETE;
+import io.github.ghosthack.turismo.annotation.GET;
+import io.github.ghosthack.turismo.annotation.PATCH;
+import io.github.ghosthack.turismo.annotation.POST;
+import io.github.ghosthack.turismo.annotation.PUT;
+
+/**
+ * Cold-start cost of registering a controller-heavy application (10
+ * controllers, 80 routes): through the classes generated by
+ * {@link io.github.ghosthack.turismo.processor.RoutesProcessor} versus
+ * the reflective method scan. Each measurement runs once in a fresh JVM.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@State(Scope.Thread)
+public class ControllerStartupBenchmark {
+
+    @TearDown
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Benchmark
+    public void generated() {
+        for (Object controller : controllers()) {
+            Turismo.controller(controller);
+        }
+    }
+
+    @Benchmark
+    public void reflective() {
+        for (Object controller : controllers()) {
+            Turismo.scanController(controller);
+        }
+    }
+
+    private static Object[] controllers() {
+        return new Object[] {new C0(), new C1(), new C2(), new C3(), new C4(),
+                new C5(), new C6(), new C7(), new C8(), new C9()};
+    }
+
+    // Ten controllers with the same eight routes under their own prefix.
+    // They are distinct classes, rather than instances of one, so each
+    // registration pays for loading a controller and its generated
+    // _Routes class, as an application's controllers would.
+    public static class C0 {
+        @GET("/c0/r0") void r0() { }
+        @POST("/c0/r1/:id") void r1() { }
+        @PUT("/c0/r2") void r2() { }
+        @DELETE("/c0/r3/:id") void r3() { }
+        @PATCH("/c0/r4") void r4() { }
+        @GET("/c0/r5/:id") void r5() { }
+        @GET("/c0/r6") void r6() { }
+        @POST("/c0/r7/:id") void r7() { }
+    }
+
+    public static class C1 {
+        @GET("/c1/r0") void r0() { }
+        @POST("/c1/r1/:id") void r1() { }
+        @PUT("/c1/r2") void r2() { }
+        @DELETE("/c1/r3/:id") void r3() { }
+        @PATCH("/c1/r4") void r4() { }
+        @GET("/c1/r5/:id") void r5() { }
+        @GET("/c1/r6") void r6() { }
+        @POST("/c1/r7/:id") void r7() { }
+    }
+
+    public static class C2 {
+        @GET("/c2/r0") void r0() { }
+        @POST("/c2/r1/:id") void r1() { }
+        @PUT("/c2/r2") void r2() { }
+        @DELETE("/c2/r3/:id") void r3() { }
+        @PATCH("/c2/r4") void r4() { }
+        @GET("/c2/r5/:id") void r5() { }
+        @GET("/c2/r6") void r6() { }
+        @POST("/c2/r7/:id") void r7() { }
+    }
+
+    public static class C3 {
+        @GET("/c3/r0") void r0() { }
+        @POST("/c3/r1/:id") void r1() { }
+        @PUT("/c3/r2") void r2() { }
+        @DELETE("/c3/r3/:id") void r3() { }
+        @PATCH("/c3/r4") void r4() { }
+        @GET("/c3/r5/:id") void r5() { }
+        @GET("/c3/r6") void r6() { }
+        @POST("/c3/r7/:id") void r7() { }
+    }
+
+    public static class C4 {
+        @GET("/c4/r0") void r0() { }
+        @POST("/c4/r1/:id") void r1() { }
+        @PUT("/c4/r2") void r2() { }
+        @DELETE("/c4/r3/:id") void r3() { }
+        @PATCH("/c4/r4") void r4() { }
+        @GET("/c4/r5/:id") void r5() { }
+        @GET("/c4/r6") void r6() { }
+        @POST("/c4/r7/:id") void r7() { }
+    }
+
+    public static class C5 {
+        @GET("/c5/r0") void r0() { }
+        @POST("/c5/r1/:id") void r1() { }
+        @PUT("/c5/r2") void r2() { }
+        @DELETE("/c5/r3/:id") void r3() { }
+        @PATCH("/c5/r4") void r4() { }
+        @GET("/c5/r5/:id") void r5() { }
+        @GET("/c5/r6") void r6() { }
+        @POST("/c5/r7/:id") void r7() { }
+    }
+
+    public static class C6 {
+        @GET("/c6/r0") void r0() { }
+        @POST("/c6/r1/:id") void r1() { }
+        @PUT("/c6/r2") void r2() { }
+        @DELETE("/c6/r3/:id") void r3() { }
+        @PATCH("/c6/r4") void r4() { }
+        @GET("/c6/r5/:id") void r5() { }
+        @GET("/c6/r6") void r6() { }
+        @POST("/c6/r7/:id") void r7() { }
+    }
+
+    public static class C7 {
+        @GET("/c7/r0") void r0() { }
+        @POST("/c7/r1/:id") void r1() { }
+        @PUT("/c7/r2") void r2() { }
+        @DELETE("/c7/r3/:id") void r3() { }
+        @PATCH("/c7/r4") void r4() { }
+        @GET("/c7/r5/:id") void r5() { }
+        @GET("/c7/r6") void r6() { }
+        @POST("/c7/r7/:id") void r7() { }
+    }
+
+    public static class C8 {
+        @GET("/c8/r0") void r0() { }
+        @POST("/c8/r1/:id") void r1() { }
+        @PUT("/c8/r2") void r2() { }
+        @DELETE("/c8/r3/:id") void r3() { }
+        @PATCH("/c8/r4") void r4() { }
+        @GET("/c8/r5/:id") void r5() { }
+        @GET("/c8/r6") void r6() { }
+        @POST("/c8/r7/:id") void r7() { }
+    }
+
+    public static class C9 {
+        @GET("/c9/r0") void r0() { }
+        @POST("/c9/r1/:id") void r1() { }
+        @PUT("/c9/r2") void r2() { }
+        @DELETE("/c9/r3/:id") void r3() { }
+        @PATCH("/c9/r4") void r4() { }
+        @GET("/c9/r5/:id") void r5() { }
+        @GET("/c9/r6") void r6() { }
+        @POST("/c9/r7/:id") void r7() { }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Route resolution through {@link Turismo}'s frozen route table, and
+ * {@link PathPattern} matching on its own. Half the routes are exact
+ * paths and half end in a named parameter; lookups target the middle
+ * route of each kind, and a path that matches nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int routes;
+
+    @Param({"2", "6"})
+    public int depth;
+
+    private String exactPath;
+    private String paramPath;
+    private String missPath;
+    private final Turismo.RouteMatch match = new Turismo.RouteMatch();
+    private PathPattern pattern;
+    private int[] bounds;
+    private int count;
+
+    /**
+     * Returns the path of route {@code i}: a unique first segment, then
+     * fixed segments up to {@code depth}.
+     */
+    static String path(int i, int depth, String last) {
+        StringBuilder sb = new StringBuilder("/r").append(i);
+        for (int d = 1; d < depth - 1; d++) {
+            sb.append("/s").append(d);
+        }
+        return sb.append('/').append(last).toString();
+    }
+
+    @Setup
+    public void setup() {
+        Turismo.reset();
+        Runnable action = () -> { };
+        for (int i = 0; i < routes; i++) {
+            if ((i & 1) == 0) {
+                Turismo.get(path(i, depth, "leaf"), action);
+            } else {
+                Turismo.get(path(i, depth, ":id"), action);
+            }
+        }
+        Turismo.freeze();
+        int middle = routes / 2;
+        exactPath = path(middle & ~1, depth, "leaf");
+        paramPath = path(middle | 1, depth, "42");
+        missPath = path(routes, depth, "leaf");
+
+        pattern = new PathPattern(path(middle | 1, depth, ":id"));
+        bounds = new int[depth << 1];
+        count = PathPattern.segments(paramPath, bounds);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Benchmark
+    public Runnable resolveExact() {
+        return Turismo.resolve("GET", exactPath, match).action;
+    }
+
+    @Benchmark
+    public String resolveParam() {
+        return Turismo.resolve("GET", paramPath, match).param("id");
+    }
+
+    @Benchmark
+    public Runnable resolveMiss() {
+        return Turismo.resolve("GET", missPath, match).action;
+    }
+
+    @Benchmark
+    public boolean patternMatch() {
+        return pattern.match(paramPath, bounds, count);
+    }
+
+    @Benchmark
+    public boolean patternScanAndMatch() {
+        return pattern.match(paramPath, bounds,
+                PathPattern.segments(paramPath, bounds));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Requests per second through the embedded server for a route that
+ * blocks for 1 ms, with 32 concurrent clients. {@code dispatcher} runs
+ * every request on the JDK server's single dispatcher thread, as before
+ * an executor was set; {@code default} uses
+ * {@link io.github.ghosthack.turismo.http.Server#defaultExecutor()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class ServerThroughputBenchmark {
+
+    @Param({"default", "dispatcher"})
+    public String executor;
+
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setup() {
+        Turismo.get("/work", () -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Turismo.print("done");
+        });
+        Executor e = "dispatcher".equals(executor) ? Runnable::run : null;
+        Turismo.start(0, e);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + Turismo.port() + "/work"))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Benchmark
+    public int request() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Buffering a response made of many small {@code print} calls: the
+ * former {@code ByteArrayOutputStream} + {@code getBytes} +
+ * {@code toByteArray} path versus {@link ResponseBuffer}. Run with
+ * {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseBufferBenchmark {
+
+    @Param({"16", "1024"})
+    public int parts;
+
+    private String part;
+    private OutputStream sink;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        part = "{\"id\":42,\"name\":\"turismo\",\"tags\":[\"a\",\"b\"]},";
+        sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bh.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bh.consume(b);
+            }
+        };
+    }
+
+    @Benchmark
+    public void byteArrayOutputStream() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (int i = 0; i < parts; i++) {
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            buffer.write(bytes, 0, bytes.length);
+        }
+        sink.write(buffer.toByteArray());
+    }
+
+    @Benchmark
+    public void responseBuffer() throws IOException {
+        ResponseBuffer buffer = new ResponseBuffer();
+        for (int i = 0; i < parts; i++) {
+            buffer.writeUtf8(part);
+        }
+        buffer.writeTo(sink);
+        buffer.release();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a request body: reading it fully into a String first and
+ * parsing that, versus {@link JsonReader} pulling straight from the
+ * stream, into a tree and bound to records. Run with {@code -prof gc}
+ * to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonReaderBenchmark {
+
+    public record Item(long id, String name, double price, List<String> tags) { }
+
+    public record Order(String customer, List<Item> items) { }
+
+    @Param({"8", "1024"})
+    public int items;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        List<Item> list = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            list.add(new Item(i, "item-" + i + " – ñandú", i * 1.25,
+                    List.of("a", "b")));
+        }
+        body = JsonWriter.toJson(new Order("turismo", list))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private InputStream in() {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Benchmark
+    public Object readToStringTree() throws IOException {
+        String s = new String(in().readAllBytes(), StandardCharsets.UTF_8);
+        return JsonReader.fromJson(s, Map.class);
+    }
+
+    @Benchmark
+    public Object readToStringBind() throws IOException {
+        String s = new String(in().readAllBytes(), StandardCharsets.UTF_8);
+        return JsonReader.fromJson(s, Order.class);
+    }
+
+    @Benchmark
+    public Object streamTree() throws IOException {
+        return JsonReader.fromJson(in(), Map.class);
+    }
+
+    @Benchmark
+    public Object streamBind() throws IOException {
+        return JsonReader.fromJson(in(), Order.class);
+    }
+}
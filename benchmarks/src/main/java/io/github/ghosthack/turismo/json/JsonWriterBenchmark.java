@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.ghosthack.turismo.Turismo;
+
+/**
+ * Serializing representative response payloads: a small status map, a
+ * page of 100 records, and text-heavy values that need escaping.
+ * {@code toJson} builds a String as {@link Turismo#toJson(Object)} does;
+ * {@code stream} writes to an {@link OutputStream} as a route's
+ * {@code json(...)} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonWriterBenchmark {
+
+    public record Address(String city, String country) { }
+
+    public record User(long id, String name, String email, boolean active,
+            double score, List<String> roles, Address address) { }
+
+    @Param({"small", "records", "text"})
+    public String payload;
+
+    private Object value;
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setup() {
+        switch (payload) {
+            case "small":
+                value = Map.of("ok", true, "count", 42);
+                break;
+            case "records":
+                List<User> users = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    users.add(new User(i, "user" + i, "user" + i + "@example.com",
+                            i % 3 != 0, i * 0.75, List.of("reader", "writer"),
+                            new Address("Buenos Aires", "AR")));
+                }
+                value = Map.of("page", 1, "users", users);
+                break;
+            default:
+                Map<String, Object> text = new LinkedHashMap<>();
+                for (int i = 0; i < 20; i++) {
+                    text.put("line" + i, "He said \"hola\" – ñandú\tcafé\n"
+                            + "path C:\\temp\\" + i + " 😀");
+                }
+                value = text;
+                break;
+        }
+    }
+
+    @Benchmark
+    public String toJson() {
+        return Turismo.toJson(value);
+    }
+
+    @Benchmark
+    public void stream() throws IOException {
+        new JsonWriter(sink).value(value).flush();
+    }
+}
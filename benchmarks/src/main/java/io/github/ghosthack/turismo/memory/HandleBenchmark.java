@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.memory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.ghosthack.turismo.Turismo;
+
+/**
+ * Whole-request cost of {@link Turismo#handle} through a reused
+ * {@link MemoryContext}: routing, the thread-local environment and the
+ * response helpers, without a network or server threads. Run with
+ * {@code -t 1}, {@code -t 2}, ... {@code -t max} to see how throughput
+ * scales across cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleBenchmark {
+
+    /** Routes, registered once for all threads. */
+    @State(Scope.Benchmark)
+    public static class Routes {
+        @Setup(Level.Trial)
+        public void setup() {
+            Map<String, Object> payload = Map.of("id", 42, "name", "turismo",
+                    "roles", List.of("reader", "writer"));
+            Turismo.get("/hello", "Hello World!");
+            Turismo.get("/users/:id", () -> Turismo.print(Turismo.param("id")));
+            Turismo.get("/json", () -> Turismo.json(payload));
+            Turismo.freeze();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Turismo.reset();
+        }
+    }
+
+    /** One context per benchmark thread. */
+    @State(Scope.Thread)
+    public static class Request {
+        final MemoryContext ctx = new MemoryContext();
+    }
+
+    @Benchmark
+    public int string(Routes routes, Request request) {
+        Turismo.handle(request.ctx.request("GET", "/hello"));
+        return request.ctx.length();
+    }
+
+    @Benchmark
+    public int param(Routes routes, Request request) {
+        Turismo.handle(request.ctx.request("GET", "/users/42"));
+        return request.ctx.length();
+    }
+
+    @Benchmark
+    public int json(Routes routes, Request request) {
+        Turismo.handle(request.ctx.request("GET", "/json"));
+        return request.ctx.length();
+    }
+
+    @Benchmark
+    public int notFound(Routes routes, Request request) {
+        Turismo.handle(request.ctx.request("GET", "/missing"));
+        return request.ctx.status();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a form of 8 text fields and 8 files, each {@code partSize}
+ * bytes, from memory: into byte array attributes as by default, and
+ * through a {@link PartListener} that drains each part. Complements
+ * {@code MultipartParserBenchmark}, which covers single large uploads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultipartFormBenchmark {
+
+    private static final String BOUNDARY = "----TurismoBoundary7MA4YWxkTrZu0gW";
+
+    private static final Parametrizable SINK = new Parametrizable() {
+        @Override
+        public void addParameter(String name, String value) {
+        }
+
+        @Override
+        public void addParameter(String name, String[] value) {
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+    };
+
+    @Param({"64", "4096", "262144"})
+    public int partSize;
+
+    private byte[] body;
+    private final byte[] drain = new byte[8192];
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(5);
+        char[] text = new char[partSize];
+        Arrays.fill(text, 'a');
+        byte[] file = new byte[partSize];
+        random.nextBytes(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 8; i++) {
+            out.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; "
+                    + "name=\"field" + i + "\"\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(new String(text).getBytes(StandardCharsets.US_ASCII));
+            out.write(("\r\n--" + BOUNDARY + "\r\nContent-Disposition: form-data; "
+                    + "name=\"file" + i + "\"; filename=\"f" + i + ".bin\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(file);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        body = out.toByteArray();
+    }
+
+    private MultipartParser parser() {
+        return new MultipartParser(new ByteArrayInputStream(body), "--" + BOUNDARY,
+                SINK, "UTF-8", body.length);
+    }
+
+    @Benchmark
+    public void parse() throws Exception {
+        parser().parse();
+    }
+
+    @Benchmark
+    public void listener() throws Exception {
+        parser().parse((headers, content) -> {
+            while (content.read(drain) != -1) {
+                // discard
+            }
+        });
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.multipart;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a single file upload of 1 MiB to 1 GiB. The body is generated
+ * as it is read, with no declared length, and the file is spilled to a
+ * temporary file past 1 MiB, so the largest size needs no 1 GiB array.
+ *
+ * <p>{@code byteAtATime} is the boundary scan the parser used before:
+ * one {@code read()} per byte through a {@code BufferedInputStream},
+ * discarding the content. It bounds the old cost from below; compare it
+ * with {@code parse}, which also writes the file out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MultipartParserBenchmark {
+
+    private static final String BOUNDARY = "----TurismoBoundary7MA4YWxkTrZu0gW";
+
+    private static final Parametrizable SINK = new Parametrizable() {
+        @Override
+        public void addParameter(String name, String value) {
+        }
+
+        @Override
+        public void addParameter(String name, String[] value) {
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+    };
+
+    @Param({"1048576", "67108864", "1073741824"})
+    public long payload;
+
+    private byte[] head;
+    private byte[] chunk;
+    private byte[] tail;
+    private Path tempDir;
+
+    @Setup
+    public void setup() throws IOException {
+        head = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; "
+                + "name=\"file\"; filename=\"upload.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        chunk = new byte[1 << 20];
+        new Random(17).nextBytes(chunk);
+        tempDir = Files.createTempDirectory("multipart-bench");
+        MultipartParser.setMaxContentSize(Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        MultipartParser.setMaxContentSize(MultipartParser.DEFAULT_MAX_CONTENT_SIZE);
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void parse() throws Exception {
+        MultipartParser parser = new MultipartParser(new Body(), "--" + BOUNDARY,
+                SINK, "UTF-8", -1);
+        parser.setFileThreshold(1 << 20);
+        parser.setTempDirectory(tempDir);
+        parser.parse();
+    }
+
+    @Benchmark
+    public long byteAtATime() throws IOException {
+        InputStream is = new BufferedInputStream(new Body(), 10 * 1024);
+        byte[] limit = ("\r\n--" + BOUNDARY).getBytes(StandardCharsets.US_ASCII);
+        long content = 0;
+        int coincidence = 0;
+        is.skip(head.length);
+        while (coincidence < limit.length) {
+            int b = is.read();
+            if (b < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            if (coincidence > 0 && (byte) b != limit[coincidence]) {
+                content += coincidence;
+                coincidence = 0;
+            }
+            if ((byte) b == limit[coincidence]) {
+                coincidence++;
+            } else {
+                content++;
+            }
+        }
+        return content;
+    }
+
+    /** The request body, generated as it is read. */
+    private final class Body extends InputStream {
+
+        private final long length = head.length + payload + tail.length;
+        private long position;
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == length) {
+                return -1;
+            }
+            int n;
+            if (position < head.length) {
+                n = Math.min(len, head.length - (int) position);
+                System.arraycopy(head, (int) position, b, off, n);
+            } else if (position < head.length + payload) {
+                long p = position - head.length;
+                int at = (int) (p % chunk.length);
+                n = (int) Math.min(Math.min(len, chunk.length - at), payload - p);
+                System.arraycopy(chunk, at, b, off, n);
+            } else {
+                int at = (int) (position - head.length - payload);
+                n = Math.min(len, tail.length - at);
+                System.arraycopy(tail, at, b, off, n);
+            }
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.resolver;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.ghosthack.turismo.servlet.Env;
+
+/**
+ * Route resolution through the servlet resolvers, with the same route
+ * shapes as {@code RoutingBenchmark}. {@link MapResolver} only holds the
+ * exact routes, since it does not match patterns. {@link ListResolver}
+ * scans routes in order, so expect its cost to grow with the route count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResolverBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int routes;
+
+    @Param({"2", "6"})
+    public int depth;
+
+    private ListResolver list;
+    private TrieResolver trie;
+    private MapResolver map;
+    private String exactPath;
+    private String paramPath;
+
+    private static String path(int i, int depth, String last) {
+        StringBuilder sb = new StringBuilder("/r").append(i);
+        for (int d = 1; d < depth - 1; d++) {
+            sb.append("/s").append(d);
+        }
+        return sb.append('/').append(last).toString();
+    }
+
+    @Setup
+    public void setup() {
+        // Parameter matches are stored in the thread's Env
+        Env.create(null, null, null);
+        list = new ListResolver();
+        trie = new TrieResolver();
+        map = new MapResolver();
+        Runnable action = () -> { };
+        for (int i = 0; i < routes; i++) {
+            if ((i & 1) == 0) {
+                String path = path(i, depth, "leaf");
+                list.route("GET", path, action);
+                trie.route("GET", path, action);
+                map.route("GET", path, action);
+            } else {
+                String path = path(i, depth, ":id");
+                list.route("GET", path, action);
+                trie.route("GET", path, action);
+            }
+        }
+        int middle = routes / 2;
+        exactPath = path(middle & ~1, depth, "leaf");
+        paramPath = path(middle | 1, depth, "42");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Env.destroy();
+    }
+
+    @Benchmark
+    public Runnable listExact() {
+        return list.resolve("GET", exactPath);
+    }
+
+    @Benchmark
+    public Runnable listParam() {
+        return list.resolve("GET", paramPath);
+    }
+
+    @Benchmark
+    public Runnable trieExact() {
+        return trie.resolve("GET", exactPath);
+    }
+
+    @Benchmark
+    public Runnable trieParam() {
+        return trie.resolve("GET", paramPath);
+    }
+
+    @Benchmark
+    public Runnable mapExact() {
+        return map.resolve("GET", exactPath);
+    }
+}
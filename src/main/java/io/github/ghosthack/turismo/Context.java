@@ -16,8 +16,10 @@
 
 package io.github.ghosthack.turismo;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 /**
  * Transport-neutral HTTP request/response context. Provides access to the
@@ -101,4 +103,28 @@ public interface Context {
      * @return the response output stream
      */
     OutputStream output();
+
+    /**
+     * Writes a complete response body. Implementations may send the
+     * array as is, without copying it, so it must not be modified
+     * afterwards. The default writes it to {@link #output()}.
+     *
+     * @param body the response body bytes
+     */
+    default void send(byte[] body) {
+        try {
+            output().write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends the status and headers now and streams the response body to
+     * the client as it is written, instead of buffering it. Later changes
+     * to the status or headers have no effect. Implementations that
+     * cannot stream keep buffering; the default does nothing.
+     */
+    default void stream() {
+    }
 }
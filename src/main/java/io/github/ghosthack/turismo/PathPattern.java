@@ -18,7 +18,6 @@ package io.github.ghosthack.turismo;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,14 +33,32 @@ import java.util.Set;
  * // params = {id=42, postId=7}
  * }</pre>
  *
+ * <p>For hot paths the pattern can also match the raw path by index,
+ * without splitting it. {@link #segments(String, int[])} records segment
+ * boundaries in a caller-owned array that can be reused across requests,
+ * and parameter values are only materialized when asked for:
+ *
+ * <pre>{@code
+ * int[] bounds = new int[32];
+ * int count = PathPattern.segments(path, bounds);
+ * if (pattern.match(path, bounds, count)) {
+ *     String id = pattern.param("id", path, bounds);
+ * }
+ * }</pre>
+ *
  * @see Turismo
  */
 public final class PathPattern {
 
+    private static final byte LITERAL = 0;
+    private static final byte PARAM = 1;
+    private static final byte WILDCARD = 2;
+
     private final String[] parts;
-    private final Map<String, Integer> paramNames;
-    private final Set<Integer> paramPositions;
-    private final Set<Integer> wildcardPositions;
+    private final byte[] kinds;
+    private final String[] paramNames;
+    private final int[] paramPositions;
+    private final Map<String, Integer> paramIndex;
 
     /**
      * Compiles a path pattern. Segments starting with {@code :} are named
@@ -55,20 +72,73 @@ public final class PathPattern {
             throw new IllegalArgumentException("path must not be null");
         }
         this.parts = path.split("/");
+        this.kinds = new byte[parts.length];
         Map<String, Integer> names = new HashMap<>();
-        Set<Integer> params = new HashSet<>();
-        Set<Integer> wildcards = new HashSet<>();
+        int count = 0;
         for (int i = 0; i < parts.length; i++) {
             if ("*".equals(parts[i])) {
-                wildcards.add(i);
+                kinds[i] = WILDCARD;
             } else if (parts[i].startsWith(":")) {
                 names.put(parts[i].substring(1), i);
-                params.add(i);
+                kinds[i] = PARAM;
+                count++;
+            }
+        }
+        this.paramNames = new String[count];
+        this.paramPositions = new int[count];
+        for (int i = 0, p = 0; i < parts.length; i++) {
+            if (kinds[i] == PARAM) {
+                paramNames[p] = parts[i].substring(1);
+                paramPositions[p++] = i;
+            }
+        }
+        this.paramIndex = names;
+    }
+
+    /**
+     * Scans a request path into segment boundaries, using the same
+     * segmentation as {@code path.split("/")}: a leading slash yields an
+     * empty first segment and trailing empty segments are dropped. The
+     * start and end index of segment {@code i} are stored at
+     * {@code bounds[2 * i]} and {@code bounds[2 * i + 1]}.
+     *
+     * <p>The returned count may exceed {@code bounds.length / 2}; in that
+     * case only the segments that fit were recorded and the caller should
+     * retry with a larger array.
+     *
+     * @param path   the request path
+     * @param bounds receives segment start/end index pairs
+     * @return the number of segments in the path
+     */
+    public static int segments(String path, int[] bounds) {
+        int end = path.length();
+        if (end == 0) {
+            return record(bounds, 0, 0, 0);
+        }
+        while (end > 0 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end == 0) {
+            return 0;
+        }
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                count = record(bounds, count, start, i);
+                start = i + 1;
             }
         }
-        this.paramNames = names;
-        this.paramPositions = params;
-        this.wildcardPositions = wildcards;
+        return record(bounds, count, start, end);
+    }
+
+    private static int record(int[] bounds, int count, int start, int end) {
+        int i = count << 1;
+        if (i + 1 < bounds.length) {
+            bounds[i] = start;
+            bounds[i + 1] = end;
+        }
+        return count + 1;
     }
 
     /**
@@ -84,20 +154,85 @@ public final class PathPattern {
             return null;
         }
         for (int i = 0; i < parts.length; i++) {
-            if (wildcardPositions.contains(i)
-                    || paramPositions.contains(i)) {
-                continue;
-            }
-            if (!parts[i].equals(requestParts[i])) {
+            if (kinds[i] == LITERAL && !parts[i].equals(requestParts[i])) {
                 return null;
             }
         }
-        if (paramNames.isEmpty()) {
+        if (paramNames.length == 0) {
             return Collections.emptyMap();
         }
         Map<String, String> params = new HashMap<>();
-        for (Map.Entry<String, Integer> entry : paramNames.entrySet()) {
-            params.put(entry.getKey(), requestParts[entry.getValue()]);
+        for (int i = 0; i < paramNames.length; i++) {
+            params.put(paramNames[i], requestParts[paramPositions[i]]);
+        }
+        return params;
+    }
+
+    /**
+     * Attempts to match a request path already scanned by
+     * {@link #segments(String, int[])}. Does not allocate.
+     *
+     * @param path   the request path
+     * @param bounds the segment boundaries of {@code path}
+     * @param count  the segment count returned by {@code segments}
+     * @return {@code true} if the path matches this pattern
+     */
+    public boolean match(String path, int[] bounds, int count) {
+        if (count != parts.length) {
+            return false;
+        }
+        for (int i = 0; i < parts.length; i++) {
+            if (kinds[i] == LITERAL) {
+                String part = parts[i];
+                int start = bounds[i << 1];
+                int length = bounds[(i << 1) + 1] - start;
+                if (length != part.length()
+                        || !path.regionMatches(start, part, 0, length)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of a named parameter from a matched request path.
+     * If the name occurs more than once, the last occurrence wins, as in
+     * {@link #match(String[])}.
+     *
+     * @param name   the parameter name
+     * @param path   the matched request path
+     * @param bounds the segment boundaries of {@code path}
+     * @return the value, or {@code null} if this pattern has no such
+     *         parameter
+     */
+    public String param(String name, String path, int[] bounds) {
+        for (int i = paramNames.length - 1; i >= 0; i--) {
+            if (paramNames[i].equals(name)) {
+                int at = paramPositions[i] << 1;
+                return path.substring(bounds[at], bounds[at + 1]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all named parameter values from a matched request path.
+     *
+     * @param path   the matched request path
+     * @param bounds the segment boundaries of {@code path}
+     * @return a map of parameter names to values, empty if this pattern
+     *         has no parameters
+     */
+    public Map<String, String> params(String path, int[] bounds) {
+        if (paramNames.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < paramNames.length; i++) {
+            int at = paramPositions[i] << 1;
+            params.put(paramNames[i],
+                    path.substring(bounds[at], bounds[at + 1]));
         }
         return params;
     }
@@ -111,6 +246,25 @@ public final class PathPattern {
         return parts.clone();
     }
 
+    /**
+     * Returns the number of compiled path segments.
+     *
+     * @return the segment count
+     */
+    public int size() {
+        return parts.length;
+    }
+
+    /**
+     * Returns the compiled path segment at the given index.
+     *
+     * @param index the segment index
+     * @return the segment as written in the pattern
+     */
+    public String part(int index) {
+        return parts[index];
+    }
+
     /**
      * Returns whether the segment at the given index is a named parameter.
      *
@@ -118,7 +272,7 @@ public final class PathPattern {
      * @return {@code true} if the segment is a parameter
      */
     public boolean isParam(int index) {
-        return paramPositions.contains(index);
+        return index >= 0 && index < kinds.length && kinds[index] == PARAM;
     }
 
     /**
@@ -128,7 +282,8 @@ public final class PathPattern {
      * @return {@code true} if the segment is a wildcard
      */
     public boolean isWildcard(int index) {
-        return wildcardPositions.contains(index);
+        return index >= 0 && index < kinds.length
+                && kinds[index] == WILDCARD;
     }
 
     /**
@@ -137,6 +292,6 @@ public final class PathPattern {
      * @return the parameter entries
      */
     public Set<Map.Entry<String, Integer>> paramEntries() {
-        return paramNames.entrySet();
+        return paramIndex.entrySet();
     }
 }
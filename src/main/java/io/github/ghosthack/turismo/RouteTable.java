@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, array-backed dispatch table compiled from the routes
+ * registered with {@link Turismo}. All fields are final and the table is
+ * never modified after construction, so once published it can be read
+ * by request threads without any further synchronization.
+ *
+ * <p>Methods are looked up by a short linear scan, exact paths through
+ * an open-addressing table per method, and pattern routes through the
+ * compiled {@link RouteTrie} of each method.
+ */
+final class RouteTable {
+
+    private final String[] methods;
+    private final String[][] exactKeys;
+    private final Runnable[][] exactActions;
+    private final RouteTrie.Compiled[] tries;
+    private final Runnable notFound;
+
+    RouteTable(Map<String, Map<String, Runnable>> exact,
+            Map<String, RouteTrie> patterns, Runnable notFound) {
+        Set<String> names = new LinkedHashSet<>();
+        names.addAll(exact.keySet());
+        names.addAll(patterns.keySet());
+        int n = names.size();
+        this.methods = names.toArray(new String[n]);
+        this.exactKeys = new String[n][];
+        this.exactActions = new Runnable[n][];
+        this.tries = new RouteTrie.Compiled[n];
+        for (int m = 0; m < n; m++) {
+            Map<String, Runnable> routes = exact.get(methods[m]);
+            if (routes != null && !routes.isEmpty()) {
+                int cap = Integer.highestOneBit(routes.size()) << 2;
+                String[] keys = new String[cap];
+                Runnable[] actions = new Runnable[cap];
+                for (Map.Entry<String, Runnable> e : routes.entrySet()) {
+                    int slot = spread(e.getKey().hashCode()) & (cap - 1);
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & (cap - 1);
+                    }
+                    keys[slot] = e.getKey();
+                    actions[slot] = e.getValue();
+                }
+                exactKeys[m] = keys;
+                exactActions[m] = actions;
+            }
+            RouteTrie trie = patterns.get(methods[m]);
+            if (trie != null) {
+                tries[m] = trie.compiled();
+            }
+        }
+        this.notFound = notFound;
+    }
+
+    /**
+     * Returns the index of the given method, or {@code -1} if no route
+     * is registered for it.
+     */
+    int method(String method) {
+        for (int m = 0; m < methods.length; m++) {
+            if (methods[m].equals(method)) {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the exact-match action for a path, or {@code null}. */
+    Runnable exact(int method, String path) {
+        String[] keys = exactKeys[method];
+        if (keys == null) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        for (int slot = spread(path.hashCode()) & mask;;
+                slot = (slot + 1) & mask) {
+            String key = keys[slot];
+            if (key == null) {
+                return null;
+            }
+            if (key.equals(path)) {
+                return exactActions[method][slot];
+            }
+        }
+    }
+
+    /** Returns the compiled pattern trie for a method, or {@code null}. */
+    RouteTrie.Compiled patterns(int method) {
+        return tries[method];
+    }
+
+    /** Returns the not-found action. */
+    Runnable notFound() {
+        return notFound;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
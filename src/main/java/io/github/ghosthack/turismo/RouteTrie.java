@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A segment-level trie of {@link PathPattern} routes for a single HTTP
+ * method. Literal segments are stored as keyed children; parameter
+ * ({@code :name}) and wildcard ({@code *}) segments share a single
+ * "any segment" child, since both match exactly one path segment.
+ *
+ * <p>Lookup cost depends on the depth of the request path rather than on
+ * the number of registered routes. When several routes match the same
+ * path, the one registered first wins, exactly as with a linear scan over
+ * the routes in registration order:
+ *
+ * <pre>{@code
+ * RouteTrie trie = new RouteTrie();
+ * trie.add("/users/:id", showUser);
+ * trie.add("/users/*", other);        // never wins over /users/:id
+ * RouteTrie.Route route = trie.find("/users/42".split("/"));
+ * // route.action() == showUser
+ * }</pre>
+ *
+ * <p>Lookups run against an immutable, array-backed snapshot of the trie
+ * that is rebuilt on the first lookup after a route is added. Matching a
+ * path scanned with {@link PathPattern#segments(String, int[])} does not
+ * allocate. Routes may be added while lookups are in progress on other
+ * threads; a lookup sees each route either fully registered or not at all.
+ *
+ * @see PathPattern
+ * @see Turismo
+ */
+public final class RouteTrie {
+
+    private final Node root = new Node(0);
+    private int size;
+    private volatile Compiled compiled;
+
+    /** Creates an empty trie. */
+    public RouteTrie() {
+    }
+
+    /**
+     * A route stored in the trie: the compiled pattern, its action, and
+     * its registration order.
+     */
+    public static final class Route {
+        private final PathPattern pattern;
+        private final String path;
+        private final Runnable action;
+        private final int order;
+
+        Route(String path, Runnable action, int order) {
+            this.pattern = new PathPattern(path);
+            this.path = path;
+            this.action = action;
+            this.order = order;
+        }
+
+        /**
+         * Returns the compiled pattern.
+         *
+         * @return the path pattern
+         */
+        public PathPattern pattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the path pattern as registered.
+         *
+         * @return the path
+         */
+        public String path() {
+            return path;
+        }
+
+        /**
+         * Returns the action for this route.
+         *
+         * @return the runnable action
+         */
+        public Runnable action() {
+            return action;
+        }
+    }
+
+    /**
+     * Adds a route. If an equivalent pattern (same literals, parameters
+     * and wildcards in the same positions) is already registered, the
+     * earlier route keeps precedence.
+     *
+     * @param path   the URL path pattern
+     * @param action the action to execute
+     * @throws IllegalArgumentException if path is null
+     */
+    public synchronized void add(String path, Runnable action) {
+        Route route = new Route(path, action, size++);
+        PathPattern pattern = route.pattern;
+        Node node = root;
+        for (int i = 0; i < pattern.size(); i++) {
+            node = node.child(pattern.part(i),
+                    pattern.isParam(i) || pattern.isWildcard(i), route.order);
+        }
+        if (node.route == null) {
+            node.route = route;
+        }
+        compiled = null;
+    }
+
+    /**
+     * Finds the first registered route matching the given request path
+     * segments.
+     *
+     * @param requestParts the request path split by {@code /}
+     * @return the matching route, or {@code null} if none matches
+     */
+    public Route find(String[] requestParts) {
+        String path = String.join("/", requestParts);
+        int[] bounds = new int[requestParts.length << 1];
+        for (int i = 0, start = 0; i < requestParts.length; i++) {
+            bounds[i << 1] = start;
+            start += requestParts[i].length();
+            bounds[(i << 1) + 1] = start++;
+        }
+        return find(path, bounds, requestParts.length);
+    }
+
+    /**
+     * Finds the first registered route matching a request path scanned by
+     * {@link PathPattern#segments(String, int[])}. Does not allocate
+     * unless the trie changed since the previous lookup.
+     *
+     * @param path   the request path
+     * @param bounds the segment boundaries of {@code path}
+     * @param count  the segment count returned by {@code segments}
+     * @return the matching route, or {@code null} if none matches
+     */
+    public Route find(String path, int[] bounds, int count) {
+        return compiled().find(path, bounds, count);
+    }
+
+    /**
+     * Returns the number of routes added to this trie.
+     *
+     * @return the route count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the immutable snapshot of this trie, building it if a route
+     * was added since the last snapshot.
+     *
+     * @return the compiled trie
+     */
+    Compiled compiled() {
+        Compiled c = compiled;
+        if (c == null) {
+            synchronized (this) {
+                c = compiled;
+                if (c == null) {
+                    c = new Compiled(root);
+                    compiled = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * A mutable trie node, only touched while holding the trie's lock.
+     * {@code order} is the registration order of the first route that
+     * created the node; since orders only grow, it is also the lowest
+     * order of any route below it.
+     */
+    private static final class Node {
+        final int order;
+        final Map<String, Node> literals = new LinkedHashMap<>();
+        Node any;
+        Route route;
+
+        Node(int order) {
+            this.order = order;
+        }
+
+        Node child(String part, boolean any, int order) {
+            if (any) {
+                if (this.any == null) {
+                    this.any = new Node(order);
+                }
+                return this.any;
+            }
+            return literals.computeIfAbsent(part, k -> new Node(order));
+        }
+    }
+
+    /**
+     * Immutable snapshot of the trie, flattened into arrays indexed by
+     * node number. The literal children of each node live in an
+     * open-addressing slice of {@code keys}/{@code targets}, probed with
+     * the same hash as {@link String#hashCode()} computed over the request
+     * path region, so a lookup never needs a substring.
+     */
+    static final class Compiled {
+        private final int[] order;
+        private final int[] any;
+        private final Route[] routes;
+        private final int[] offset;
+        private final int[] mask;
+        private final String[] keys;
+        private final int[] targets;
+
+        Compiled(Node root) {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(root);
+            int slots = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                Node node = nodes.get(i);
+                nodes.addAll(node.literals.values());
+                if (node.any != null) {
+                    nodes.add(node.any);
+                }
+                slots += capacity(node.literals.size());
+            }
+            Map<Node, Integer> index = new IdentityHashMap<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                index.put(nodes.get(i), i);
+            }
+            int n = nodes.size();
+            order = new int[n];
+            any = new int[n];
+            routes = new Route[n];
+            offset = new int[n];
+            mask = new int[n];
+            keys = new String[slots];
+            targets = new int[slots];
+            int next = 0;
+            for (int i = 0; i < n; i++) {
+                Node node = nodes.get(i);
+                order[i] = node.order;
+                any[i] = node.any != null ? index.get(node.any) : -1;
+                routes[i] = node.route;
+                int cap = capacity(node.literals.size());
+                offset[i] = next;
+                mask[i] = cap - 1;
+                for (Map.Entry<String, Node> e : node.literals.entrySet()) {
+                    String key = e.getKey();
+                    int slot = spread(key.hashCode()) & (cap - 1);
+                    while (keys[next + slot] != null) {
+                        slot = (slot + 1) & (cap - 1);
+                    }
+                    keys[next + slot] = key;
+                    targets[next + slot] = index.get(e.getValue());
+                }
+                next += cap;
+            }
+        }
+
+        private static int capacity(int size) {
+            if (size == 0) {
+                return 0;
+            }
+            int cap = Integer.highestOneBit(size) << 1;
+            return cap < size * 2 ? cap << 1 : cap;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        Route find(String path, int[] bounds, int count) {
+            return find(0, path, bounds, count, 0, null);
+        }
+
+        /**
+         * Depth-first search that keeps the lowest-order match. A subtree
+         * is skipped when even its earliest route cannot beat the best
+         * match found so far, which keeps the search close to a single
+         * descent.
+         */
+        private Route find(int node, String path, int[] bounds, int count,
+                int index, Route best) {
+            if (best != null && order[node] >= best.order) {
+                return best;
+            }
+            if (index == count) {
+                Route route = routes[node];
+                if (route != null
+                        && (best == null || route.order < best.order)) {
+                    return route;
+                }
+                return best;
+            }
+            int literal = literal(node, path, bounds[index << 1],
+                    bounds[(index << 1) + 1]);
+            int wild = any[node];
+            if (literal >= 0 && wild >= 0 && order[wild] < order[literal]) {
+                best = find(wild, path, bounds, count, index + 1, best);
+                return find(literal, path, bounds, count, index + 1, best);
+            }
+            if (literal >= 0) {
+                best = find(literal, path, bounds, count, index + 1, best);
+            }
+            if (wild >= 0) {
+                best = find(wild, path, bounds, count, index + 1, best);
+            }
+            return best;
+        }
+
+        private int literal(int node, String path, int start, int end) {
+            int m = mask[node];
+            if (m < 0) {
+                return -1;
+            }
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            int base = offset[node];
+            int length = end - start;
+            for (int slot = spread(h) & m;; slot = (slot + 1) & m) {
+                String key = keys[base + slot];
+                if (key == null) {
+                    return -1;
+                }
+                if (key.length() == length && key.hashCode() == h
+                        && path.regionMatches(start, key, 0, length)) {
+                    return targets[base + slot];
+                }
+            }
+        }
+    }
+}
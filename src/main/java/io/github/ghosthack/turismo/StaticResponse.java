@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Route action for a fixed body, as registered by
+ * {@link Turismo#get(String, String)} and its siblings. The body is
+ * encoded once at registration, together with its strong {@code ETag},
+ * and each request sends the same array through
+ * {@link Context#send(byte[])}.
+ *
+ * <p>For GET routes, a request whose {@code If-None-Match} matches the
+ * ETag is answered with 304 Not Modified and no body.
+ */
+final class StaticResponse implements Runnable {
+
+    static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private final int status;
+    private final byte[] body;
+    private final String etag;
+    private final boolean conditional;
+
+    /**
+     * @param status      the status code to respond with
+     * @param body        the response body text
+     * @param conditional whether to send the ETag and honor
+     *                    {@code If-None-Match}
+     */
+    StaticResponse(int status, String body, boolean conditional) {
+        this.status = status;
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.etag = conditional ? etag(this.body) : null;
+        this.conditional = conditional;
+    }
+
+    @Override
+    public void run() {
+        Context ctx = Turismo.context();
+        if (conditional) {
+            ctx.header("ETag", etag);
+            if (matches(ctx.header("If-None-Match"), etag)) {
+                ctx.status(304);
+                return;
+            }
+        }
+        ctx.status(status);
+        ctx.header("Content-Type", CONTENT_TYPE);
+        ctx.send(body);
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    /**
+     * Returns whether an {@code If-None-Match} header value matches the
+     * given ETag, using the weak comparison RFC 9110 requires for it.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns a strong ETag: the first 128 bits of the SHA-256, in hex. */
+    static String etag(byte[] body) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder sb = new StringBuilder(34).append('"');
+        for (int i = 0; i < 16; i++) {
+            sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -16,17 +16,24 @@
 
 package io.github.ghosthack.turismo;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import io.github.ghosthack.turismo.annotation.DELETE;
 import io.github.ghosthack.turismo.annotation.GET;
@@ -34,6 +41,12 @@ import io.github.ghosthack.turismo.annotation.PATCH;
 import io.github.ghosthack.turismo.annotation.POST;
 import io.github.ghosthack.turismo.annotation.PUT;
 import io.github.ghosthack.turismo.http.Server;
+import io.github.ghosthack.turismo.http.ServerConfig;
+import io.github.ghosthack.turismo.json.JsonReader;
+import io.github.ghosthack.turismo.json.JsonWriter;
+import io.github.ghosthack.turismo.metrics.MeteredContext;
+import io.github.ghosthack.turismo.metrics.Metrics;
+import io.github.ghosthack.turismo.util.Pool;
 import io.github.ghosthack.turismo.util.Validation;
 
 /**
@@ -62,16 +75,27 @@ import io.github.ghosthack.turismo.util.Validation;
  */
 public final class Turismo {
 
-    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
-    private static final ThreadLocal<Map<String, String>> PATH_PARAMS =
-            new ThreadLocal<>();
+    // The request being handled on this thread: its route match, which
+    // also carries the context. Matches come from a shared pool, not a
+    // per-thread cache, so a thread per request does not allocate one.
+    private static final ThreadLocal<RouteMatch> CURRENT = new ThreadLocal<>();
+    private static final Pool<RouteMatch> MATCHES = new Pool<>(RouteMatch::new);
 
+    // Registered routes; only touched while holding LOCK. Requests never
+    // read these, they dispatch through the compiled TABLE instead.
+    private static final Object LOCK = new Object();
     private static final Map<String, Map<String, Runnable>> EXACT =
-            new ConcurrentHashMap<>();
-    private static final List<PatternRoute> PATTERNS =
-            new CopyOnWriteArrayList<>();
-    private static volatile Runnable NOT_FOUND = Turismo::defaultNotFound;
+            new LinkedHashMap<>();
+    private static final Map<String, RouteTrie> PATTERNS =
+            new LinkedHashMap<>();
+    private static Runnable NOT_FOUND = Turismo::defaultNotFound;
+    private static boolean frozen;
+    private static volatile RouteTable TABLE;
     private static volatile Server server;
+    private static volatile Metrics METRICS;
+
+    /** Bytes written between flushes by the streaming JSON helpers. */
+    private static final int STREAM_FLUSH_BYTES = 8192;
 
     private Turismo() {
     }
@@ -91,13 +115,16 @@ public final class Turismo {
     }
 
     /**
-     * Registers a GET route that returns a fixed string body.
+     * Registers a GET route that returns a fixed string body. The body is
+     * encoded once, as {@code text/plain; charset=utf-8} with a strong
+     * {@code ETag}; requests whose {@code If-None-Match} matches it get
+     * 304 Not Modified.
      *
      * @param path the URL path pattern
      * @param body the response body text
      */
     public static void get(String path, String body) {
-        route("GET", path, () -> print(body));
+        route("GET", path, new StaticResponse(200, body, true));
     }
 
     /**
@@ -111,14 +138,15 @@ public final class Turismo {
     }
 
     /**
-     * Registers a POST route that returns a fixed string body.
-     * The default status code is 201 (Created).
+     * Registers a POST route that returns a fixed string body, encoded
+     * once as {@code text/plain; charset=utf-8}. The status code is 201
+     * (Created).
      *
      * @param path the URL path pattern
      * @param body the response body text
      */
     public static void post(String path, String body) {
-        route("POST", path, () -> { status(201); print(body); });
+        route("POST", path, new StaticResponse(201, body, false));
     }
 
     /**
@@ -132,13 +160,14 @@ public final class Turismo {
     }
 
     /**
-     * Registers a PUT route that returns a fixed string body.
+     * Registers a PUT route that returns a fixed string body, encoded
+     * once as {@code text/plain; charset=utf-8}.
      *
      * @param path the URL path pattern
      * @param body the response body text
      */
     public static void put(String path, String body) {
-        route("PUT", path, () -> print(body));
+        route("PUT", path, new StaticResponse(200, body, false));
     }
 
     /**
@@ -152,13 +181,14 @@ public final class Turismo {
     }
 
     /**
-     * Registers a DELETE route that returns a fixed string body.
+     * Registers a DELETE route that returns a fixed string body, encoded
+     * once as {@code text/plain; charset=utf-8}.
      *
      * @param path the URL path pattern
      * @param body the response body text
      */
     public static void delete(String path, String body) {
-        route("DELETE", path, () -> print(body));
+        route("DELETE", path, new StaticResponse(200, body, false));
     }
 
     /**
@@ -172,13 +202,14 @@ public final class Turismo {
     }
 
     /**
-     * Registers a PATCH route that returns a fixed string body.
+     * Registers a PATCH route that returns a fixed string body, encoded
+     * once as {@code text/plain; charset=utf-8}.
      *
      * @param path the URL path pattern
      * @param body the response body text
      */
     public static void patch(String path, String body) {
-        route("PATCH", path, () -> print(body));
+        route("PATCH", path, new StaticResponse(200, body, false));
     }
 
     /**
@@ -207,27 +238,79 @@ public final class Turismo {
      * @param action the not-found action
      */
     public static void notFound(Runnable action) {
-        NOT_FOUND = action;
+        synchronized (LOCK) {
+            NOT_FOUND = action;
+            changed();
+        }
     }
 
     /**
      * Registers a route for a specific HTTP method and path pattern.
      * Paths containing {@code :} or {@code *} are treated as pattern
-     * routes; all others are exact-match routes resolved in O(1).
+     * routes, stored in a per-method {@link RouteTrie}; all others are
+     * exact-match routes resolved in O(1).
+     *
+     * <p>Routes added after {@link #freeze()} are compiled into a new
+     * dispatch table that atomically replaces the current one; requests
+     * in flight keep using the table they started with.
      *
      * @param method the HTTP method (e.g. "GET")
      * @param path   the URL path pattern
      * @param action the action to execute
      */
     public static void route(String method, String path, Runnable action) {
-        if (path.contains(":") || path.contains("*")) {
-            PATTERNS.add(new PatternRoute(method, path, action));
-        } else {
-            EXACT.computeIfAbsent(method, k -> new ConcurrentHashMap<>())
-                 .put(path, action);
+        synchronized (LOCK) {
+            if (path.contains(":") || path.contains("*")) {
+                PATTERNS.computeIfAbsent(method, k -> new RouteTrie())
+                        .add(path, action);
+            } else {
+                EXACT.computeIfAbsent(method, k -> new HashMap<>())
+                     .put(path, action);
+            }
+            changed();
+        }
+    }
+
+    /**
+     * Compiles the registered routes into an immutable, array-backed
+     * dispatch table and publishes it for all request threads. Called
+     * implicitly by {@link #start(int)}.
+     *
+     * <p>Before freezing, the table is compiled lazily on the first
+     * request after a route change. After freezing, every later
+     * {@link #route(String, String, Runnable)} or
+     * {@link #notFound(Runnable)} call rebuilds the table eagerly and
+     * swaps it in, so request threads never wait on a compilation.
+     */
+    public static void freeze() {
+        synchronized (LOCK) {
+            frozen = true;
+            TABLE = compile();
         }
     }
 
+    private static void changed() {
+        TABLE = frozen ? compile() : null;
+    }
+
+    private static RouteTable compile() {
+        return new RouteTable(EXACT, PATTERNS, NOT_FOUND);
+    }
+
+    private static RouteTable table() {
+        RouteTable table = TABLE;
+        if (table == null) {
+            synchronized (LOCK) {
+                table = TABLE;
+                if (table == null) {
+                    table = compile();
+                    TABLE = table;
+                }
+            }
+        }
+        return table;
+    }
+
     // ---------------------------------------------------------------
     // Controller registration
     // ---------------------------------------------------------------
@@ -249,10 +332,48 @@ public final class Turismo {
      * Turismo.controller(new MyController());
      * }</pre>
      *
+     * <p>When the controller was compiled with
+     * {@link io.github.ghosthack.turismo.processor.RoutesProcessor}
+     * enabled, the routes are added by the generated
+     * {@code MyController_Routes} class and no reflective scan takes place.
+     *
      * @param instance the controller instance
      * @throws IllegalArgumentException if the instance has no annotated methods
      */
     public static void controller(Object instance) {
+        MethodHandle register = generatedRoutes(instance.getClass());
+        if (register != null) {
+            try {
+                register.invoke(instance);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
+        scanController(instance);
+    }
+
+    /**
+     * Returns the {@code register} method of the class generated for a
+     * controller by the annotation processor, or {@code null}.
+     */
+    private static MethodHandle generatedRoutes(Class<?> type) {
+        String name = type.getName().replace('$', '_') + "_Routes";
+        try {
+            Class<?> routes = Class.forName(name, true, type.getClassLoader());
+            return MethodHandles.privateLookupIn(routes, MethodHandles.lookup())
+                    .findStatic(routes, "register",
+                            MethodType.methodType(void.class, type));
+        } catch (ClassNotFoundException | NoSuchMethodException
+                | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /** Registers a controller by scanning its annotated methods. */
+    static void scanController(Object instance) {
         int count = 0;
         for (Method m : instance.getClass().getDeclaredMethods()) {
             String httpMethod = null;
@@ -271,7 +392,6 @@ public final class Turismo {
                 }
             }
             if (httpMethod != null) {
-                m.setAccessible(true);
                 Runnable action = toAction(instance, m);
                 if ("POST".equals(httpMethod)) {
                     route(httpMethod, path, () -> { status(201); action.run(); });
@@ -288,25 +408,77 @@ public final class Turismo {
         }
     }
 
+    /**
+     * Binds a controller method to a {@link Runnable}. The method is
+     * spun into a lambda through {@link LambdaMetafactory}, so the call
+     * is as cheap as a hand-written route and can be inlined. Methods
+     * that declare checked exceptions, or that cannot be bound that way
+     * (e.g. classes from a different class loader), go through a bound
+     * {@link MethodHandle} instead, which still avoids reflective
+     * invocation.
+     */
     private static Runnable toAction(Object instance, Method method) {
+        if (method.getParameterCount() != 0) {
+            throw new IllegalArgumentException(
+                    "Controller method " + method.getDeclaringClass().getName()
+                    + "." + method.getName() + " must not declare parameters");
+        }
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        MethodHandles.Lookup lookup;
+        MethodHandle handle;
+        try {
+            lookup = MethodHandles.privateLookupIn(
+                    method.getDeclaringClass(), MethodHandles.lookup());
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            method.setAccessible(true);
+            lookup = null;
+            try {
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException e2) {
+                throw new IllegalArgumentException(
+                        "Cannot access controller method " + method, e2);
+            }
+        }
+        if (lookup != null && !throwsChecked(method)) {
+            try {
+                MethodType factory = isStatic
+                        ? MethodType.methodType(Runnable.class)
+                        : MethodType.methodType(Runnable.class,
+                                method.getDeclaringClass());
+                MethodHandle target = LambdaMetafactory.metafactory(lookup,
+                        "run", factory, MethodType.methodType(void.class),
+                        handle, MethodType.methodType(void.class))
+                        .getTarget();
+                return isStatic ? (Runnable) target.invoke()
+                        : (Runnable) target.invoke(instance);
+            } catch (Throwable e) {
+                // not bindable as a lambda, use the method handle below
+            }
+        }
+        MethodHandle bound = (isStatic ? handle : handle.bindTo(instance))
+                .asType(MethodType.methodType(void.class));
         return () -> {
             try {
-                method.invoke(instance);
-            } catch (InvocationTargetException e) {
-                Throwable cause = e.getCause();
-                if (cause instanceof RuntimeException re) {
-                    throw re;
-                }
-                if (cause instanceof Error err) {
-                    throw err;
-                }
-                throw new RuntimeException(cause);
-            } catch (IllegalAccessException e) {
+                bound.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
                 throw new RuntimeException(e);
             }
         };
     }
 
+    private static boolean throwsChecked(Method method) {
+        for (Class<?> type : method.getExceptionTypes()) {
+            if (!RuntimeException.class.isAssignableFrom(type)
+                    && !Error.class.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // ---------------------------------------------------------------
     // Request access
     // ---------------------------------------------------------------
@@ -318,13 +490,17 @@ public final class Turismo {
      * @throws IllegalStateException if no context exists on the current thread
      */
     public static Context context() {
-        Context ctx = CONTEXT.get();
-        if (ctx == null) {
+        return current().context;
+    }
+
+    private static RouteMatch current() {
+        RouteMatch match = CURRENT.get();
+        if (match == null) {
             throw new IllegalStateException(
                     "No context on current thread. "
                     + "Call Turismo.handle() or start a server first.");
         }
-        return ctx;
+        return match;
     }
 
     /**
@@ -354,14 +530,12 @@ public final class Turismo {
      * @return the value, or {@code null} if not found
      */
     public static String param(String name) {
-        Map<String, String> params = PATH_PARAMS.get();
-        if (params != null) {
-            String value = params.get(name);
-            if (value != null) {
-                return value;
-            }
+        RouteMatch match = current();
+        String value = match.param(name);
+        if (value != null) {
+            return value;
         }
-        return context().query(name);
+        return match.context.query(name);
     }
 
     /**
@@ -370,10 +544,7 @@ public final class Turismo {
      * @return the path parameters
      */
     public static Map<String, String> params() {
-        Map<String, String> params = PATH_PARAMS.get();
-        return params != null
-                ? Collections.unmodifiableMap(params)
-                : Collections.emptyMap();
+        return Collections.unmodifiableMap(current().params());
     }
 
     /**
@@ -405,6 +576,42 @@ public final class Turismo {
         return context().body();
     }
 
+    /**
+     * Parses the request body as JSON into plain Java objects: objects
+     * as {@link Map}, arrays as {@link java.util.List}, and strings,
+     * numbers, booleans and {@code null} as themselves. The body is parsed
+     * straight from the stream, without reading it into a String.
+     *
+     * @return the parsed body
+     * @throws IllegalArgumentException if the body is not valid JSON
+     * @see JsonReader#readValue()
+     */
+    public static Object bodyJson() {
+        return bodyJson(Object.class);
+    }
+
+    /**
+     * Parses the request body as JSON bound to the given type: a record,
+     * enum, {@link Map}, {@link java.util.List}, array, String, number or
+     * boolean.
+     * Values are bound directly from the parser, without building an
+     * intermediate tree.
+     *
+     * @param <T> the target type
+     * @param type the target class
+     * @return the bound body, or {@code null} for a JSON {@code null}
+     * @throws IllegalArgumentException if the body is not valid JSON or
+     *         does not match the type
+     * @see JsonReader#read(Class)
+     */
+    public static <T> T bodyJson(Class<T> type) {
+        try {
+            return JsonReader.fromJson(body(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     // ---------------------------------------------------------------
     // Response
     // ---------------------------------------------------------------
@@ -468,6 +675,40 @@ public final class Turismo {
         return context().output();
     }
 
+    /**
+     * Writes a complete response body. With the built-in server, a body
+     * sent before any other output goes out as is, with its
+     * {@code Content-Length} and without being copied, so the array must
+     * not be modified afterwards; this suits pre-encoded responses.
+     *
+     * @param body the response body bytes
+     */
+    public static void send(byte[] body) {
+        context().send(body);
+    }
+
+    /**
+     * Streams the response: sends the status and headers now, and the
+     * body as it is written, without buffering it in memory. Set the
+     * status and headers before calling this.
+     *
+     * <pre>{@code
+     * get("/export", () -> {
+     *     type("text/csv");
+     *     stream();
+     *     for (Row row : rows()) {
+     *         print(row.toCsv());
+     *     }
+     * });
+     * }</pre>
+     *
+     * <p>Large responses are streamed automatically once they exceed the
+     * server's stream threshold.
+     */
+    public static void stream() {
+        context().stream();
+    }
+
     // ---------------------------------------------------------------
     // JSON
     // ---------------------------------------------------------------
@@ -476,161 +717,165 @@ public final class Turismo {
      * Sets the Content-Type to {@code application/json} and writes
      * the given object as JSON to the response body. Supports
      * {@link Map}, {@link Iterable}, arrays, {@link String},
-     * {@link Number}, {@link Boolean}, and {@code null}.
+     * {@link Number}, {@link Boolean}, {@code null}, records, enums,
+     * and {@link io.github.ghosthack.turismo.json.JsonBean @JsonBean}
+     * classes; see {@link JsonWriter}.
      *
      * @param obj the object to serialize
      */
     public static void json(Object obj) {
         type("application/json");
-        print(toJson(obj));
+        try {
+            JsonWriter.write(obj, output());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Serializes an object to a JSON string. Supports {@link Map},
-     * {@link Iterable}, arrays, {@link String}, {@link Number},
-     * {@link Boolean}, and {@code null}.
+     * Streams the elements as a JSON array, serializing one at a time
+     * into a chunked response and flushing about every 8 KiB. Memory
+     * use does not grow with the number of elements. The stream is
+     * closed when done, including when the client disconnects, after
+     * which no more elements are pulled.
      *
-     * @param obj the object to serialize
-     * @return the JSON string
-     * @throws IllegalArgumentException if the object type is not supported
+     * <pre>{@code
+     * get("/rows", () -> jsonStream(repository.findAll()));
+     * }</pre>
+     *
+     * @param elements the elements to write
+     * @see #jsonStream(Iterator, int)
      */
-    public static String toJson(Object obj) {
-        if (obj == null) {
-            return "null";
-        }
-        if (obj instanceof String) {
-            return jsonString((String) obj);
-        }
-        if (obj instanceof Number || obj instanceof Boolean) {
-            return obj.toString();
-        }
-        if (obj instanceof Map<?, ?>) {
-            return jsonMap((Map<?, ?>) obj);
-        }
-        if (obj instanceof Iterable<?>) {
-            return jsonIterable((Iterable<?>) obj);
-        }
-        if (obj.getClass().isArray()) {
-            return jsonArray(obj);
-        }
-        throw new IllegalArgumentException(
-                "Unsupported type: " + obj.getClass().getName());
-    }
-
-    private static String jsonString(String s) {
-        StringBuilder sb = new StringBuilder(s.length() + 2);
-        sb.append('"');
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            switch (c) {
-                case '"':  sb.append("\\\""); break;
-                case '\\': sb.append("\\\\"); break;
-                case '\b': sb.append("\\b");  break;
-                case '\f': sb.append("\\f");  break;
-                case '\n': sb.append("\\n");  break;
-                case '\r': sb.append("\\r");  break;
-                case '\t': sb.append("\\t");  break;
-                default:
-                    if (c < 0x20) {
-                        sb.append(String.format("\\u%04x", (int) c));
-                    } else {
-                        sb.append(c);
-                    }
-            }
+    public static void jsonStream(Stream<?> elements) {
+        jsonStream(elements, STREAM_FLUSH_BYTES);
+    }
+
+    /**
+     * Streams the elements as a JSON array, flushing each time at least
+     * {@code flushBytes} have been written since the last flush.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @see #jsonStream(Stream)
+     */
+    public static void jsonStream(Stream<?> elements, int flushBytes) {
+        try (elements) {
+            jsonStream(elements.iterator(), flushBytes);
         }
-        sb.append('"');
-        return sb.toString();
-    }
-
-    private static String jsonMap(Map<?, ?> map) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('{');
-        Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<?, ?> entry = it.next();
-            sb.append(toJson(String.valueOf(entry.getKey())));
-            sb.append(':');
-            sb.append(toJson(entry.getValue()));
-            if (it.hasNext()) {
-                sb.append(',');
-            }
+    }
+
+    /**
+     * Streams the elements as a JSON array, serializing one at a time
+     * into a chunked response and flushing about every 8 KiB. Stops
+     * pulling from the iterator if the client disconnects.
+     *
+     * @param elements the elements to write
+     * @see #jsonStream(Stream)
+     */
+    public static void jsonStream(Iterator<?> elements) {
+        jsonStream(elements, STREAM_FLUSH_BYTES);
+    }
+
+    /**
+     * Streams the elements as a JSON array, flushing each time at least
+     * {@code flushBytes} have been written since the last flush.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @throws IllegalArgumentException if {@code flushBytes} is not positive
+     * @see JsonWriter#array(Iterator, int)
+     */
+    public static void jsonStream(Iterator<?> elements, int flushBytes) {
+        if (flushBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "flushBytes must be positive: " + flushBytes);
+        }
+        type("application/json");
+        stream();
+        try {
+            new JsonWriter(output()).array(elements, flushBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        sb.append('}');
-        return sb.toString();
     }
 
-    private static String jsonIterable(Iterable<?> iter) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        Iterator<?> it = iter.iterator();
-        while (it.hasNext()) {
-            sb.append(toJson(it.next()));
-            if (it.hasNext()) {
-                sb.append(',');
-            }
+    /**
+     * Streams the elements as newline-delimited JSON
+     * ({@code application/x-ndjson}), one element per line, flushing
+     * about every 8 KiB. The stream is closed when done, including when
+     * the client disconnects.
+     *
+     * @param elements the elements to write
+     * @see #ndjson(Iterator, int)
+     */
+    public static void ndjson(Stream<?> elements) {
+        ndjson(elements, STREAM_FLUSH_BYTES);
+    }
+
+    /**
+     * Streams the elements as newline-delimited JSON, flushing each time
+     * at least {@code flushBytes} have been written since the last flush.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @see #ndjson(Stream)
+     */
+    public static void ndjson(Stream<?> elements, int flushBytes) {
+        try (elements) {
+            ndjson(elements.iterator(), flushBytes);
         }
-        sb.append(']');
-        return sb.toString();
     }
 
-    private static String jsonArray(Object arr) {
-        if (arr instanceof Object[]) {
-            Object[] a = (Object[]) arr;
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = 0; i < a.length; i++) {
-                if (i > 0) sb.append(',');
-                sb.append(toJson(a[i]));
-            }
-            sb.append(']');
-            return sb.toString();
-        }
-        if (arr instanceof int[]) {
-            int[] a = (int[]) arr;
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = 0; i < a.length; i++) {
-                if (i > 0) sb.append(',');
-                sb.append(a[i]);
-            }
-            sb.append(']');
-            return sb.toString();
-        }
-        if (arr instanceof long[]) {
-            long[] a = (long[]) arr;
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = 0; i < a.length; i++) {
-                if (i > 0) sb.append(',');
-                sb.append(a[i]);
-            }
-            sb.append(']');
-            return sb.toString();
-        }
-        if (arr instanceof double[]) {
-            double[] a = (double[]) arr;
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = 0; i < a.length; i++) {
-                if (i > 0) sb.append(',');
-                sb.append(a[i]);
-            }
-            sb.append(']');
-            return sb.toString();
-        }
-        if (arr instanceof boolean[]) {
-            boolean[] a = (boolean[]) arr;
-            StringBuilder sb = new StringBuilder();
-            sb.append('[');
-            for (int i = 0; i < a.length; i++) {
-                if (i > 0) sb.append(',');
-                sb.append(a[i]);
-            }
-            sb.append(']');
-            return sb.toString();
+    /**
+     * Streams the elements as newline-delimited JSON
+     * ({@code application/x-ndjson}), one element per line, flushing
+     * about every 8 KiB. Stops pulling from the iterator if the client
+     * disconnects.
+     *
+     * @param elements the elements to write
+     */
+    public static void ndjson(Iterator<?> elements) {
+        ndjson(elements, STREAM_FLUSH_BYTES);
+    }
+
+    /**
+     * Streams the elements as newline-delimited JSON, flushing each time
+     * at least {@code flushBytes} have been written since the last flush.
+     * Flushing after every element, with a {@code flushBytes} of 1, lets
+     * clients process slow-arriving rows as they come.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @throws IllegalArgumentException if {@code flushBytes} is not positive
+     * @see JsonWriter#lines(Iterator, int)
+     */
+    public static void ndjson(Iterator<?> elements, int flushBytes) {
+        if (flushBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "flushBytes must be positive: " + flushBytes);
+        }
+        type("application/x-ndjson");
+        stream();
+        try {
+            new JsonWriter(output()).lines(elements, flushBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        throw new IllegalArgumentException(
-                "Unsupported array type: " + arr.getClass().getName());
+    }
+
+    /**
+     * Serializes an object to a JSON string. Supports {@link Map},
+     * {@link Iterable}, arrays, {@link String}, {@link Number},
+     * {@link Boolean}, {@code null}, records, enums, and
+     * {@link io.github.ghosthack.turismo.json.JsonBean @JsonBean} classes.
+     *
+     * @param obj the object to serialize
+     * @return the JSON string
+     * @throws IllegalArgumentException if the object type is not supported
+     * @see JsonWriter
+     */
+    public static String toJson(Object obj) {
+        return JsonWriter.toJson(obj);
     }
 
     /**
@@ -673,30 +918,123 @@ public final class Turismo {
         defaultNotFound();
     }
 
+    // ---------------------------------------------------------------
+    // Metrics
+    // ---------------------------------------------------------------
+
+    /**
+     * Starts recording request count by status class, latency and
+     * response bytes for every route, keyed by the route as registered.
+     * Latency covers the route action, not sending the response. While
+     * enabled, routes see a {@link MeteredContext} wrapping the
+     * transport's context. Calling this again returns the same registry.
+     *
+     * @return the metrics registry
+     * @see #metricsRoute(String)
+     */
+    public static Metrics enableMetrics() {
+        synchronized (LOCK) {
+            Metrics metrics = METRICS;
+            if (metrics == null) {
+                metrics = new Metrics();
+                METRICS = metrics;
+            }
+            return metrics;
+        }
+    }
+
+    /**
+     * Stops recording metrics and discards those recorded. When disabled,
+     * which is the default, dispatch checks a single field and
+     * allocates nothing for metrics.
+     */
+    public static void disableMetrics() {
+        METRICS = null;
+    }
+
+    /**
+     * Returns the metrics registry.
+     *
+     * @return the registry, or {@code null} if metrics are disabled
+     */
+    public static Metrics metrics() {
+        return METRICS;
+    }
+
+    /**
+     * {@linkplain #enableMetrics() Enables metrics} and registers a GET
+     * route that serves them in the Prometheus text format.
+     *
+     * <pre>{@code
+     * metricsRoute("/metrics");
+     * }</pre>
+     *
+     * @param path the route path, e.g. {@code /metrics}
+     */
+    public static void metricsRoute(String path) {
+        enableMetrics();
+        get(path, () -> {
+            type(Metrics.CONTENT_TYPE);
+            Metrics metrics = METRICS;
+            if (metrics != null) {
+                print(metrics.scrape());
+            }
+        });
+    }
+
     // ---------------------------------------------------------------
     // Server lifecycle
     // ---------------------------------------------------------------
 
     /**
-     * Starts an embedded HTTP server on the given port. Routes must be
-     * registered before calling this method. The server runs on
-     * background threads; the JVM will not exit while it is running.
+     * Starts an embedded HTTP server on the given port. Routes should be
+     * registered before calling this method, which {@link #freeze()
+     * freezes} the route table. The server runs on background threads;
+     * the JVM will not exit while it is running. Requests run on virtual
+     * threads on Java 21+ and on a bounded thread pool otherwise.
      *
      * @param port the port to listen on (use 0 for a random available port)
      */
     public static void start(int port) {
+        start(port, null);
+    }
+
+    /**
+     * Starts an embedded HTTP server on the given port, running requests
+     * on the given executor. The executor is not shut down by
+     * {@link #stop()}.
+     *
+     * @param port     the port to listen on (use 0 for a random available port)
+     * @param executor the executor to run requests on, or {@code null} for
+     *                 the {@linkplain Server#defaultExecutor() default}
+     */
+    public static void start(int port, Executor executor) {
+        start(ServerConfig.builder().port(port).executor(executor).build());
+    }
+
+    /**
+     * Starts an embedded HTTP server with the given configuration, e.g.
+     * to set the bind address, accept backlog, executor or stop grace
+     * period.
+     *
+     * @param config the server configuration
+     */
+    public static void start(ServerConfig config) {
+        freeze();
         try {
-            Server s = new Server(port);
+            Server s = new Server(config);
             server = s;
             s.start();
         } catch (Exception e) {
             throw new RuntimeException(
-                    "Failed to start server on port " + port, e);
+                    "Failed to start server on port " + config.port(), e);
         }
     }
 
     /**
-     * Stops the embedded HTTP server, if one is running.
+     * Stops the embedded HTTP server, if one is running, waiting up to
+     * the configured {@linkplain ServerConfig#stopGrace() stop grace} for
+     * requests in progress.
      */
     public static void stop() {
         Server s = server;
@@ -734,59 +1072,102 @@ public final class Turismo {
      * for each incoming request. Custom transport implementations can
      * use this to integrate with the turismo routing engine.
      *
+     * <p>Routing allocates nothing per request on any executor, including
+     * one virtual thread per request: the route match is taken from a
+     * shared pool. The only per-thread cost is the thread-local entry for
+     * the current request, created on a thread's first request.
+     *
      * @param ctx the request/response context
      */
     public static void handle(Context ctx) {
-        RouteMatch match = resolve(ctx.method(), ctx.path());
-        CONTEXT.set(ctx);
-        PATH_PARAMS.set(match.params);
+        RouteMatch match = resolve(ctx.method(), ctx.path(), MATCHES.acquire());
+        RouteMatch outer = CURRENT.get();
+        Metrics metrics = METRICS;
+        try {
+            if (metrics != null) {
+                handleMetered(ctx, match, metrics);
+            } else {
+                match.context = ctx;
+                CURRENT.set(match);
+                match.action.run();
+            }
+        } finally {
+            // restoring rather than removing keeps the thread-local entry,
+            // so the next request on this thread does not allocate one
+            CURRENT.set(outer);
+            match.clear();
+            MATCHES.release(match);
+        }
+    }
+
+    private static void handleMetered(Context ctx, RouteMatch match, Metrics metrics) {
+        MeteredContext metered = new MeteredContext(ctx);
+        int status = 500;
+        long start = System.nanoTime();
+        match.context = metered;
+        CURRENT.set(match);
         try {
             match.action.run();
+            status = metered.status();
         } finally {
-            CONTEXT.remove();
-            PATH_PARAMS.remove();
+            metrics.record(ctx.method(), match.route, status,
+                    System.nanoTime() - start, metered.bytes());
         }
     }
 
     /**
-     * Clears all registered routes and stops the server if running.
-     * Intended for use in tests.
+     * Clears all registered routes, disables metrics and stops the server
+     * if running. Intended for use in tests.
      */
     public static void reset() {
+        METRICS = null;
         stop();
-        EXACT.clear();
-        PATTERNS.clear();
-        NOT_FOUND = Turismo::defaultNotFound;
+        synchronized (LOCK) {
+            EXACT.clear();
+            PATTERNS.clear();
+            NOT_FOUND = Turismo::defaultNotFound;
+            frozen = false;
+            TABLE = null;
+        }
     }
 
     // ---------------------------------------------------------------
     // Internal
     // ---------------------------------------------------------------
 
+    /** Resolves a route into a new {@link RouteMatch}. */
     static RouteMatch resolve(String method, String path) {
-        // Exact match (O(1) HashMap lookup)
-        Map<String, Runnable> methodRoutes = EXACT.get(method);
-        if (methodRoutes != null) {
-            Runnable action = methodRoutes.get(path);
+        return resolve(method, path, new RouteMatch());
+    }
+
+    /**
+     * Resolves a route into the given {@link RouteMatch}, which is
+     * overwritten. Allocates nothing for exact and pattern matches, on
+     * any thread: {@link #handle(Context)} takes the match from a shared
+     * pool.
+     */
+    static RouteMatch resolve(String method, String path, RouteMatch match) {
+        RouteTable table = table();
+        int m = table.method(method);
+        if (m >= 0 && path != null) {
+            // Exact match (O(1) table lookup)
+            Runnable action = table.exact(m, path);
             if (action != null) {
-                return new RouteMatch(action, Collections.emptyMap());
+                return match.set(action, null, null, path);
             }
-        }
-        // Pattern match (linear scan)
-        if (path != null) {
-            String[] requestParts = path.split("/");
-            for (PatternRoute pr : PATTERNS) {
-                if (!pr.method.equals(method)) {
-                    continue;
-                }
-                Map<String, String> params = pr.pattern.match(requestParts);
-                if (params != null) {
-                    return new RouteMatch(pr.action, params);
+            // Pattern match (trie descent, first registered wins)
+            RouteTrie.Compiled trie = table.patterns(m);
+            if (trie != null) {
+                int count = match.scan(path);
+                RouteTrie.Route route = trie.find(path, match.bounds, count);
+                if (route != null) {
+                    return match.set(route.action(), route.pattern(), path,
+                            route.path());
                 }
             }
         }
         // Not found
-        return new RouteMatch(NOT_FOUND, Collections.emptyMap());
+        return match.set(table.notFound(), null, null, null);
     }
 
     private static void defaultNotFound() {
@@ -802,30 +1183,53 @@ public final class Turismo {
     // Inner classes
     // ---------------------------------------------------------------
 
-    /** A resolved route with its extracted path parameters. */
-    static class RouteMatch {
-        final Runnable action;
-        final Map<String, String> params;
+    /**
+     * A resolved route, and the context of the request it serves.
+     * Instances are pooled and reused across requests: the path is
+     * scanned into {@code bounds} and parameter values are only turned
+     * into strings when {@link #param(String)} or {@link #params()} asks
+     * for them.
+     */
+    static final class RouteMatch {
+        Runnable action;
+        /** The route as registered, or {@code null} if none matched. */
+        String route;
+        Context context;
+        private PathPattern pattern;
+        private String path;
+        private int[] bounds = new int[32];
+
+        int scan(String path) {
+            int count = PathPattern.segments(path, bounds);
+            if (count << 1 > bounds.length) {
+                bounds = new int[Integer.highestOneBit(count) << 2];
+                PathPattern.segments(path, bounds);
+            }
+            return count;
+        }
 
-        RouteMatch(Runnable action, Map<String, String> params) {
+        RouteMatch set(Runnable action, PathPattern pattern, String path,
+                String route) {
             this.action = action;
-            this.params = params;
+            this.pattern = pattern;
+            this.path = path;
+            this.route = route;
+            return this;
         }
-    }
 
-    /**
-     * A route pattern that supports named parameters ({@code :name})
-     * and wildcards ({@code *}). Delegates to {@link PathPattern}.
-     */
-    static class PatternRoute {
-        final String method;
-        final PathPattern pattern;
-        final Runnable action;
+        void clear() {
+            set(null, null, null, null);
+            context = null;
+        }
 
-        PatternRoute(String method, String path, Runnable action) {
-            this.method = method;
-            this.pattern = new PathPattern(path);
-            this.action = action;
+        String param(String name) {
+            return pattern != null ? pattern.param(name, path, bounds) : null;
+        }
+
+        Map<String, String> params() {
+            return pattern != null
+                    ? pattern.params(path, bounds)
+                    : Collections.emptyMap();
         }
     }
 }
@@ -16,10 +16,10 @@
 
 package io.github.ghosthack.turismo.http;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
@@ -34,25 +34,45 @@ import io.github.ghosthack.turismo.Context;
  * JDK's built-in HTTP server ({@code jdk.httpserver} module).
  *
  * <p>Response output is buffered internally and flushed to the client
- * when {@link #finish()} is called. This allows the framework to set
- * the correct {@code Content-Length} header automatically.
+ * when {@link #finish()} is called, so that small responses get a
+ * {@code Content-Length} header. Once the buffered output exceeds the
+ * stream threshold, or when the route calls {@link #stream()}, the status
+ * and headers are sent and the body is streamed with chunked transfer
+ * encoding instead; the status and headers can no longer change after
+ * that point.
  *
  * @see Server
+ * @see ServerConfig.Builder#streamThreshold(int)
  */
 public class HttpContext implements Context {
 
     private final HttpExchange exchange;
+    private final int streamThreshold;
     private int statusCode = 200;
-    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Body body = new Body();
     private Map<String, String> queryParams;
 
     /**
-     * Creates a context wrapping the given HTTP exchange.
+     * Creates a context wrapping the given HTTP exchange, with the
+     * {@linkplain ServerConfig#DEFAULT_STREAM_THRESHOLD default} stream
+     * threshold.
      *
      * @param exchange the HTTP exchange from the JDK HTTP server
      */
     public HttpContext(HttpExchange exchange) {
+        this(exchange, ServerConfig.DEFAULT_STREAM_THRESHOLD);
+    }
+
+    /**
+     * Creates a context wrapping the given HTTP exchange.
+     *
+     * @param exchange        the HTTP exchange from the JDK HTTP server
+     * @param streamThreshold the number of buffered bytes beyond which
+     *                        the response is streamed
+     */
+    public HttpContext(HttpExchange exchange, int streamThreshold) {
         this.exchange = exchange;
+        this.streamThreshold = streamThreshold;
     }
 
     @Override
@@ -95,41 +115,213 @@ public class HttpContext implements Context {
 
     @Override
     public void print(String text) {
-        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
-        buffer.write(bytes, 0, bytes.length);
+        try {
+            body.print(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public OutputStream output() {
-        return buffer;
+        return body;
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+        try {
+            body.send(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stream() {
+        try {
+            body.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Flushes the buffered response to the client and closes the
-     * exchange. Must be called exactly once after the route action
-     * has completed.
+     * Returns whether the status and headers have been sent, i.e. the
+     * response is being streamed.
+     *
+     * @return {@code true} once the response is committed
+     */
+    public boolean committed() {
+        return body.stream != null;
+    }
+
+    /**
+     * Completes the response and closes the exchange: sends the buffered
+     * body with its {@code Content-Length}, or ends the chunked stream if
+     * the response was streamed. Must be called exactly once after the
+     * route action has completed.
      *
      * @throws IOException if an I/O error occurs while sending
      */
     public void finish() throws IOException {
-        byte[] body = buffer.toByteArray();
-        exchange.sendResponseHeaders(statusCode,
-                body.length > 0 ? body.length : -1);
-        if (body.length > 0) {
-            try (OutputStream os = exchange.getResponseBody()) {
-                os.write(body);
+        try {
+            if (body.stream != null) {
+                body.drain();
+                body.stream.close();
+                return;
             }
+            if (body.fixed != null) {
+                sendFixed(body.fixed);
+                return;
+            }
+            int length = body.buffer.size();
+            exchange.sendResponseHeaders(statusCode, length > 0 ? length : -1);
+            if (length > 0) {
+                try (OutputStream os = exchange.getResponseBody()) {
+                    body.buffer.writeTo(os);
+                }
+            }
+        } finally {
+            body.buffer.release();
+            exchange.close();
+        }
+    }
+
+    private void sendFixed(byte[] bytes) throws IOException {
+        if (bytes.length == 0 || "HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
         }
-        exchange.close();
+    }
+
+    /**
+     * Abandons a committed response after a failure: returns the buffer
+     * to the pool without sending what it holds and without ending the
+     * chunked stream, so the caller can close the connection and the
+     * client sees an incomplete response. The exchange is not closed,
+     * since closing it would send the terminating chunk.
+     */
+    void abort() {
+        body.buffer.release();
     }
 
     /**
      * Resets the response buffer, discarding any output written so
      * far. Used by the server to clear partial output before sending
-     * an error response.
+     * an error response. Has no effect once the response is committed.
      */
     void resetBuffer() {
-        buffer.reset();
+        if (body.stream == null) {
+            body.fixed = null;
+            body.buffer.reset();
+        }
+    }
+
+    /**
+     * Response body: buffers in pooled segments until the stream
+     * threshold is crossed or streaming is requested, then sends the
+     * headers. While streaming, the buffer stages output and is drained
+     * to the exchange a segment at a time; large writes bypass it.
+     *
+     * <p>A whole body passed to {@link #send(byte[])} before any other
+     * output is kept as is and written straight to the exchange with its
+     * length, however large; output that follows it moves it to the
+     * buffer first.
+     */
+    private final class Body extends OutputStream {
+        final ResponseBuffer buffer = new ResponseBuffer();
+        OutputStream stream;
+        byte[] fixed;
+
+        @Override
+        public void write(int b) throws IOException {
+            unfix();
+            buffer.write(b);
+            written();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            unfix();
+            if (len >= ResponseBuffer.SEGMENT_SIZE
+                    && (stream != null || buffer.size() + len > streamThreshold)) {
+                commit();
+                drain();
+                stream.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            written();
+        }
+
+        void print(String text) throws IOException {
+            unfix();
+            buffer.writeUtf8(text);
+            written();
+        }
+
+        void send(byte[] bytes) throws IOException {
+            if (stream == null && fixed == null && buffer.size() == 0) {
+                fixed = bytes;
+            } else {
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        private void unfix() throws IOException {
+            if (fixed != null) {
+                byte[] bytes = fixed;
+                fixed = null;
+                write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (stream != null) {
+                drain();
+                stream.flush();
+            }
+        }
+
+        private void written() throws IOException {
+            if (stream != null) {
+                if (buffer.size() >= ResponseBuffer.SEGMENT_SIZE) {
+                    drain();
+                }
+            } else if (buffer.size() > streamThreshold) {
+                commit();
+            }
+        }
+
+        void drain() throws IOException {
+            buffer.writeTo(stream);
+            buffer.reset();
+        }
+
+        void commit() throws IOException {
+            if (stream != null) {
+                return;
+            }
+            if (fixed != null) {
+                byte[] bytes = fixed;
+                fixed = null;
+                buffer.write(bytes, 0, bytes.length);
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                // no body may follow the headers; discard it
+                exchange.sendResponseHeaders(statusCode, -1);
+                stream = OutputStream.nullOutputStream();
+            } else {
+                exchange.sendResponseHeaders(statusCode, 0);
+                stream = exchange.getResponseBody();
+            }
+            drain();
+        }
     }
 
     private static Map<String, String> parseQuery(String query) {
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.github.ghosthack.turismo.util.Pool;
+
+/**
+ * Response body buffer made of fixed-size byte segments taken from a
+ * shared pool. Text is encoded to UTF-8 straight into the segments, and
+ * the content is written out segment by segment, so buffering a response
+ * costs no intermediate arrays and no copy on growth.
+ *
+ * <p>Not thread-safe; each buffer belongs to one exchange. Segments go
+ * back to the pool on {@link #release()}.
+ */
+final class ResponseBuffer {
+
+    /** Size of each segment, in bytes. */
+    static final int SEGMENT_SIZE = 8192;
+
+    static final Pool<byte[]> POOL = new Pool<>(() -> new byte[SEGMENT_SIZE]);
+
+    private byte[][] segments = new byte[4][];
+    private int count;
+    private int pos;
+    private int size;
+
+    /** Returns the number of bytes buffered. */
+    int size() {
+        return size;
+    }
+
+    void write(int b) {
+        byte[] segment = current();
+        segment[pos++] = (byte) b;
+        size++;
+    }
+
+    void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            byte[] segment = current();
+            int n = Math.min(len, SEGMENT_SIZE - pos);
+            System.arraycopy(b, off, segment, pos, n);
+            pos += n;
+            size += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Appends the UTF-8 encoding of a string. Like
+     * {@link String#getBytes(java.nio.charset.Charset)}, unpaired
+     * surrogates are encoded as {@code '?'}.
+     */
+    void writeUtf8(String s) {
+        int len = s.length();
+        int i = 0;
+        while (i < len) {
+            byte[] segment = current();
+            int p = pos;
+            int limit = i + Math.min(len - i, SEGMENT_SIZE - p);
+            char c;
+            while (i < limit && (c = s.charAt(i)) < 0x80) {
+                segment[p++] = (byte) c;
+                i++;
+            }
+            size += p - pos;
+            pos = p;
+            if (i < limit) {
+                i = writeChar(s, i);
+            }
+        }
+    }
+
+    /** Encodes the non-ASCII character at {@code i}; returns the next index. */
+    private int writeChar(String s, int i) {
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            write(0xC0 | (c >> 6));
+            write(0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            write(0xE0 | (c >> 12));
+            write(0x80 | ((c >> 6) & 0x3F));
+            write(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            write(0xF0 | (cp >> 18));
+            write(0x80 | ((cp >> 12) & 0x3F));
+            write(0x80 | ((cp >> 6) & 0x3F));
+            write(0x80 | (cp & 0x3F));
+            return i + 2;
+        } else {
+            write('?');
+        }
+        return i + 1;
+    }
+
+    /** Writes the buffered bytes to {@code out}, one segment at a time. */
+    void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.write(segments[i], 0, i == count - 1 ? pos : SEGMENT_SIZE);
+        }
+    }
+
+    /** Discards the content, keeping the first segment for reuse. */
+    void reset() {
+        for (int i = 1; i < count; i++) {
+            POOL.release(segments[i]);
+            segments[i] = null;
+        }
+        count = Math.min(count, 1);
+        pos = 0;
+        size = 0;
+    }
+
+    /** Discards the content and returns all segments to the pool. */
+    void release() {
+        reset();
+        if (count == 1) {
+            POOL.release(segments[0]);
+            segments[0] = null;
+            count = 0;
+        }
+    }
+
+    /** Returns the segment to write into, adding one if the last is full. */
+    private byte[] current() {
+        if (count == 0 || pos == SEGMENT_SIZE) {
+            if (count == segments.length) {
+                byte[][] grown = new byte[count << 1][];
+                System.arraycopy(segments, 0, grown, 0, count);
+                segments = grown;
+            }
+            segments[count++] = POOL.acquire();
+            pos = 0;
+        }
+        return segments[count - 1];
+    }
+}
@@ -17,7 +17,18 @@
 package io.github.ghosthack.turismo.http;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
@@ -45,21 +56,101 @@ import io.github.ghosthack.turismo.Turismo;
  * server.stop();
  * }</pre>
  *
+ * <p>Requests are handled on a {@linkplain #defaultExecutor() default
+ * executor}: one virtual thread per request on Java 21+, or a bounded
+ * pool of platform threads on older runtimes. A different
+ * {@link Executor}, along with the backlog, bind address and other
+ * settings, can be supplied through a {@link ServerConfig}.
+ *
+ * <p>A route that throws an exception gets a {@code 500} response, unless
+ * it had already started streaming; then the connection is closed before
+ * the chunked body is ended, so clients can tell the response is
+ * incomplete. An {@link Error} is logged and the connection dropped
+ * without a response; before streaming, the error is also rethrown to the
+ * executor.
+ *
  * @see Turismo#start(int)
  */
 public class Server {
 
+    private static final int QUEUE_SIZE = 1024;
+    private static final Logger LOG = Logger.getLogger(Server.class.getName());
+
     private final HttpServer server;
+    private final ExecutorService owned;
+    private final int stopGrace;
+    private final int streamThreshold;
 
     /**
-     * Creates a server bound to the given port.
+     * Creates a server bound to the given port, handling requests on the
+     * {@linkplain #defaultExecutor() default executor}.
      *
      * @param port the port to listen on (use 0 for a random available port)
      * @throws IOException if the server socket cannot be created
      */
     public Server(int port) throws IOException {
-        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this(port, null);
+    }
+
+    /**
+     * Creates a server bound to the given port, handling requests on the
+     * given executor. The executor is not shut down by {@link #stop()}.
+     *
+     * @param port     the port to listen on (use 0 for a random available port)
+     * @param executor the executor to run requests on, or {@code null}
+     *                 for the {@linkplain #defaultExecutor() default executor}
+     * @throws IOException if the server socket cannot be created
+     */
+    public Server(int port, Executor executor) throws IOException {
+        this(ServerConfig.builder().port(port).executor(executor).build());
+    }
+
+    /**
+     * Creates a server with the given configuration.
+     *
+     * @param config the server configuration
+     * @throws IOException if the server socket cannot be created
+     */
+    public Server(ServerConfig config) throws IOException {
+        config.applySystemProperties();
+        this.server = HttpServer.create(config.address(), config.backlog());
         this.server.createContext("/", this::handle);
+        Executor executor = config.executor();
+        if (executor == null) {
+            this.owned = defaultExecutor();
+            executor = owned;
+        } else {
+            this.owned = null;
+        }
+        this.server.setExecutor(executor);
+        this.stopGrace = ServerConfig.seconds(config.stopGrace());
+        this.streamThreshold = config.streamThreshold();
+    }
+
+    /**
+     * Creates the executor used when none is supplied: a
+     * virtual-thread-per-task executor on Java 21+, otherwise a fixed pool
+     * of twice as many platform threads as available processors (at
+     * least 8), with a bounded queue. When the queue is full, the
+     * server's dispatcher thread runs the request itself, which stops it
+     * from accepting new connections until the pool catches up.
+     *
+     * @return a new executor service
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class,
+                            "newVirtualThreadPerTaskExecutor",
+                            MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // Java 17-20: no virtual threads, or preview not enabled
+        }
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        return new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+                new WorkerFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     /**
@@ -71,10 +162,17 @@ public class Server {
     }
 
     /**
-     * Stops the server immediately, closing all connections.
+     * Stops the server. New connections are refused at once; exchanges
+     * in progress get up to the configured
+     * {@linkplain ServerConfig#stopGrace() stop grace} to complete before
+     * all connections are closed. The default executor is shut down; an
+     * executor supplied by the caller is not.
      */
     public void stop() {
-        server.stop(0);
+        server.stop(stopGrace);
+        if (owned != null) {
+            owned.shutdown();
+        }
     }
 
     /**
@@ -87,14 +185,29 @@ public class Server {
         return server.getAddress().getPort();
     }
 
-    private void handle(HttpExchange exchange) {
-        HttpContext ctx = new HttpContext(exchange);
+    private void handle(HttpExchange exchange) throws IOException {
+        HttpContext ctx = new HttpContext(exchange, streamThreshold);
         try {
             Turismo.handle(ctx);
         } catch (Exception e) {
+            if (ctx.committed()) {
+                abort(ctx, e);
+            }
             ctx.resetBuffer();
             ctx.status(500);
             ctx.print("Internal Server Error");
+        } catch (Error e) {
+            LOG.log(Level.SEVERE, "Error handling " + exchange.getRequestMethod()
+                    + " " + exchange.getRequestURI().getPath(), e);
+            if (ctx.committed()) {
+                abort(ctx, e);
+            }
+            // No response after an Error: closing the exchange before the
+            // headers are sent drops the connection, and the Error goes on
+            // to the executor
+            ctx.abort();
+            exchange.close();
+            throw e;
         }
         try {
             ctx.finish();
@@ -102,4 +215,22 @@ public class Server {
             // Client may have disconnected
         }
     }
+
+    private static void abort(HttpContext ctx, Throwable cause) throws IOException {
+        // Ending the chunked stream would pass the truncated body off as
+        // complete; an IOException makes the JDK server drop the
+        // connection without the terminating chunk.
+        ctx.abort();
+        throw new IOException("Route failed after the response was committed", cause);
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "turismo-worker-" + count.incrementAndGet());
+            return t;
+        }
+    }
 }
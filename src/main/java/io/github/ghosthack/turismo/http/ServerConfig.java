@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.http;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+import io.github.ghosthack.turismo.Turismo;
+
+/**
+ * Tuning parameters for the embedded {@link Server}. Instances are
+ * immutable and created with a {@link Builder}:
+ *
+ * <pre>{@code
+ * Turismo.start(ServerConfig.builder()
+ *         .port(8080)
+ *         .backlog(4096)
+ *         .stopGrace(Duration.ofSeconds(5))
+ *         .idleTimeout(Duration.ofSeconds(60))
+ *         .build());
+ * }</pre>
+ *
+ * <p>Port, bind address, backlog, executor, stop grace and stream
+ * threshold apply to each server. Timeouts, connection limits and {@code TCP_NODELAY} are
+ * settings of the JDK's HTTP server implementation that it reads from the
+ * {@code sun.net.httpserver.*} and {@code jdk.httpserver.*} system
+ * properties once, when the first server in the JVM is created. They are
+ * therefore JVM-wide and only take effect if set before that; values
+ * passed with {@code -D} on the command line are not overridden unless
+ * set explicitly on the builder.
+ *
+ * @see Turismo#start(ServerConfig)
+ */
+public final class ServerConfig {
+
+    /** Default accept queue length. */
+    public static final int DEFAULT_BACKLOG = 1024;
+
+    /** Default response size beyond which the body is streamed. */
+    public static final int DEFAULT_STREAM_THRESHOLD = 64 * 1024;
+
+    private final int port;
+    private final InetAddress bindAddress;
+    private final int backlog;
+    private final Executor executor;
+    private final Duration stopGrace;
+    private final int streamThreshold;
+    private final Duration idleTimeout;
+    private final Duration requestTimeout;
+    private final Duration responseTimeout;
+    private final int maxIdleConnections;
+    private final int maxConnections;
+    private final Boolean tcpNoDelay;
+
+    private ServerConfig(Builder b) {
+        this.port = b.port;
+        this.bindAddress = b.bindAddress;
+        this.backlog = b.backlog;
+        this.executor = b.executor;
+        this.stopGrace = b.stopGrace;
+        this.streamThreshold = b.streamThreshold;
+        this.idleTimeout = b.idleTimeout;
+        this.requestTimeout = b.requestTimeout;
+        this.responseTimeout = b.responseTimeout;
+        this.maxIdleConnections = b.maxIdleConnections;
+        this.maxConnections = b.maxConnections;
+        this.tcpNoDelay = b.tcpNoDelay;
+    }
+
+    /**
+     * Returns a new builder with default settings.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the port to listen on; {@code 0} picks a free port.
+     *
+     * @return the port
+     */
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Returns the address to bind to, or {@code null} for all interfaces.
+     *
+     * @return the bind address
+     */
+    public InetAddress bindAddress() {
+        return bindAddress;
+    }
+
+    /**
+     * Returns the maximum length of the queue of pending connections.
+     *
+     * @return the backlog
+     */
+    public int backlog() {
+        return backlog;
+    }
+
+    /**
+     * Returns the executor requests run on, or {@code null} for
+     * {@link Server#defaultExecutor()}.
+     *
+     * @return the executor
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Returns how long {@link Server#stop()} waits for in-flight
+     * exchanges to complete before closing connections.
+     *
+     * @return the stop grace period
+     */
+    public Duration stopGrace() {
+        return stopGrace;
+    }
+
+    /**
+     * Returns the number of buffered response bytes beyond which the
+     * response is streamed with chunked encoding.
+     *
+     * @return the stream threshold
+     */
+    public int streamThreshold() {
+        return streamThreshold;
+    }
+
+    /**
+     * Returns how long an idle keep-alive connection stays open, or
+     * {@code null} for the JDK default (30 seconds).
+     *
+     * @return the idle timeout
+     */
+    public Duration idleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns the maximum time to read a request, or {@code null} for
+     * no limit.
+     *
+     * @return the request timeout
+     */
+    public Duration requestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Returns the maximum time to write a response, or {@code null} for
+     * no limit.
+     *
+     * @return the response timeout
+     */
+    public Duration responseTimeout() {
+        return responseTimeout;
+    }
+
+    /**
+     * Returns the maximum number of idle keep-alive connections, or
+     * {@code -1} for the JDK default (200).
+     *
+     * @return the idle connection limit
+     */
+    public int maxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     * Returns the maximum number of open connections, or {@code -1} for
+     * no limit.
+     *
+     * @return the connection limit
+     */
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns whether {@code TCP_NODELAY} is set on accepted connections,
+     * or {@code null} if not set explicitly. Unless configured otherwise
+     * (here or with {@code -Dsun.net.httpserver.nodelay}), it is enabled:
+     * with Nagle's algorithm on, small responses can be held back by
+     * delayed ACKs for tens of milliseconds.
+     *
+     * @return the TCP_NODELAY setting
+     */
+    public Boolean tcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    InetSocketAddress address() {
+        return bindAddress != null
+                ? new InetSocketAddress(bindAddress, port)
+                : new InetSocketAddress(port);
+    }
+
+    /**
+     * Copies the JDK HTTP server settings into system properties, where
+     * the server reads them from.
+     */
+    void applySystemProperties() {
+        if (idleTimeout != null) {
+            System.setProperty("sun.net.httpserver.idleInterval",
+                    String.valueOf(seconds(idleTimeout)));
+        }
+        if (requestTimeout != null) {
+            System.setProperty("sun.net.httpserver.maxReqTime",
+                    String.valueOf(seconds(requestTimeout)));
+        }
+        if (responseTimeout != null) {
+            System.setProperty("sun.net.httpserver.maxRspTime",
+                    String.valueOf(seconds(responseTimeout)));
+        }
+        if (maxIdleConnections >= 0) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections",
+                    String.valueOf(maxIdleConnections));
+        }
+        if (maxConnections >= 0) {
+            System.setProperty("jdk.httpserver.maxConnections",
+                    String.valueOf(maxConnections));
+        }
+        if (tcpNoDelay != null) {
+            System.setProperty("sun.net.httpserver.nodelay",
+                    tcpNoDelay.toString());
+        } else if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /** Rounds up to whole seconds, the unit the JDK server uses. */
+    static int seconds(Duration d) {
+        long s = d.getSeconds() + (d.getNano() > 0 ? 1 : 0);
+        return (int) Math.min(s, Integer.MAX_VALUE);
+    }
+
+    /** Builder for {@link ServerConfig}. */
+    public static final class Builder {
+        private int port;
+        private InetAddress bindAddress;
+        private int backlog = DEFAULT_BACKLOG;
+        private Executor executor;
+        private Duration stopGrace = Duration.ZERO;
+        private int streamThreshold = DEFAULT_STREAM_THRESHOLD;
+        private Duration idleTimeout;
+        private Duration requestTimeout;
+        private Duration responseTimeout;
+        private int maxIdleConnections = -1;
+        private int maxConnections = -1;
+        private Boolean tcpNoDelay;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the port to listen on. Defaults to {@code 0}, a free port.
+         *
+         * @param port the port, 0-65535
+         * @return this builder
+         * @throws IllegalArgumentException if the port is out of range
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException(
+                        "Port out of range: " + port);
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the address to bind to. Defaults to all interfaces.
+         *
+         * @param bindAddress the address, or {@code null} for all interfaces
+         * @return this builder
+         */
+        public Builder bindAddress(InetAddress bindAddress) {
+            this.bindAddress = bindAddress;
+            return this;
+        }
+
+        /**
+         * Sets the maximum length of the queue of pending connections.
+         * Defaults to {@value ServerConfig#DEFAULT_BACKLOG}; the operating
+         * system may cap it (e.g. {@code net.core.somaxconn} on Linux).
+         *
+         * @param backlog the backlog, or {@code 0} for the system default
+         * @return this builder
+         * @throws IllegalArgumentException if backlog is negative
+         */
+        public Builder backlog(int backlog) {
+            if (backlog < 0) {
+                throw new IllegalArgumentException(
+                        "Backlog must not be negative: " + backlog);
+            }
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Sets the executor requests run on. It is not shut down when
+         * the server stops.
+         *
+         * @param executor the executor, or {@code null} for
+         *                 {@link Server#defaultExecutor()}
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets how long stopping the server waits for in-flight exchanges
+         * to complete. Rounded up to whole seconds. Defaults to zero,
+         * which closes all connections immediately.
+         *
+         * @param stopGrace the grace period
+         * @return this builder
+         * @throws IllegalArgumentException if null or negative
+         */
+        public Builder stopGrace(Duration stopGrace) {
+            this.stopGrace = nonNegative(stopGrace, "Stop grace");
+            return this;
+        }
+
+        /**
+         * Sets how many bytes of a response are buffered before it is
+         * streamed with chunked transfer encoding. Responses up to this
+         * size are sent with a {@code Content-Length}. Defaults to
+         * {@value ServerConfig#DEFAULT_STREAM_THRESHOLD}.
+         *
+         * @param streamThreshold the threshold in bytes, {@code 0} to
+         *                        stream every non-empty response
+         * @return this builder
+         * @throws IllegalArgumentException if negative
+         */
+        public Builder streamThreshold(int streamThreshold) {
+            if (streamThreshold < 0) {
+                throw new IllegalArgumentException(
+                        "Stream threshold must not be negative: "
+                        + streamThreshold);
+            }
+            this.streamThreshold = streamThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long an idle keep-alive connection stays open. Rounded
+         * up to whole seconds. JVM-wide, see {@link ServerConfig}.
+         *
+         * @param idleTimeout the idle timeout
+         * @return this builder
+         * @throws IllegalArgumentException if null or not positive
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = positive(idleTimeout, "Idle timeout");
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to read a request. Rounded up to whole
+         * seconds. JVM-wide, see {@link ServerConfig}.
+         *
+         * @param requestTimeout the request timeout
+         * @return this builder
+         * @throws IllegalArgumentException if null or not positive
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = positive(requestTimeout, "Request timeout");
+            return this;
+        }
+
+        /**
+         * Sets the maximum time to write a response. Rounded up to whole
+         * seconds. JVM-wide, see {@link ServerConfig}.
+         *
+         * @param responseTimeout the response timeout
+         * @return this builder
+         * @throws IllegalArgumentException if null or not positive
+         */
+        public Builder responseTimeout(Duration responseTimeout) {
+            this.responseTimeout = positive(responseTimeout, "Response timeout");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of idle keep-alive connections.
+         * JVM-wide, see {@link ServerConfig}.
+         *
+         * @param maxIdleConnections the limit
+         * @return this builder
+         * @throws IllegalArgumentException if negative
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException(
+                        "Max idle connections must not be negative: "
+                        + maxIdleConnections);
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of open connections; further
+         * connections are closed as soon as they are accepted. Ignored by
+         * JDK builds that predate {@code jdk.httpserver.maxConnections}.
+         * JVM-wide, see {@link ServerConfig}.
+         *
+         * @param maxConnections the limit
+         * @return this builder
+         * @throws IllegalArgumentException if not positive
+         */
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException(
+                        "Max connections must be positive: " + maxConnections);
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets whether {@code TCP_NODELAY} is set on accepted
+         * connections. JVM-wide, see {@link ServerConfig}.
+         *
+         * @param tcpNoDelay whether to disable Nagle's algorithm
+         * @return this builder
+         */
+        public Builder tcpNoDelay(boolean tcpNoDelay) {
+            this.tcpNoDelay = tcpNoDelay;
+            return this;
+        }
+
+        /**
+         * Creates the configuration.
+         *
+         * @return the configuration
+         */
+        public ServerConfig build() {
+            return new ServerConfig(this);
+        }
+
+        private static Duration nonNegative(Duration d, String name) {
+            if (d == null || d.isNegative()) {
+                throw new IllegalArgumentException(
+                        name + " must not be null or negative: " + d);
+            }
+            return d;
+        }
+
+        private static Duration positive(Duration d, String name) {
+            if (d == null || d.isNegative() || d.isZero()) {
+                throw new IllegalArgumentException(
+                        name + " must be positive: " + d);
+            }
+            return d;
+        }
+    }
+}
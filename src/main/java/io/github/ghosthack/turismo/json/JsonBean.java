@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets {@link JsonWriter} write instances of a class as beans, with one
+ * property per public {@code getX()} or {@code isX()} getter, in
+ * alphabetical order. Classes without it, other than records and enums,
+ * are rejected as unsupported, so adding a getter never leaks a field
+ * into the JSON of a class that was not meant to be serialized.
+ *
+ * <pre>{@code
+ * @JsonBean
+ * public class User {
+ *     public String getName() { ... }
+ * }
+ * }</pre>
+ *
+ * <p>The annotation is not inherited: each subclass serialized as a bean
+ * needs its own.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface JsonBean {
+}
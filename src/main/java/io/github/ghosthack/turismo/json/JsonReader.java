@@ -0,0 +1,837 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.ghosthack.turismo.util.Pool;
+
+/**
+ * Pull parser that reads one JSON document from UTF-8 bytes, straight
+ * from an {@link InputStream} through a small internal buffer. Values are
+ * read one token at a time, so a document never has to be held in memory
+ * as a String or a tree.
+ *
+ * <pre>{@code
+ * JsonReader reader = new JsonReader(in);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     ...
+ * }
+ * reader.endObject();
+ * }</pre>
+ *
+ * <p>{@link #read(Class)} binds a document to records, enums, {@link Map},
+ * {@link List}, arrays, strings, numbers and booleans directly from the
+ * tokens; {@link #readValue()} reads any value as plain {@link Map},
+ * {@link List}, {@link String}, {@link Long} or {@link Double},
+ * {@link Boolean}, or {@code null}.
+ *
+ * <p>Malformed input throws {@link IllegalArgumentException}, with the
+ * byte offset of the problem, as does nesting deeper than
+ * {@link #MAX_DEPTH}. The stream is not closed. Not thread-safe;
+ * {@link #fromJson(InputStream, Class)} takes readers from a shared pool,
+ * so parsing a document does not allocate a buffer.
+ */
+public final class JsonReader {
+
+    /** A kind of JSON token, as returned by {@link JsonReader#peek()}. */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME,
+        STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final Pool<JsonReader> POOL = new Pool<>(() -> new JsonReader(null));
+
+    /**
+     * Deepest nesting of arrays and objects accepted. Binding and
+     * {@link #readValue()} recurse once per level, so without a limit a
+     * small body of brackets could exhaust the thread's stack.
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    /** Bytes consumed before the start of {@link #buf}. */
+    private long offset;
+
+    private int[] stack = new int[32];
+    private int depth;
+
+    private Token peeked;
+    private boolean peekedBoolean;
+
+    private char[] chars = new char[64];
+
+    private boolean numberIsLong;
+    private long longValue;
+    private double doubleValue;
+
+    /**
+     * Creates a reader for the given stream.
+     *
+     * @param in the UTF-8 encoded JSON input
+     */
+    public JsonReader(InputStream in) {
+        reset(in);
+    }
+
+    /**
+     * Discards the current state and starts reading a new document from
+     * the given stream, reusing this reader's buffers. A string buffer
+     * grown past 4 KiB chars by a long string is dropped rather than
+     * kept for the next document.
+     *
+     * @param in the UTF-8 encoded JSON input
+     */
+    public void reset(InputStream in) {
+        this.in = in;
+        this.pos = 0;
+        this.limit = 0;
+        this.offset = 0;
+        this.depth = 0;
+        this.peeked = null;
+        if (chars.length > BUFFER_SIZE) {
+            chars = new char[64];
+        }
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Returns the kind of the next token without consuming it.
+     *
+     * @return the next token
+     * @throws IOException if reading from the stream fails
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[depth - 1]) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntax("Expected ',' or ']'");
+                }
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (stack[depth - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntax("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntax("Expected a name");
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntax("Expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                c = nextNonWhitespace();
+                break;
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                c = nextNonWhitespace();
+                break;
+            default:
+                if (nextNonWhitespace() != -1) {
+                    throw syntax("Unexpected data after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+        }
+        switch (c) {
+            case '{':
+                return peeked = Token.BEGIN_OBJECT;
+            case '[':
+                return peeked = Token.BEGIN_ARRAY;
+            case '"':
+                return peeked = Token.STRING;
+            case 't':
+                literal("rue");
+                peekedBoolean = true;
+                return peeked = Token.BOOLEAN;
+            case 'f':
+                literal("alse");
+                peekedBoolean = false;
+                return peeked = Token.BOOLEAN;
+            case 'n':
+                literal("ull");
+                return peeked = Token.NULL;
+            case -1:
+                throw syntax("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--; // the number is read from its first character
+                    return peeked = Token.NUMBER;
+                }
+                throw syntax("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Returns whether the current array or object has another element.
+     *
+     * @return {@code true} unless the next token closes the array or object
+     * @throws IOException if reading from the stream fails
+     */
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY
+                && t != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consumes and returns a property name.
+     *
+     * @return the name
+     * @throws IOException if reading from the stream fails
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Consumes and returns a string value.
+     *
+     * @return the string
+     * @throws IOException if reading from the stream fails
+     */
+    public String nextString() throws IOException {
+        expect(Token.STRING);
+        return readString();
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return the boolean
+     * @throws IOException if reading from the stream fails
+     */
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return peekedBoolean;
+    }
+
+    /**
+     * Consumes a {@code null} value.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Consumes a number that must be an integer within the range of
+     * {@code long}.
+     *
+     * @return the number
+     * @throws IOException if reading from the stream fails
+     */
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        readNumber();
+        if (!numberIsLong) {
+            throw syntax("Expected an integer");
+        }
+        return longValue;
+    }
+
+    /**
+     * Consumes a number that must be an integer within the range of
+     * {@code int}.
+     *
+     * @return the number
+     * @throws IOException if reading from the stream fails
+     */
+    public int nextInt() throws IOException {
+        long v = nextLong();
+        if ((int) v != v) {
+            throw syntax("Integer out of range: " + v);
+        }
+        return (int) v;
+    }
+
+    /**
+     * Consumes a number.
+     *
+     * @return the number as a double
+     * @throws IOException if reading from the stream fails
+     */
+    public double nextDouble() throws IOException {
+        expect(Token.NUMBER);
+        readNumber();
+        return numberIsLong ? (double) longValue : doubleValue;
+    }
+
+    /**
+     * Consumes the next value, including any nested values, without
+     * decoding it.
+     *
+     * @throws IOException if reading from the stream fails
+     */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    level++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    level++;
+                    break;
+                case END_OBJECT:
+                    if (level == 0) {
+                        throw syntax("Expected a value");
+                    }
+                    endObject();
+                    level--;
+                    break;
+                case END_ARRAY:
+                    if (level == 0) {
+                        throw syntax("Expected a value");
+                    }
+                    endArray();
+                    level--;
+                    break;
+                case NAME:
+                    peeked = null;
+                    skipString();
+                    break;
+                case STRING:
+                    peeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    peeked = null;
+                    readNumber();
+                    break;
+                case END_DOCUMENT:
+                    throw syntax("Unexpected end of document");
+                default:
+                    peeked = null;
+            }
+        } while (level > 0);
+    }
+
+    /**
+     * Reads the next value as plain Java objects: objects as
+     * {@link LinkedHashMap}, arrays as {@link ArrayList}, integers that
+     * fit as {@link Long}, other numbers as {@link Double}.
+     *
+     * @return the value, or {@code null}
+     * @throws IOException if reading from the stream fails
+     */
+    public Object readValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT: {
+                Map<String, Object> map = new LinkedHashMap<>();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    map.put(name, readValue());
+                }
+                endObject();
+                return map;
+            }
+            case BEGIN_ARRAY: {
+                List<Object> list = new ArrayList<>();
+                beginArray();
+                while (hasNext()) {
+                    list.add(readValue());
+                }
+                endArray();
+                return list;
+            }
+            case STRING:
+                return nextString();
+            case NUMBER:
+                peeked = null;
+                readNumber();
+                return numberIsLong ? (Object) longValue : (Object) doubleValue;
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                nextNull();
+                return null;
+            default:
+                throw syntax("Expected a value but was " + peek());
+        }
+    }
+
+    /**
+     * Reads the next value bound to the given type. Records are built
+     * through their canonical constructor, matching components by name;
+     * unknown properties are skipped and missing ones are left
+     * {@code null}, zero or {@code false}.
+     *
+     * @param <T> the target type
+     * @param type the target class
+     * @return the value, or {@code null} for a JSON {@code null}
+     * @throws IOException if reading from the stream fails
+     * @throws IllegalArgumentException if the input is malformed or does
+     *         not match the type, or the type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Class<T> type) throws IOException {
+        return (T) ObjectBinder.CACHE.get(type).read(this);
+    }
+
+    /**
+     * Reads the next value bound to the given, possibly generic, type,
+     * for example the {@code List<Item>} type of a record component.
+     *
+     * @param type the target type
+     * @return the value, or {@code null} for a JSON {@code null}
+     * @throws IOException if reading from the stream fails
+     * @throws IllegalArgumentException if the input is malformed or does
+     *         not match the type, or the type is not supported
+     */
+    public Object read(Type type) throws IOException {
+        return ObjectBinder.of(type).read(this);
+    }
+
+    /**
+     * Reads a whole JSON document bound to the given type, checking that
+     * nothing but whitespace follows it. The stream is not closed.
+     *
+     * @param <T> the target type
+     * @param in the UTF-8 encoded JSON input
+     * @param type the target class
+     * @return the value, or {@code null} for a JSON {@code null}
+     * @throws IOException if reading from the stream fails
+     * @throws IllegalArgumentException if the input is malformed or does
+     *         not match the type, or the type is not supported
+     * @see #read(Class)
+     */
+    public static <T> T fromJson(InputStream in, Class<T> type)
+            throws IOException {
+        JsonReader reader = POOL.acquire();
+        reader.reset(in);
+        try {
+            return reader.readDocument(type);
+        } finally {
+            reader.reset(null);
+            POOL.release(reader);
+        }
+    }
+
+    /**
+     * Reads the rest of the input as a whole JSON document bound to the
+     * given type, checking that nothing but whitespace follows it. Used
+     * with {@link #reset(InputStream)}, one reader can parse many
+     * documents.
+     *
+     * @param <T> the target type
+     * @param type the target class
+     * @return the value, or {@code null} for a JSON {@code null}
+     * @throws IOException if reading from the stream fails
+     * @throws IllegalArgumentException if the input is malformed or does
+     *         not match the type, or the type is not supported
+     * @see #fromJson(InputStream, Class)
+     */
+    public <T> T readDocument(Class<T> type) throws IOException {
+        T value = read(type);
+        expect(Token.END_DOCUMENT);
+        return value;
+    }
+
+    /**
+     * Reads a JSON string bound to the given type.
+     *
+     * @param <T> the target type
+     * @param json the JSON text
+     * @param type the target class
+     * @return the value, or {@code null} for a JSON {@code null}
+     * @throws IllegalArgumentException if the input is malformed or does
+     *         not match the type, or the type is not supported
+     */
+    public static <T> T fromJson(String json, Class<T> type) {
+        try {
+            return fromJson(new ByteArrayInputStream(
+                    json.getBytes(StandardCharsets.UTF_8)), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    IllegalArgumentException syntax(String message) {
+        return new IllegalArgumentException(
+                message + " at offset " + Math.max(0, offset + pos - 1));
+    }
+
+    private void expect(Token token) throws IOException {
+        Token t = peek();
+        if (t != token) {
+            throw syntax("Expected " + token + " but was " + t);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        // the document itself takes the first entry
+        if (depth > MAX_DEPTH) {
+            throw syntax("Nesting deeper than " + MAX_DEPTH);
+        }
+        if (depth == stack.length) {
+            int[] grown = new int[depth << 1];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = scope;
+    }
+
+    private void literal(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntax("Malformed literal");
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            int c = buf[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c & 0xFF;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int peekByte() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    /** Refills the buffer once it has been consumed. */
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    /**
+     * Reads a string whose opening quote has been consumed. Strings that
+     * are plain ASCII and within the buffer are copied in one step.
+     */
+    private String readString() throws IOException {
+        int start = pos;
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String s = new String(buf, start, pos - start,
+                        StandardCharsets.ISO_8859_1);
+                pos++;
+                return s;
+            }
+            if (b == '\\' || b < 0x20) {
+                break;
+            }
+            pos++;
+        }
+        int len = 0;
+        for (int i = start; i < pos; i++) {
+            len = append(len, (char) buf[i]);
+        }
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return new String(chars, 0, len);
+            } else if (b == '\\') {
+                len = append(len, escape());
+            } else if (b == -1) {
+                throw syntax("Unterminated string");
+            } else if (b < 0x20) {
+                throw syntax("Unescaped control character");
+            } else if (b < 0x80) {
+                len = append(len, (char) b);
+            } else {
+                len = decode(b, len);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int b = read();
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                escape();
+            } else if (b == -1) {
+                throw syntax("Unterminated string");
+            }
+        }
+    }
+
+    private char escape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u': {
+                int v = 0;
+                for (int i = 0; i < 4; i++) {
+                    int h = Character.digit(read(), 16);
+                    if (h < 0) {
+                        throw syntax("Malformed \\u escape");
+                    }
+                    v = (v << 4) | h;
+                }
+                return (char) v;
+            }
+            default:
+                throw syntax("Malformed escape");
+        }
+    }
+
+    /**
+     * Decodes a multi-byte UTF-8 sequence starting with {@code b}.
+     * Malformed sequences decode to U+FFFD, as {@link String} does.
+     */
+    private int decode(int b, int len) throws IOException {
+        int n;
+        int cp;
+        if ((b & 0xE0) == 0xC0) {
+            n = 1;
+            cp = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            n = 2;
+            cp = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            n = 3;
+            cp = b & 0x07;
+        } else {
+            return append(len, '\uFFFD');
+        }
+        for (int i = 0; i < n; i++) {
+            int c = peekByte();
+            if ((c & 0xC0) != 0x80 || c == -1) {
+                return append(len, '\uFFFD');
+            }
+            pos++;
+            cp = (cp << 6) | (c & 0x3F);
+        }
+        if ((n == 1 && cp < 0x80) || (n == 2 && cp < 0x800)
+                || (n == 3 && cp < 0x10000) || cp > 0x10FFFF
+                || (cp >= 0xD800 && cp <= 0xDFFF)) {
+            return append(len, '\uFFFD');
+        }
+        if (cp >= 0x10000) {
+            len = append(len, Character.highSurrogate(cp));
+            return append(len, Character.lowSurrogate(cp));
+        }
+        return append(len, (char) cp);
+    }
+
+    private int append(int len, char c) {
+        if (len == chars.length) {
+            char[] grown = new char[len << 1];
+            System.arraycopy(chars, 0, grown, 0, len);
+            chars = grown;
+        }
+        chars[len] = c;
+        return len + 1;
+    }
+
+    /**
+     * Reads a number into {@link #longValue} when it is an integer that
+     * fits, or into {@link #doubleValue} otherwise.
+     */
+    private void readNumber() throws IOException {
+        int len = 0;
+        boolean negative = false;
+        boolean integral = true;
+        boolean fits = true;
+        long value = 0; // accumulated negatively to reach Long.MIN_VALUE
+        int c = peekByte();
+        if (c == '-') {
+            negative = true;
+            len = append(len, '-');
+            pos++;
+            c = peekByte();
+        }
+        if (c == '0') {
+            len = append(len, '0');
+            pos++;
+            c = peekByte();
+        } else if (c >= '1' && c <= '9') {
+            while (c >= '0' && c <= '9') {
+                int d = c - '0';
+                if (value < -922337203685477580L
+                        || (value == -922337203685477580L && d > 8)) {
+                    fits = false;
+                } else {
+                    value = value * 10 - d;
+                }
+                len = append(len, (char) c);
+                pos++;
+                c = peekByte();
+            }
+        } else {
+            throw syntax("Malformed number");
+        }
+        if (c == '.') {
+            integral = false;
+            len = append(len, '.');
+            pos++;
+            len = digits(len);
+            c = peekByte();
+        }
+        if (c == 'e' || c == 'E') {
+            integral = false;
+            len = append(len, 'e');
+            pos++;
+            c = peekByte();
+            if (c == '+' || c == '-') {
+                len = append(len, (char) c);
+                pos++;
+            }
+            len = digits(len);
+        }
+        if (integral && fits && (negative || value != Long.MIN_VALUE)) {
+            numberIsLong = true;
+            longValue = negative ? value : -value;
+        } else {
+            numberIsLong = false;
+            doubleValue = Double.parseDouble(new String(chars, 0, len));
+        }
+    }
+
+    /** Reads one or more digits. */
+    private int digits(int len) throws IOException {
+        int c = peekByte();
+        if (c < '0' || c > '9') {
+            throw syntax("Malformed number");
+        }
+        do {
+            len = append(len, (char) c);
+            pos++;
+            c = peekByte();
+        } while (c >= '0' && c <= '9');
+        return len;
+    }
+}
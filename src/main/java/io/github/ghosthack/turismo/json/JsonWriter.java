@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+import io.github.ghosthack.turismo.Turismo;
+import io.github.ghosthack.turismo.util.Pool;
+
+/**
+ * Serializes objects to JSON as UTF-8 bytes, writing straight to an
+ * {@link OutputStream} in a single pass. Supports {@link Map},
+ * {@link Iterable}, arrays, {@link String}, {@link Number},
+ * {@link Boolean}, and {@code null}; the output is the same as
+ * {@link Turismo#toJson(Object)}.
+ *
+ * <p>Records are written as objects with one property per component, in
+ * declaration order, and enums as their name. Classes annotated
+ * {@link JsonBean @JsonBean} are written as beans, with one property per
+ * public {@code getX()} or {@code isX()} getter, in alphabetical order;
+ * any other class is rejected. The accessors of each class are resolved
+ * once into method handles and cached, so serializing an instance does
+ * not use reflection. Values nested deeper than {@link #MAX_DEPTH}, such
+ * as a cycle of references, are rejected too.
+ *
+ * <pre>{@code
+ * JsonWriter writer = new JsonWriter(out);
+ * writer.value(Map.of("ok", true));
+ * writer.flush();
+ * }</pre>
+ *
+ * <p>Bytes are collected in a small internal buffer and passed on when
+ * it fills up or on {@link #flush()}; {@link #reset(OutputStream)} lets
+ * one writer, and its buffer, serve many documents. Not thread-safe;
+ * {@link #write(Object, OutputStream)} takes writers from a shared pool.
+ */
+public final class JsonWriter {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final Pool<JsonWriter> POOL = new Pool<>(() -> new JsonWriter(null));
+    private static final byte[] HEX = "0123456789abcdef"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    /**
+     * Deepest nesting of arrays and objects written, as in
+     * {@link JsonReader#MAX_DEPTH}. Deeper values throw
+     * {@link IllegalArgumentException} instead of overflowing the stack.
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private OutputStream out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    /** Bytes passed on to {@link #out} so far. */
+    private long drained;
+    private int depth;
+
+    /**
+     * Creates a writer that writes to the given stream.
+     *
+     * @param out the destination stream
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Discards any bytes not yet flushed and starts writing to the given
+     * stream, reusing this writer's buffer. {@link #size()} starts again
+     * from zero.
+     *
+     * @param out the destination stream
+     */
+    public void reset(OutputStream out) {
+        this.out = out;
+        this.pos = 0;
+        this.drained = 0;
+        this.depth = 0;
+    }
+
+    /**
+     * Serializes an object to a JSON string.
+     *
+     * @param obj the object to serialize
+     * @return the JSON string
+     * @throws IllegalArgumentException if the object type is not supported
+     */
+    public static String toJson(Object obj) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(obj, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes an object to the given stream and flushes it, with a
+     * writer taken from a shared pool, so that writing a document does
+     * not allocate a buffer.
+     *
+     * @param obj the object to serialize
+     * @param out the destination stream
+     * @throws IOException if writing to the stream fails
+     * @throws IllegalArgumentException if the object type is not supported
+     */
+    public static void write(Object obj, OutputStream out) throws IOException {
+        JsonWriter writer = POOL.acquire();
+        writer.reset(out);
+        try {
+            writer.value(obj);
+            writer.flush();
+        } finally {
+            writer.reset(null);
+            POOL.release(writer);
+        }
+    }
+
+    /**
+     * Writes a JSON value.
+     *
+     * @param obj the object to serialize
+     * @return this writer
+     * @throws IOException if writing to the stream fails
+     * @throws IllegalArgumentException if the object type is not
+     *         supported, or it nests deeper than {@link #MAX_DEPTH}
+     */
+    public JsonWriter value(Object obj) throws IOException {
+        if (obj == null) {
+            raw(NULL);
+        } else if (obj instanceof String s) {
+            string(s);
+        } else if (obj instanceof Integer || obj instanceof Long
+                || obj instanceof Short || obj instanceof Byte) {
+            number(((Number) obj).longValue());
+        } else if (obj instanceof Double d) {
+            number(d.doubleValue());
+        } else if (obj instanceof Number) {
+            ascii(obj.toString());
+        } else if (obj instanceof Boolean b) {
+            bool(b);
+        } else if (obj instanceof Map<?, ?> map) {
+            enter();
+            map(map);
+            exit();
+        } else if (obj instanceof Iterable<?> iterable) {
+            enter();
+            iterable(iterable);
+            exit();
+        } else if (obj.getClass().isArray()) {
+            enter();
+            array(obj);
+            exit();
+        } else {
+            ObjectSerializer.CACHE.get(obj.getClass()).write(this, obj);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the elements as a JSON array, pulling and serializing one at
+     * a time, and flushes the stream each time at least
+     * {@code flushBytes} have been written since the last flush. Only the
+     * current element is held in memory. If writing fails, for example
+     * because the client went away, no further elements are pulled.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @return this writer
+     * @throws IOException if writing to the stream fails
+     * @throws IllegalArgumentException if an element type is not
+     *         supported, or {@code flushBytes} is not positive
+     */
+    public JsonWriter array(Iterator<?> elements, int flushBytes)
+            throws IOException {
+        checkFlushBytes(flushBytes);
+        long flushed = size();
+        write('[');
+        boolean first = true;
+        while (elements.hasNext()) {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            value(elements.next());
+            flushed = flushIfOver(flushed, flushBytes);
+        }
+        write(']');
+        flush();
+        return this;
+    }
+
+    /**
+     * Writes each element as JSON followed by a newline, as
+     * newline-delimited JSON (NDJSON), pulling and serializing one at a
+     * time, and flushes the stream each time at least {@code flushBytes}
+     * have been written since the last flush.
+     *
+     * @param elements   the elements to write
+     * @param flushBytes the number of bytes written between flushes
+     * @return this writer
+     * @throws IOException if writing to the stream fails
+     * @throws IllegalArgumentException if an element type is not
+     *         supported, or {@code flushBytes} is not positive
+     * @see #array(Iterator, int)
+     */
+    public JsonWriter lines(Iterator<?> elements, int flushBytes)
+            throws IOException {
+        checkFlushBytes(flushBytes);
+        long flushed = size();
+        while (elements.hasNext()) {
+            value(elements.next());
+            write('\n');
+            flushed = flushIfOver(flushed, flushBytes);
+        }
+        flush();
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written so far, including those still
+     * held in the internal buffer.
+     *
+     * @return the byte count
+     */
+    public long size() {
+        return drained + pos;
+    }
+
+    /**
+     * Writes the buffered bytes to the underlying stream and flushes it.
+     *
+     * @throws IOException if writing to the stream fails
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /** Enters an array or object, failing past {@link #MAX_DEPTH}. */
+    void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException(
+                    "Nesting deeper than " + MAX_DEPTH);
+        }
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    private static void checkFlushBytes(int flushBytes) {
+        if (flushBytes <= 0) {
+            throw new IllegalArgumentException(
+                    "flushBytes must be positive: " + flushBytes);
+        }
+    }
+
+    /** Flushes if the threshold is crossed; returns the last flush mark. */
+    private long flushIfOver(long flushed, int flushBytes) throws IOException {
+        long size = size();
+        if (size - flushed >= flushBytes) {
+            flush();
+            return size;
+        }
+        return flushed;
+    }
+
+    private void map(Map<?, ?> map) throws IOException {
+        write('{');
+        Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<?, ?> entry = it.next();
+            string(String.valueOf(entry.getKey()));
+            write(':');
+            value(entry.getValue());
+            if (it.hasNext()) {
+                write(',');
+            }
+        }
+        write('}');
+    }
+
+    private void iterable(Iterable<?> iterable) throws IOException {
+        write('[');
+        Iterator<?> it = iterable.iterator();
+        while (it.hasNext()) {
+            value(it.next());
+            if (it.hasNext()) {
+                write(',');
+            }
+        }
+        write(']');
+    }
+
+    private void array(Object arr) throws IOException {
+        if (arr instanceof Object[] a) {
+            write('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) write(',');
+                value(a[i]);
+            }
+            write(']');
+        } else if (arr instanceof int[] a) {
+            write('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) write(',');
+                number(a[i]);
+            }
+            write(']');
+        } else if (arr instanceof long[] a) {
+            write('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) write(',');
+                number(a[i]);
+            }
+            write(']');
+        } else if (arr instanceof double[] a) {
+            write('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) write(',');
+                number(a[i]);
+            }
+            write(']');
+        } else if (arr instanceof boolean[] a) {
+            write('[');
+            for (int i = 0; i < a.length; i++) {
+                if (i > 0) write(',');
+                bool(a[i]);
+            }
+            write(']');
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported array type: " + arr.getClass().getName());
+        }
+    }
+
+    /** Writes a quoted, escaped string, encoding it to UTF-8. */
+    private void string(String s) throws IOException {
+        write('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (pos + 4 > buf.length) {
+                drain();
+            }
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buf[pos++] = (byte) c;
+                continue;
+            }
+            switch (c) {
+                case '"':  escape('"'); break;
+                case '\\': escape('\\'); break;
+                case '\b': escape('b'); break;
+                case '\f': escape('f'); break;
+                case '\n': escape('n'); break;
+                case '\r': escape('r'); break;
+                case '\t': escape('t'); break;
+                default:
+                    if (c < 0x20) {
+                        unicodeEscape(c);
+                    } else if (c < 0x800) {
+                        buf[pos++] = (byte) (0xC0 | (c >> 6));
+                        buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (!Character.isSurrogate(c)) {
+                        buf[pos++] = (byte) (0xE0 | (c >> 12));
+                        buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < len
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                        buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                    } else {
+                        // unpaired surrogate, as String.getBytes(UTF_8)
+                        buf[pos++] = '?';
+                    }
+            }
+        }
+        write('"');
+    }
+
+    private void escape(char c) {
+        buf[pos++] = '\\';
+        buf[pos++] = (byte) c;
+    }
+
+    private void unicodeEscape(char c) throws IOException {
+        if (pos + 6 > buf.length) {
+            drain();
+        }
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = '0';
+        buf[pos++] = '0';
+        buf[pos++] = HEX[(c >> 4) & 0xF];
+        buf[pos++] = HEX[c & 0xF];
+    }
+
+    /** Writes a long in decimal without going through a String. */
+    void number(long v) throws IOException {
+        if (v == Long.MIN_VALUE) {
+            ascii(Long.toString(v));
+            return;
+        }
+        if (pos + 20 > buf.length) {
+            drain();
+        }
+        if (v < 0) {
+            buf[pos++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int p = end - 1; p >= pos; p--) {
+            buf[p] = (byte) ('0' + (v % 10));
+            v /= 10;
+        }
+        pos = end;
+    }
+
+    /**
+     * Writes a double as {@link Double#toString(double)} does. Integral
+     * values below 10<sup>7</sup>, which that method prints as
+     * {@code digits.0}, skip the String conversion.
+     */
+    void number(double v) throws IOException {
+        long l = (long) v;
+        if (l == v && Math.abs(v) < 1e7 && (l != 0 || 1 / v > 0)) {
+            number(l);
+            write('.');
+            write('0');
+        } else {
+            ascii(Double.toString(v));
+        }
+    }
+
+    /**
+     * Writes the text of a number or other unquoted token. These are
+     * ASCII in practice; anything else is encoded to UTF-8.
+     */
+    private void ascii(String s) throws IOException {
+        int len = s.length();
+        if (pos + len > buf.length) {
+            drain();
+        }
+        if (len > buf.length) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            drained += bytes.length;
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                drain();
+                byte[] bytes = s.substring(i).getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                drained += bytes.length;
+                return;
+            }
+            buf[pos++] = (byte) c;
+        }
+    }
+
+    void bool(boolean b) throws IOException {
+        raw(b ? TRUE : FALSE);
+    }
+
+    void raw(byte[] bytes) throws IOException {
+        if (pos + bytes.length > buf.length) {
+            drain();
+        }
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    void write(char c) throws IOException {
+        if (pos == buf.length) {
+            drain();
+        }
+        buf[pos++] = (byte) c;
+    }
+
+    private void drain() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            drained += pos;
+            pos = 0;
+        }
+    }
+}
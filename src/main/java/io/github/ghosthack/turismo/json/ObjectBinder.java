@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds the next JSON value of a {@link JsonReader} to a Java type,
+ * straight from the tokens. Binders for classes are built once and cached
+ * in a {@link ClassValue}; a record binder resolves its canonical
+ * constructor to a {@link MethodHandle} and holds a binder per component,
+ * built from the component's generic type.
+ */
+abstract class ObjectBinder {
+
+    static final ClassValue<ObjectBinder> CACHE = new ClassValue<>() {
+        @Override
+        protected ObjectBinder computeValue(Class<?> type) {
+            return forClass(type);
+        }
+    };
+
+    private static final ObjectBinder ANY = new ObjectBinder() {
+        @Override
+        Object read(JsonReader r) throws IOException {
+            return r.readValue();
+        }
+    };
+
+    /** Reads the next value, or returns {@code null} for a JSON null. */
+    abstract Object read(JsonReader r) throws IOException;
+
+    static ObjectBinder of(Type type) {
+        if (type instanceof Class<?> c) {
+            return CACHE.get(c);
+        }
+        if (type instanceof ParameterizedType p) {
+            Class<?> raw = (Class<?>) p.getRawType();
+            Type[] args = p.getActualTypeArguments();
+            if (Map.class.isAssignableFrom(raw)) {
+                checkMap(raw, args[0]);
+                return new MapBinder(of(args[1]));
+            }
+            if (Collection.class.isAssignableFrom(raw)
+                    || raw == Iterable.class) {
+                checkList(raw);
+                return new ListBinder(of(args[0]));
+            }
+            return CACHE.get(raw);
+        }
+        if (type instanceof GenericArrayType a) {
+            Type component = a.getGenericComponentType();
+            Class<?> raw = component instanceof ParameterizedType p
+                    ? (Class<?>) p.getRawType() : Object.class;
+            return new ArrayBinder(raw, of(component));
+        }
+        if (type instanceof WildcardType w) {
+            return of(w.getUpperBounds()[0]);
+        }
+        return ANY; // type variables
+    }
+
+    private static ObjectBinder forClass(Class<?> type) {
+        if (type == Object.class) {
+            return ANY;
+        }
+        ObjectBinder scalar = scalar(type);
+        if (scalar != null) {
+            return scalar;
+        }
+        if (type.isEnum()) {
+            return new EnumBinder(type);
+        }
+        if (type.isRecord()) {
+            return new RecordBinder(type);
+        }
+        if (type.isArray()) {
+            return new ArrayBinder(type.getComponentType(),
+                    CACHE.get(type.getComponentType()));
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            checkMap(type, String.class);
+            return new MapBinder(ANY);
+        }
+        if (Collection.class.isAssignableFrom(type)
+                || type == Iterable.class) {
+            checkList(type);
+            return new ListBinder(ANY);
+        }
+        throw new IllegalArgumentException(
+                "Unsupported type: " + type.getName());
+    }
+
+    private static void checkMap(Class<?> raw, Type key) {
+        if (!raw.isAssignableFrom(LinkedHashMap.class)
+                || (key != String.class && key != Object.class
+                        && !(key instanceof WildcardType))) {
+            throw new IllegalArgumentException("Unsupported map type: "
+                    + raw.getName() + " with keys " + key.getTypeName());
+        }
+    }
+
+    private static void checkList(Class<?> raw) {
+        if (!raw.isAssignableFrom(ArrayList.class)) {
+            throw new IllegalArgumentException(
+                    "Unsupported collection type: " + raw.getName());
+        }
+    }
+
+    private static ObjectBinder scalar(Class<?> type) {
+        boolean primitive = type.isPrimitive();
+        if (type == String.class) {
+            return new Scalar(false) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return r.nextString();
+                }
+            };
+        }
+        if (type == int.class || type == Integer.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return r.nextInt();
+                }
+            };
+        }
+        if (type == long.class || type == Long.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return r.nextLong();
+                }
+            };
+        }
+        if (type == double.class || type == Double.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return r.nextDouble();
+                }
+            };
+        }
+        if (type == float.class || type == Float.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return (float) r.nextDouble();
+                }
+            };
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    return r.nextBoolean();
+                }
+            };
+        }
+        if (type == short.class || type == Short.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    int v = r.nextInt();
+                    if ((short) v != v) {
+                        throw r.syntax("Short out of range: " + v);
+                    }
+                    return (short) v;
+                }
+            };
+        }
+        if (type == byte.class || type == Byte.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    int v = r.nextInt();
+                    if ((byte) v != v) {
+                        throw r.syntax("Byte out of range: " + v);
+                    }
+                    return (byte) v;
+                }
+            };
+        }
+        if (type == char.class || type == Character.class) {
+            return new Scalar(primitive) {
+                @Override
+                Object value(JsonReader r) throws IOException {
+                    String s = r.nextString();
+                    if (s.length() != 1) {
+                        throw r.syntax("Expected a single character");
+                    }
+                    return s.charAt(0);
+                }
+            };
+        }
+        return null;
+    }
+
+    /** Returns the value a missing property of the given type takes. */
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        return Array.get(Array.newInstance(type, 1), 0);
+    }
+
+    /** A string, number, boolean or character; null unless primitive. */
+    private abstract static class Scalar extends ObjectBinder {
+        private final boolean primitive;
+
+        Scalar(boolean primitive) {
+            this.primitive = primitive;
+        }
+
+        abstract Object value(JsonReader r) throws IOException;
+
+        @Override
+        final Object read(JsonReader r) throws IOException {
+            if (r.peek() == JsonReader.Token.NULL) {
+                if (primitive) {
+                    throw r.syntax("Unexpected null for a primitive");
+                }
+                r.nextNull();
+                return null;
+            }
+            return value(r);
+        }
+    }
+
+    private static final class EnumBinder extends ObjectBinder {
+        private final Map<String, Object> constants = new HashMap<>();
+
+        EnumBinder(Class<?> type) {
+            for (Object c : type.getEnumConstants()) {
+                constants.put(((Enum<?>) c).name(), c);
+            }
+        }
+
+        @Override
+        Object read(JsonReader r) throws IOException {
+            if (r.peek() == JsonReader.Token.NULL) {
+                r.nextNull();
+                return null;
+            }
+            String name = r.nextString();
+            Object value = constants.get(name);
+            if (value == null) {
+                throw r.syntax("Unknown constant: " + name);
+            }
+            return value;
+        }
+    }
+
+    private static final class MapBinder extends ObjectBinder {
+        private final ObjectBinder values;
+
+        MapBinder(ObjectBinder values) {
+            this.values = values;
+        }
+
+        @Override
+        Object read(JsonReader r) throws IOException {
+            if (r.peek() == JsonReader.Token.NULL) {
+                r.nextNull();
+                return null;
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            r.beginObject();
+            while (r.hasNext()) {
+                String name = r.nextName();
+                map.put(name, values.read(r));
+            }
+            r.endObject();
+            return map;
+        }
+    }
+
+    private static final class ListBinder extends ObjectBinder {
+        private final ObjectBinder elements;
+
+        ListBinder(ObjectBinder elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        Object read(JsonReader r) throws IOException {
+            if (r.peek() == JsonReader.Token.NULL) {
+                r.nextNull();
+                return null;
+            }
+            List<Object> list = new ArrayList<>();
+            r.beginArray();
+            while (r.hasNext()) {
+                list.add(elements.read(r));
+            }
+            r.endArray();
+            return list;
+        }
+    }
+
+    private static final class ArrayBinder extends ObjectBinder {
+        private final Class<?> componentType;
+        private final ListBinder list;
+
+        ArrayBinder(Class<?> componentType, ObjectBinder elements) {
+            this.componentType = componentType;
+            this.list = new ListBinder(elements);
+        }
+
+        @Override
+        Object read(JsonReader r) throws IOException {
+            List<?> values = (List<?>) list.read(r);
+            if (values == null) {
+                return null;
+            }
+            Object array = Array.newInstance(componentType, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Builds a record through its canonical constructor. Arguments start
+     * from the component defaults, so missing properties are allowed;
+     * unknown properties are skipped.
+     */
+    private static final class RecordBinder extends ObjectBinder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final Type[] types;
+        private final Object[] defaults;
+        private final MethodHandle constructor;
+        /** Resolved on first use, so records may refer to themselves. */
+        private volatile ObjectBinder[] components;
+
+        RecordBinder(Class<?> type) {
+            RecordComponent[] rc = type.getRecordComponents();
+            Class<?>[] raw = new Class<?>[rc.length];
+            types = new Type[rc.length];
+            defaults = new Object[rc.length];
+            for (int i = 0; i < rc.length; i++) {
+                raw[i] = rc[i].getType();
+                types[i] = rc[i].getGenericType();
+                index.put(rc[i].getName(), i);
+                defaults[i] = defaultValue(raw[i]);
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(
+                        type, MethodHandles.lookup());
+                constructor = lookup
+                        .findConstructor(type,
+                                MethodType.methodType(void.class, raw))
+                        .asSpreader(Object[].class, rc.length)
+                        .asType(MethodType.methodType(
+                                Object.class, Object[].class));
+            } catch (IllegalAccessException | NoSuchMethodException e) {
+                throw new IllegalArgumentException(
+                        "Cannot construct record " + type.getName(), e);
+            }
+        }
+
+        private ObjectBinder[] components() {
+            ObjectBinder[] c = components;
+            if (c == null) {
+                c = new ObjectBinder[types.length];
+                for (int i = 0; i < c.length; i++) {
+                    c[i] = of(types[i]);
+                }
+                components = c;
+            }
+            return c;
+        }
+
+        @Override
+        Object read(JsonReader r) throws IOException {
+            if (r.peek() == JsonReader.Token.NULL) {
+                r.nextNull();
+                return null;
+            }
+            ObjectBinder[] binders = components();
+            Object[] args = defaults.clone();
+            r.beginObject();
+            while (r.hasNext()) {
+                Integer i = index.get(r.nextName());
+                if (i == null) {
+                    r.skipValue();
+                } else {
+                    args[i] = binders[i].read(r);
+                }
+            }
+            r.endObject();
+            try {
+                return (Object) constructor.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
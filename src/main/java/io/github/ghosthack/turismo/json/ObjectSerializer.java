@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.json;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serializer for a record or bean class, built once per class and cached
+ * in a {@link ClassValue}. Each property has its {@code "name":} prefix
+ * pre-encoded and a {@link MethodHandle} getter adapted to the property's
+ * kind, so writing an object involves no reflection and no boxing of
+ * primitive values.
+ *
+ * <p>Records are written with their components in declaration order.
+ * Classes annotated {@link JsonBean @JsonBean} are written as beans, with
+ * one property per public {@code getX()}/{@code isX()} getter, in
+ * alphabetical order. Enums are written as their name.
+ */
+abstract class ObjectSerializer {
+
+    static final ClassValue<ObjectSerializer> CACHE = new ClassValue<>() {
+        @Override
+        protected ObjectSerializer computeValue(Class<?> type) {
+            return of(type);
+        }
+    };
+
+    /** Writes {@code obj}, an instance of this serializer's class. */
+    abstract void write(JsonWriter writer, Object obj) throws IOException;
+
+    private static ObjectSerializer of(Class<?> type) {
+        if (type.isEnum() || (type.getSuperclass() != null
+                && type.getSuperclass().isEnum())) {
+            return new ObjectSerializer() {
+                @Override
+                void write(JsonWriter writer, Object obj) throws IOException {
+                    writer.value(((Enum<?>) obj).name());
+                }
+            };
+        }
+        try {
+            if (type.isRecord()) {
+                return record(type);
+            }
+            if (type.isAnnotationPresent(JsonBean.class)) {
+                ObjectSerializer bean = bean(type);
+                if (bean != null) {
+                    return bean;
+                }
+            }
+        } catch (IllegalAccessException e) {
+            return unsupported(type, e);
+        }
+        return unsupported(type, null);
+    }
+
+    private static ObjectSerializer unsupported(Class<?> type,
+            Exception cause) {
+        return new ObjectSerializer() {
+            @Override
+            void write(JsonWriter writer, Object obj) {
+                throw new IllegalArgumentException(
+                        "Unsupported type: " + type.getName(), cause);
+            }
+        };
+    }
+
+    private static ObjectSerializer record(Class<?> type)
+            throws IllegalAccessException {
+        MethodHandles.Lookup lookup = lookup(type);
+        List<Property> properties = new ArrayList<>();
+        for (RecordComponent c : type.getRecordComponents()) {
+            properties.add(Property.of(c.getName(), c.getType(),
+                    unreflect(lookup, c.getAccessor())));
+        }
+        return new Properties(properties);
+    }
+
+    private static ObjectSerializer bean(Class<?> type)
+            throws IllegalAccessException {
+        Map<String, Method> getters = new TreeMap<>();
+        for (Method m : type.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers())
+                    || m.getParameterCount() != 0
+                    || m.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String name = m.getName();
+            String property = null;
+            if (name.startsWith("get") && name.length() > 3
+                    && m.getReturnType() != void.class) {
+                property = name.substring(3);
+            } else if (name.startsWith("is") && name.length() > 2
+                    && m.getReturnType() == boolean.class) {
+                property = name.substring(2);
+            }
+            if (property != null) {
+                getters.putIfAbsent(decapitalize(property), m);
+            }
+        }
+        if (getters.isEmpty()) {
+            return null;
+        }
+        MethodHandles.Lookup lookup = lookup(type);
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Method> e : getters.entrySet()) {
+            Method m = e.getValue();
+            properties.add(Property.of(e.getKey(), m.getReturnType(),
+                    unreflect(lookup, m)));
+        }
+        return new Properties(properties);
+    }
+
+    /** As {@code java.beans.Introspector.decapitalize}. */
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1))
+                && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflect(MethodHandles.Lookup lookup,
+            Method method) throws IllegalAccessException {
+        if (lookup != null) {
+            try {
+                return lookup.unreflect(method);
+            } catch (IllegalAccessException e) {
+                // fall back to a public lookup below
+            }
+        }
+        return MethodHandles.publicLookup().unreflect(method);
+    }
+
+    /** Serializer that writes a fixed list of properties as an object. */
+    private static final class Properties extends ObjectSerializer {
+        private final Property[] properties;
+
+        Properties(List<Property> properties) {
+            this.properties = properties.toArray(new Property[0]);
+        }
+
+        @Override
+        void write(JsonWriter writer, Object obj) throws IOException {
+            writer.enter();
+            writer.write('{');
+            for (int i = 0; i < properties.length; i++) {
+                Property p = properties[i];
+                writer.raw(i == 0 ? p.first : p.next);
+                try {
+                    p.write(writer, obj);
+                } catch (IOException | RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            writer.write('}');
+            writer.exit();
+        }
+    }
+
+    /**
+     * A property: its pre-encoded name and a getter adapted to one of a
+     * few kinds, so primitives are read without boxing.
+     */
+    private abstract static class Property {
+        final byte[] first;
+        final byte[] next;
+        final MethodHandle getter;
+
+        Property(String name, MethodHandle getter, Class<?> type) {
+            byte[] key = (JsonWriter.toJson(name) + ":")
+                    .getBytes(StandardCharsets.UTF_8);
+            this.first = key;
+            this.next = new byte[key.length + 1];
+            this.next[0] = ',';
+            System.arraycopy(key, 0, next, 1, key.length);
+            this.getter = getter.asType(
+                    MethodType.methodType(type, Object.class));
+        }
+
+        abstract void write(JsonWriter writer, Object obj) throws Throwable;
+
+        static Property of(String name, Class<?> type, MethodHandle getter) {
+            if (type == int.class || type == long.class
+                    || type == short.class || type == byte.class) {
+                return new Property(name, getter, long.class) {
+                    @Override
+                    void write(JsonWriter writer, Object obj) throws Throwable {
+                        writer.number((long) this.getter.invokeExact(obj));
+                    }
+                };
+            }
+            if (type == double.class) {
+                return new Property(name, getter, double.class) {
+                    @Override
+                    void write(JsonWriter writer, Object obj) throws Throwable {
+                        writer.number((double) this.getter.invokeExact(obj));
+                    }
+                };
+            }
+            if (type == boolean.class) {
+                return new Property(name, getter, boolean.class) {
+                    @Override
+                    void write(JsonWriter writer, Object obj) throws Throwable {
+                        writer.bool((boolean) this.getter.invokeExact(obj));
+                    }
+                };
+            }
+            if (type == char.class) {
+                return new Property(name, getter, char.class) {
+                    @Override
+                    void write(JsonWriter writer, Object obj) throws Throwable {
+                        writer.value(String.valueOf(
+                                (char) this.getter.invokeExact(obj)));
+                    }
+                };
+            }
+            // references, and float, which must keep Float.toString
+            return new Property(name, getter, Object.class) {
+                @Override
+                void write(JsonWriter writer, Object obj) throws Throwable {
+                    writer.value((Object) this.getter.invokeExact(obj));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.memory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.github.ghosthack.turismo.Context;
+
+/**
+ * {@link Context} held entirely in memory, for testing routes and
+ * measuring the framework without sockets or mocks: pass it to
+ * {@link io.github.ghosthack.turismo.Turismo#handle(Context)}.
+ *
+ * <p>A context is meant to be reused: {@link #request(String, String)}
+ * clears the previous request and response, and the header tables and
+ * body buffers keep their capacity, so once they have grown to fit,
+ * handling a request through the same context allocates nothing on the
+ * context's side. Not thread-safe; use one context per thread.
+ *
+ * <pre>{@code
+ * MemoryContext ctx = new MemoryContext();
+ * Turismo.handle(ctx.request("GET", "/users/42").requestHeader("Accept", "application/json"));
+ * assertEquals(200, ctx.status());
+ * assertEquals("{\"id\":42}", ctx.text());
+ * }</pre>
+ *
+ * @see MemoryDriver
+ */
+public class MemoryContext implements Context {
+
+    private String method;
+    private String path;
+    private final Pairs query = new Pairs();
+    private final Pairs requestHeaders = new Pairs();
+    private final Body body = new Body();
+
+    private int status;
+    private boolean streamed;
+    private final Pairs responseHeaders = new Pairs();
+    private final Output output = new Output();
+
+    /**
+     * Creates a context for a {@code GET /} request.
+     */
+    public MemoryContext() {
+        request("GET", "/");
+    }
+
+    /**
+     * Starts a new request, clearing the query parameters, headers and
+     * body of the previous one and the response.
+     *
+     * @param method the request method
+     * @param path   the request path, without a query string
+     * @return this context
+     */
+    public MemoryContext request(String method, String path) {
+        this.method = method;
+        this.path = path;
+        query.clear();
+        requestHeaders.clear();
+        body.set(null, 0, 0);
+        status = 200;
+        streamed = false;
+        responseHeaders.clear();
+        output.size = 0;
+        return this;
+    }
+
+    /**
+     * Adds a query parameter to the request.
+     *
+     * @param name  the parameter name
+     * @param value the decoded parameter value
+     * @return this context
+     */
+    public MemoryContext query(String name, String value) {
+        query.add(name, value);
+        return this;
+    }
+
+    /**
+     * Adds a header to the request. Header names are case-insensitive.
+     *
+     * @param name  the header name
+     * @param value the header value
+     * @return this context
+     */
+    public MemoryContext requestHeader(String name, String value) {
+        requestHeaders.add(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the request body. The array is read in place, not copied.
+     *
+     * @param bytes the body
+     * @return this context
+     */
+    public MemoryContext body(byte[] bytes) {
+        body.set(bytes, 0, bytes.length);
+        return this;
+    }
+
+    /**
+     * Sets the request body to the UTF-8 encoding of the text.
+     *
+     * @param text the body
+     * @return this context
+     */
+    public MemoryContext body(String text) {
+        return body(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ---------------------------------------------------------------
+    // Context
+    // ---------------------------------------------------------------
+
+    @Override
+    public String method() {
+        return method;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public String query(String name) {
+        return query.get(name, false);
+    }
+
+    @Override
+    public String header(String name) {
+        return requestHeaders.get(name, true);
+    }
+
+    @Override
+    public InputStream body() {
+        return body;
+    }
+
+    @Override
+    public void status(int code) {
+        if (!streamed) {
+            status = code;
+        }
+    }
+
+    @Override
+    public void header(String name, String value) {
+        if (!streamed) {
+            responseHeaders.set(name, value);
+        }
+    }
+
+    @Override
+    public void print(String text) {
+        output.writeUtf8(text);
+    }
+
+    @Override
+    public OutputStream output() {
+        return output;
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+        output.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Marks the response as streamed: as with a server, the status and
+     * headers can no longer change.
+     */
+    @Override
+    public void stream() {
+        streamed = true;
+    }
+
+    // ---------------------------------------------------------------
+    // Response
+    // ---------------------------------------------------------------
+
+    /**
+     * Returns the response status code, 200 unless the route set one.
+     *
+     * @return the status code
+     */
+    public int status() {
+        return status;
+    }
+
+    /**
+     * Returns a response header set by the route.
+     *
+     * @param name the header name, case-insensitive
+     * @return the value, or {@code null} if not set
+     */
+    public String responseHeader(String name) {
+        return responseHeaders.get(name, true);
+    }
+
+    /**
+     * Returns whether the route {@linkplain Context#stream() streamed}
+     * the response.
+     *
+     * @return {@code true} if the response was streamed
+     */
+    public boolean streamed() {
+        return streamed;
+    }
+
+    /**
+     * Returns the number of response body bytes written.
+     *
+     * @return the body length
+     */
+    public int length() {
+        return output.size;
+    }
+
+    /**
+     * Returns a copy of the response body.
+     *
+     * @return the body bytes
+     */
+    public byte[] bytes() {
+        return Arrays.copyOf(output.buf, output.size);
+    }
+
+    /**
+     * Returns the response body decoded as UTF-8.
+     *
+     * @return the body text
+     */
+    public String text() {
+        return new String(output.buf, 0, output.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Name/value table searched linearly, which for the handful of
+     * entries a request carries is faster than hashing and does not
+     * allocate.
+     */
+    private static final class Pairs {
+        String[] names = new String[8];
+        String[] values = new String[8];
+        int count;
+
+        void clear() {
+            Arrays.fill(names, 0, count, null);
+            Arrays.fill(values, 0, count, null);
+            count = 0;
+        }
+
+        String get(String name, boolean ignoreCase) {
+            int i = indexOf(name, ignoreCase);
+            return i < 0 ? null : values[i];
+        }
+
+        void add(String name, String value) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            names[count] = name;
+            values[count++] = value;
+        }
+
+        void set(String name, String value) {
+            int i = indexOf(name, true);
+            if (i < 0) {
+                add(name, value);
+            } else {
+                values[i] = value;
+            }
+        }
+
+        private int indexOf(String name, boolean ignoreCase) {
+            for (int i = 0; i < count; i++) {
+                if (ignoreCase ? names[i].equalsIgnoreCase(name) : names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Request body over a caller's array, rewound by each request. */
+    private static final class Body extends InputStream {
+        private static final byte[] EMPTY = new byte[0];
+
+        byte[] buf = EMPTY;
+        int pos;
+        int limit;
+
+        void set(byte[] bytes, int off, int len) {
+            buf = bytes == null ? EMPTY : bytes;
+            pos = off;
+            limit = off + len;
+        }
+
+        @Override
+        public int read() {
+            return pos < limit ? buf[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= limit) {
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - pos;
+        }
+    }
+
+    /** Response body buffer, kept at its largest size across requests. */
+    private static final class Output extends OutputStream {
+        byte[] buf = new byte[1024];
+        int size;
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, size, len);
+            size += len;
+        }
+
+        /** Encodes as UTF-8 in place, replacing lone surrogates with '?'. */
+        void writeUtf8(String s) {
+            int len = s.length();
+            ensure(len * 3);
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[size++] = (byte) (0xC0 | (c >> 6));
+                    buf[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (!Character.isSurrogate(c)) {
+                    buf[size++] = (byte) (0xE0 | (c >> 12));
+                    buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[size++] = (byte) (0xF0 | (cp >> 18));
+                    buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[size++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    buf[size++] = '?';
+                }
+            }
+        }
+    }
+}
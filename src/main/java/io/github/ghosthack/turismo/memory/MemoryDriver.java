@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.memory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+import io.github.ghosthack.turismo.Context;
+import io.github.ghosthack.turismo.Turismo;
+
+/**
+ * Runs requests through a handler in-process, on a number of threads
+ * with a {@link MemoryContext} each, to measure what the framework costs
+ * per request and how it scales across cores, with no network or server
+ * threads involved.
+ *
+ * <pre>{@code
+ * Turismo.get("/users/:id", () -> Turismo.print(Turismo.param("id")));
+ * MemoryDriver.Result result = new MemoryDriver().run(4, 1_000_000,
+ *         (ctx, i) -> ctx.request("GET", "/users/" + (i & 1023)));
+ * System.out.println(result);
+ * }</pre>
+ *
+ * <p>The request setup runs on the measured threads, so anything it
+ * allocates or computes counts toward the result; prepare paths up
+ * front to keep it out.
+ */
+public class MemoryDriver {
+
+    private final Consumer<Context> handler;
+
+    /**
+     * Creates a driver dispatching with {@link Turismo#handle(Context)}.
+     */
+    public MemoryDriver() {
+        this(Turismo::handle);
+    }
+
+    /**
+     * Creates a driver dispatching with the given handler.
+     *
+     * @param handler called with the context of each request
+     */
+    public MemoryDriver(Consumer<Context> handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        this.handler = handler;
+    }
+
+    /**
+     * Outcome of a run.
+     *
+     * @param threads  the number of threads
+     * @param requests the requests handled, across all threads
+     * @param errors   the requests whose handler threw, or that got a
+     *                 5xx status
+     * @param nanos    the time from starting the threads until the last
+     *                 one finished
+     * @param failure  the first exception thrown by the handler, or
+     *                 {@code null}
+     */
+    public record Result(int threads, long requests, long errors, long nanos,
+            Throwable failure) {
+
+        /**
+         * Returns the requests handled per second.
+         *
+         * @return throughput across all threads
+         */
+        public double perSecond() {
+            return requests * 1e9 / nanos;
+        }
+
+        /**
+         * Returns the wall-clock time per request, for each thread.
+         *
+         * @return nanoseconds per request per thread
+         */
+        public double nanosPerRequest() {
+            return (double) nanos * threads / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d threads, %d requests, %d errors: %.0f req/s, %.1f ns/req",
+                    threads, requests, errors, perSecond(), nanosPerRequest());
+        }
+    }
+
+    /**
+     * Handles {@code requests} requests on each of {@code threads}
+     * threads, started together. Before each request, {@code setup} is
+     * called with the thread's context and the request's index on that
+     * thread, and must call {@link MemoryContext#request(String, String)}.
+     *
+     * @param threads  the number of threads
+     * @param requests the requests to handle on each thread
+     * @param setup    prepares each request
+     * @return the outcome
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              threads
+     */
+    public Result run(int threads, long requests, ObjLongConsumer<MemoryContext> setup)
+            throws InterruptedException {
+        if (threads <= 0 || requests <= 0) {
+            throw new IllegalArgumentException("threads and requests must be positive");
+        }
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong errors = new AtomicLong();
+        AtomicLong finished = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                MemoryContext ctx = new MemoryContext();
+                long failed = 0;
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < requests; i++) {
+                    if ((i & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    setup.accept(ctx, i);
+                    try {
+                        handler.accept(ctx);
+                        if (ctx.status() >= 500) {
+                            failed++;
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                        failed++;
+                    }
+                }
+                finished.accumulateAndGet(System.nanoTime(), Math::max);
+                errors.addAndGet(failed);
+            }, "turismo-driver-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            throw e;
+        }
+        return new Result(threads, threads * requests, errors.get(),
+                Math.max(1, finished.get() - begin), failure.get());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed log-linear buckets: each decade from
+ * 10 µs to 10 s is split linearly at 1, 2.5, 5 and 7.5, so buckets are
+ * the same for every route and can be aggregated across instances.
+ * Counts are {@link LongAdder}s, so concurrent requests recording into
+ * the same histogram do not contend on a single memory location.
+ */
+public final class Histogram {
+
+    private static final long[] BOUNDS;
+    private static final String[] LABELS;
+
+    static {
+        long[] steps = {100, 250, 500, 750};
+        int decades = 6;
+        BOUNDS = new long[decades * steps.length + 1];
+        long scale = 100;
+        int i = 0;
+        for (int d = 0; d < decades; d++, scale *= 10) {
+            for (long step : steps) {
+                BOUNDS[i++] = step * scale;
+            }
+        }
+        BOUNDS[i] = 100 * scale;
+        LABELS = new String[BOUNDS.length];
+        for (int b = 0; b < BOUNDS.length; b++) {
+            LABELS[b] = BigDecimal.valueOf(BOUNDS[b], 9).stripTrailingZeros()
+                    .toPlainString();
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    /** Creates an empty histogram. */
+    public Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the number of finite buckets.
+     *
+     * @return the bucket count, not including the overflow bucket
+     */
+    public static int buckets() {
+        return BOUNDS.length;
+    }
+
+    /**
+     * Returns the inclusive upper bound of a bucket.
+     *
+     * @param bucket the bucket index, below {@link #buckets()}
+     * @return the bound in nanoseconds
+     */
+    public static long bound(int bucket) {
+        return BOUNDS[bucket];
+    }
+
+    /** The bound in seconds, formatted for the {@code le} label. */
+    static String label(int bucket) {
+        return LABELS[bucket];
+    }
+
+    static int bucket(long nanos) {
+        int low = 0;
+        int high = BOUNDS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] < nanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        counts[bucket(nanos)].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Returns the number of latencies recorded in a bucket.
+     *
+     * @param bucket the bucket index; {@link #buckets()} for the values
+     *               above the last bound
+     * @return the count in that bucket alone
+     */
+    public long count(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the total count
+     */
+    public long count() {
+        long n = 0;
+        for (LongAdder count : counts) {
+            n += count.sum();
+        }
+        return n;
+    }
+
+    /**
+     * Returns the sum of the latencies recorded.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long sum() {
+        return sum.sum();
+    }
+}
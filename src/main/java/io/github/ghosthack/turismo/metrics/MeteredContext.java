@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import io.github.ghosthack.turismo.Context;
+
+/**
+ * {@link Context} that passes everything through to another one while
+ * noting the status set and the body bytes written, for {@link Metrics}.
+ * Status changes after {@link #stream()} are not noted, since the
+ * status has been sent by then.
+ */
+public final class MeteredContext implements Context {
+
+    private final Context ctx;
+    private int status = 200;
+    private boolean streamed;
+    private long bytes;
+    private OutputStream output;
+
+    /**
+     * Creates a context metering the given one.
+     *
+     * @param ctx the context to pass through to
+     */
+    public MeteredContext(Context ctx) {
+        this.ctx = ctx;
+    }
+
+    /**
+     * Returns the status the route set, 200 by default.
+     *
+     * @return the status code
+     */
+    public int status() {
+        return status;
+    }
+
+    /**
+     * Returns the response body bytes written so far.
+     *
+     * @return the byte count
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String method() {
+        return ctx.method();
+    }
+
+    @Override
+    public String path() {
+        return ctx.path();
+    }
+
+    @Override
+    public String query(String name) {
+        return ctx.query(name);
+    }
+
+    @Override
+    public String header(String name) {
+        return ctx.header(name);
+    }
+
+    @Override
+    public InputStream body() {
+        return ctx.body();
+    }
+
+    @Override
+    public void status(int code) {
+        if (!streamed) {
+            status = code;
+        }
+        ctx.status(code);
+    }
+
+    @Override
+    public void header(String name, String value) {
+        ctx.header(name, value);
+    }
+
+    @Override
+    public void print(String text) {
+        bytes += utf8Length(text);
+        ctx.print(text);
+    }
+
+    @Override
+    public OutputStream output() {
+        if (output == null) {
+            output = new FilterOutputStream(ctx.output()) {
+                @Override
+                public void write(int b) throws IOException {
+                    bytes++;
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    bytes += len;
+                    out.write(b, off, len);
+                }
+            };
+        }
+        return output;
+    }
+
+    @Override
+    public void send(byte[] body) {
+        bytes += body.length;
+        ctx.send(body);
+    }
+
+    @Override
+    public void stream() {
+        streamed = true;
+        ctx.stream();
+    }
+
+    private static long utf8Length(String s) {
+        int len = s.length();
+        long n = len;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    n++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    n += 2;
+                    i++;
+                } else {
+                    n += Character.isSurrogate(c) ? 0 : 2;
+                }
+            }
+        }
+        return n;
+    }
+}
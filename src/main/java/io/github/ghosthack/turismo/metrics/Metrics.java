@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-route request metrics, keyed by HTTP method and the route as
+ * registered ({@code /users/:id}, not {@code /users/42}), so the number
+ * of series stays bounded by the number of routes. Requests that match
+ * no route share one {@link #NOT_FOUND} series.
+ *
+ * <p>Recording is lock-free: looking up a route that has been seen
+ * before does not allocate, and counters are striped
+ * {@link java.util.concurrent.atomic.LongAdder}s.
+ * {@link #writeTo(Appendable)} exports everything in the Prometheus
+ * text format.
+ *
+ * @see io.github.ghosthack.turismo.Turismo#enableMetrics()
+ */
+public final class Metrics {
+
+    /** Route recorded for requests that matched no route, with method {@code *}. */
+    public static final String NOT_FOUND = "notFound";
+
+    /** Content type of {@link #writeTo(Appendable)}'s output. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, Map<String, RouteMetrics>> routes =
+            new ConcurrentHashMap<>();
+
+    /** Creates an empty registry. */
+    public Metrics() {
+    }
+
+    /**
+     * Returns the metrics of a route, creating them on first use.
+     *
+     * @param method the HTTP method
+     * @param route  the route as registered
+     * @return the route's metrics
+     */
+    public RouteMetrics route(String method, String route) {
+        Map<String, RouteMetrics> byRoute = routes.get(method);
+        if (byRoute == null) {
+            byRoute = routes.computeIfAbsent(method, k -> new ConcurrentHashMap<>());
+        }
+        RouteMetrics metrics = byRoute.get(route);
+        if (metrics == null) {
+            metrics = byRoute.computeIfAbsent(route, k -> new RouteMetrics(method, route));
+        }
+        return metrics;
+    }
+
+    /**
+     * Records a handled request.
+     *
+     * @param method the HTTP method, or {@code *} if unmatched
+     * @param route  the route as registered, or {@code null} if unmatched
+     * @param status the response status
+     * @param nanos  the time spent handling it
+     * @param bytes  the response body bytes written
+     */
+    public void record(String method, String route, int status, long nanos, long bytes) {
+        RouteMetrics metrics = route == null
+                ? route("*", NOT_FOUND)
+                : route(method, route);
+        metrics.record(status, nanos, bytes);
+    }
+
+    /**
+     * Returns the metrics of every route seen, ordered by route and
+     * method.
+     *
+     * @return a snapshot of the routes
+     */
+    public List<RouteMetrics> routes() {
+        List<RouteMetrics> list = new ArrayList<>();
+        for (Map<String, RouteMetrics> byRoute : routes.values()) {
+            list.addAll(byRoute.values());
+        }
+        list.sort(Comparator.comparing(RouteMetrics::route)
+                .thenComparing(RouteMetrics::method));
+        return list;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format:
+     * {@code turismo_requests_total} by status class,
+     * {@code turismo_request_duration_seconds} as a histogram and
+     * {@code turismo_response_bytes_total}.
+     *
+     * @param out where to write
+     * @throws UncheckedIOException if writing fails
+     */
+    public void writeTo(Appendable out) {
+        List<RouteMetrics> snapshot = routes();
+        try {
+            out.append("# HELP turismo_requests_total Requests handled, by status class.\n")
+                    .append("# TYPE turismo_requests_total counter\n");
+            for (RouteMetrics m : snapshot) {
+                for (int type = 1; type <= 5; type++) {
+                    long n = m.requests(type);
+                    if (n > 0) {
+                        labels(out.append("turismo_requests_total"), m)
+                                .append(",status=\"").append((char) ('0' + type))
+                                .append("xx\"} ").append(Long.toString(n)).append('\n');
+                    }
+                }
+            }
+            out.append("# HELP turismo_request_duration_seconds Time spent in the route.\n")
+                    .append("# TYPE turismo_request_duration_seconds histogram\n");
+            for (RouteMetrics m : snapshot) {
+                Histogram h = m.latency();
+                long cumulative = 0;
+                for (int b = 0; b < Histogram.buckets(); b++) {
+                    cumulative += h.count(b);
+                    labels(out.append("turismo_request_duration_seconds_bucket"), m)
+                            .append(",le=\"").append(Histogram.label(b)).append("\"} ")
+                            .append(Long.toString(cumulative)).append('\n');
+                }
+                cumulative += h.count(Histogram.buckets());
+                labels(out.append("turismo_request_duration_seconds_bucket"), m)
+                        .append(",le=\"+Inf\"} ").append(Long.toString(cumulative))
+                        .append('\n');
+                labels(out.append("turismo_request_duration_seconds_sum"), m)
+                        .append("} ").append(Double.toString(h.sum() / 1e9)).append('\n');
+                labels(out.append("turismo_request_duration_seconds_count"), m)
+                        .append("} ").append(Long.toString(cumulative)).append('\n');
+            }
+            out.append("# HELP turismo_response_bytes_total Response body bytes written.\n")
+                    .append("# TYPE turismo_response_bytes_total counter\n");
+            for (RouteMetrics m : snapshot) {
+                labels(out.append("turismo_response_bytes_total"), m)
+                        .append("} ").append(Long.toString(m.bytes())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format.
+     *
+     * @return the exposition text
+     * @see #writeTo(Appendable)
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        writeTo(sb);
+        return sb.toString();
+    }
+
+    private static Appendable labels(Appendable out, RouteMetrics m) throws IOException {
+        out.append("{method=\"");
+        escape(out, m.method());
+        out.append("\",route=\"");
+        escape(out, m.route());
+        return out.append('"');
+    }
+
+    private static void escape(Appendable out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
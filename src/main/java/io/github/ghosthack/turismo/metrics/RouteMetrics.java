@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one route: requests by status class, latency and
+ * response bytes.
+ */
+public final class RouteMetrics {
+
+    private final String method;
+    private final String route;
+    private final LongAdder[] statuses = new LongAdder[5];
+    private final Histogram latency = new Histogram();
+    private final LongAdder bytes = new LongAdder();
+
+    RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+    }
+
+    void record(int status, long nanos, long written) {
+        int type = status / 100 - 1;
+        statuses[type < 0 ? 0 : Math.min(type, 4)].increment();
+        latency.record(nanos);
+        bytes.add(written);
+    }
+
+    /**
+     * Returns the HTTP method of the route.
+     *
+     * @return the method, or {@code *} for unmatched requests
+     */
+    public String method() {
+        return method;
+    }
+
+    /**
+     * Returns the route as registered, e.g. {@code /users/:id}.
+     *
+     * @return the route, or {@link Metrics#NOT_FOUND} for unmatched requests
+     */
+    public String route() {
+        return route;
+    }
+
+    /**
+     * Returns the number of requests with a status in the given class.
+     *
+     * @param statusClass 1 to 5, for 1xx to 5xx
+     * @return the request count
+     * @throws IllegalArgumentException if the class is not 1 to 5
+     */
+    public long requests(int statusClass) {
+        if (statusClass < 1 || statusClass > 5) {
+            throw new IllegalArgumentException("status class must be 1 to 5");
+        }
+        return statuses[statusClass - 1].sum();
+    }
+
+    /**
+     * Returns the number of requests handled.
+     *
+     * @return the request count
+     */
+    public long requests() {
+        long n = 0;
+        for (LongAdder status : statuses) {
+            n += status.sum();
+        }
+        return n;
+    }
+
+    /**
+     * Returns the histogram of the time spent in the route.
+     *
+     * @return the latency histogram
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * Returns the response body bytes written.
+     *
+     * @return the byte count
+     */
+    public long bytes() {
+        return bytes.sum();
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.ghosthack.turismo.multipart;
+
+import java.nio.file.Path;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import io.github.ghosthack.turismo.servlet.Env;
+
+/**
+ * Declares that a route accepts multipart form data. While the wrapped
+ * action runs, a multipart/form-data request is replaced in {@link Env} by
+ * a {@link MultipartRequest} that parses on first use, and its temporary
+ * files are deleted afterwards.
+ *
+ * <p>Used instead of {@link MultipartFilter}, only the declared routes
+ * ever parse an upload; elsewhere the request is left as it is.</p>
+ *
+ * <blockquote>Example:
+ * <pre>
+ * post("/upload", multipart(new Action() { ... }));
+ * </pre>
+ * </blockquote>
+ *
+ * @see io.github.ghosthack.turismo.routes.AbstractRoutes#multipart(Runnable)
+ */
+public final class MultipartAction implements Runnable {
+
+    private final Runnable action;
+    private final String charsetName;
+    private final int fileThreshold;
+    private final Path tempDirectory;
+
+    /**
+     * Creates a multipart route with the default charset, storing file
+     * contents as byte arrays.
+     *
+     * @param action the route action
+     */
+    public MultipartAction(Runnable action) {
+        this(action, MultipartFilter.getDefaultCharsetName(), -1, null);
+    }
+
+    /**
+     * Creates a multipart route.
+     *
+     * @param action the route action
+     * @param charsetName the charset to use if the request has no encoding
+     * @param fileThreshold the in-memory limit per file, in bytes; negative
+     *        to store file contents as {@code byte[]} attributes instead
+     * @param tempDirectory the directory for temporary files, or null for
+     *        the system default
+     * @see MultipartRequest#wrap(HttpServletRequest, String, int, Path)
+     */
+    public MultipartAction(Runnable action, String charsetName, int fileThreshold,
+            Path tempDirectory) {
+        if (action == null || charsetName == null)
+            throw new IllegalArgumentException();
+        this.action = action;
+        this.charsetName = charsetName;
+        this.fileThreshold = fileThreshold;
+        this.tempDirectory = tempDirectory;
+    }
+
+    @Override
+    public void run() {
+        final Env env = Env.get();
+        final HttpServletRequest req = Env.req();
+        if (req instanceof MultipartRequest || !MultipartRequest.isMultipart(req)) {
+            action.run();
+            return;
+        }
+        final MultipartRequest multipart = MultipartRequest.wrap(req, charsetName,
+                fileThreshold, tempDirectory);
+        env.setReq(multipart);
+        try {
+            action.run();
+        } finally {
+            env.setReq(req);
+            multipart.deleteFiles();
+        }
+    }
+
+}
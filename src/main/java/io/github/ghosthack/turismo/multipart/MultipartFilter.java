@@ -1,6 +1,8 @@
 package io.github.ghosthack.turismo.multipart;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
@@ -15,6 +17,12 @@ import jakarta.servlet.http.HttpServletRequest;
  * <p>If you have a custom Request object added to the filter chain, this filter
  * should be the first.</p>
  *
+ * <p>The body is parsed on the first {@code getParameter*} or
+ * {@code getAttribute} call, not by the filter, so requests that are rejected
+ * or never read the form cost nothing. To limit multipart handling to some
+ * routes, leave the filter out and declare them with {@link MultipartAction}
+ * instead.</p>
+ *
  * <p>The file parameter data is added as a byte array attribute with the same
  * parameter name.</p>
  *
@@ -44,6 +52,23 @@ import jakarta.servlet.http.HttpServletRequest;
  * </pre>
  * </blockquote>
  *
+ * <p>With the {@code file-threshold} init parameter, file parts are stored as
+ * {@link UploadedFile} attributes instead: files up to that many bytes are
+ * kept in memory and larger ones are streamed to temporary files (in
+ * {@code temp-dir}, or the system default), which the filter deletes once
+ * the chain returns.</p>
+ *
+ * <blockquote>Example:
+ * <pre>
+ * UploadedFile image = (UploadedFile) request.getAttribute("imageFile");
+ * image.moveTo(target);
+ * </pre>
+ * </blockquote>
+ *
+ * <p>Bodies sent without a Content-Length, with chunked transfer encoding,
+ * are parsed as they arrive; {@link MultipartParser#setMaxContentSize(int)}
+ * is enforced on the bytes read.</p>
+ *
  * <p>Configuration details:</p>
  * <pre>
  *  &lt;filter&gt;
@@ -67,9 +92,13 @@ public class MultipartFilter implements jakarta.servlet.Filter {
     }
 
     private static final String CHARSET_NAME_PARAMETER = "charset-name";
+    private static final String FILE_THRESHOLD_PARAMETER = "file-threshold";
+    private static final String TEMP_DIR_PARAMETER = "temp-dir";
     private static final String DEFAULT_CHARSET_NAME = "ISO-8859-1";
 
     private String charsetName = DEFAULT_CHARSET_NAME;
+    private int fileThreshold = -1;
+    private Path tempDirectory;
 
     /**
      * @see jakarta.servlet.Filter#doFilter(jakarta.servlet.ServletRequest,
@@ -79,17 +108,15 @@ public class MultipartFilter implements jakarta.servlet.Filter {
     public void doFilter(ServletRequest request, ServletResponse response,
             FilterChain chain) throws ServletException, IOException {
 
-        final String contentType = request.getContentType();
-        if (contentType != null
-                && contentType.toLowerCase(java.util.Locale.US).startsWith(MultipartRequest.MULTIPART_FORM_DATA)) {
-            final MultipartRequest multipartRequest;
+        if (MultipartRequest.isMultipart(request)) {
+            final MultipartRequest multipartRequest = MultipartRequest.wrap(
+                    (HttpServletRequest) request, charsetName,
+                    fileThreshold, tempDirectory);
             try {
-              multipartRequest = MultipartRequest.wrapAndParse(
-                      (HttpServletRequest) request, charsetName);
-            } catch (ParseException e) {
-                throw new ServletException(e);
+                chain.doFilter(multipartRequest, response);
+            } finally {
+                multipartRequest.deleteFiles();
             }
-            chain.doFilter(multipartRequest, response);
         } else {
             chain.doFilter(request, response);
         }
@@ -106,6 +133,20 @@ public class MultipartFilter implements jakarta.servlet.Filter {
         if (configCharset != null) {
             this.charsetName = configCharset;
         }
+        final String configThreshold = config
+                .getInitParameter(FILE_THRESHOLD_PARAMETER);
+        if (configThreshold != null) {
+            try {
+                this.fileThreshold = Integer.parseInt(configThreshold.trim());
+            } catch (NumberFormatException e) {
+                throw new ServletException("Invalid " + FILE_THRESHOLD_PARAMETER
+                        + ": " + configThreshold, e);
+            }
+        }
+        final String configTempDir = config.getInitParameter(TEMP_DIR_PARAMETER);
+        if (configTempDir != null) {
+            this.tempDirectory = Paths.get(configTempDir);
+        }
     }
 
     /**
@@ -117,6 +158,16 @@ public class MultipartFilter implements jakarta.servlet.Filter {
         return charsetName;
     }
 
+    /**
+     * Returns the configured in-memory limit per uploaded file, or a
+     * negative value if file contents are stored as byte arrays.
+     *
+     * @return the file threshold in bytes
+     */
+    public int getFileThreshold() {
+        return fileThreshold;
+    }
+
     /**
      * Returns the default charset name used when no filter configuration is available.
      *
@@ -3,15 +3,18 @@
  */
 package io.github.ghosthack.turismo.multipart;
 
-import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.BufferOverflowException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.logging.Logger;
 
 /**
@@ -30,7 +33,10 @@ public final class MultipartParser {
     private static volatile int maxContentSize = DEFAULT_MAX_CONTENT_SIZE;
 
     /**
-     * Sets the maximum allowed content size for multipart uploads.
+     * Sets the maximum allowed content size for multipart uploads. A
+     * declared size is checked when the parser is created; the bytes
+     * actually read are checked as parsing goes, so bodies of unknown
+     * length are limited too.
      *
      * @param maxSize the maximum size in bytes (must be positive)
      */
@@ -49,6 +55,30 @@ public final class MultipartParser {
         return maxContentSize;
     }
 
+    /**
+     * Stores file parts as {@link UploadedFile} handles instead of byte
+     * arrays. A file's content stays in memory up to {@code threshold}
+     * bytes; beyond that it is written to a temporary file as it arrives,
+     * so memory use per upload stays bounded. A threshold of 0 writes every
+     * file to disk. By default, and with a negative threshold, file
+     * contents are stored as {@code byte[]} attributes.
+     *
+     * @param threshold the in-memory limit per file, in bytes
+     */
+    public void setFileThreshold(final int threshold) {
+        this.fileThreshold = threshold;
+    }
+
+    /**
+     * Sets the directory for temporary files. Defaults to the system
+     * temporary directory.
+     *
+     * @param directory the directory, or null for the default
+     */
+    public void setTempDirectory(final Path directory) {
+        this.tempDirectory = directory;
+    }
+
     /**
      * Constructs a new parser for multipart form data.
      * 
@@ -62,7 +92,9 @@ public final class MultipartParser {
      * @param charsetName
      *            the charset used to decode bytes as strings, can't be null.
      * @param size
-     *            the size used to create the byte buffer, usually request content-length.
+     *            the request content-length, checked against the maximum
+     *            content size; negative if unknown, as with chunked
+     *            transfer encoding.
      */
     public MultipartParser(final InputStream is, final String boundary,
             final Parametrizable parameters, final String charsetName,
@@ -70,18 +102,19 @@ public final class MultipartParser {
         if (is == null || boundary == null || parameters == null
                 || charsetName == null)
             throw new IllegalArgumentException();
-        if (size <= 0)
-            throw new IllegalArgumentException("Content size must be positive, was: " + size);
         if (size > maxContentSize)
             throw new IllegalArgumentException(
                     "Content size " + size + " exceeds maximum allowed size " + maxContentSize);
-        this.is = new BufferedInputStream(is, BUFFER_SIZE);
+        this.is = is;
         this.parameters = parameters;
         charsetDecoder = Charset.forName(charsetName).newDecoder();
         boundarySize = boundary.getBytes(US_ASCII).length;
         separator = (LINE_STRING + boundary).getBytes(US_ASCII);
-        buffer = new byte[separator.length + OFFSET];
-        bb = ByteBuffer.allocate(size);
+        separatorShift = shift(separator);
+        block = new byte[Math.max(BUFFER_SIZE, separator.length << 1)];
+        maxSize = maxContentSize;
+        bb = ByteBuffer.allocate(size < 0 ? INITIAL_BUFFER_SIZE
+                : Math.max(1, Math.min(size, INITIAL_BUFFER_SIZE)));
     }
 
     /**
@@ -100,23 +133,25 @@ public final class MultipartParser {
 
         do {
 
-            skip(CONTENT_DISPOSITION_2_SIZE);
-
-            final String name = decodeUntil(QUOTE);
+            final PartHeaders part = readHeaders();
+            final String name = part.getName();
 
-            if (isFile = skipUntilAny(QUOTE, LINE)) {
+            if (part.isFile()) {
                 final String[] file = new String[FILE_DESC];
-                file[NAME_POS] = decodeUntil(QUOTE);
-                skip(CONTENT_TYPE_SIZE);
-                file[CONTENT_TYPE_POS] = decodeUntil(LINE);
+                file[NAME_POS] = part.getFileName();
+                file[CONTENT_TYPE_POS] = part.getContentType();
                 parameters.addParameter(name, file);
+                if (fileThreshold >= 0) {
+                    parameters.setAttribute(name, readFile(part));
+                    readFully(eval);
+                    continue;
+                }
             }
 
-            skip(LINE_SIZE);
-            readUntil(separator);
+            readUntil(separator, separatorShift);
             readFully(eval);
 
-            if (isFile) {
+            if (part.isFile()) {
                 parameters.setAttribute(name, bytes());
             } else {
                 parameters.addParameter(name, decode());
@@ -128,6 +163,61 @@ public final class MultipartParser {
 
     }
 
+    /**
+     * Parses the multipart form data, handing each part to the listener
+     * as it arrives instead of storing it. The parameters container and
+     * the file threshold are not used.
+     *
+     * @param listener
+     *            receives each part's headers and content, can't be null.
+     * @throws ParseException
+     *             if end of stream is reached prematurely.
+     * @throws java.io.IOException
+     *             throwed by the underlying input stream or the listener.
+     */
+    public final void parse(final PartListener listener)
+            throws ParseException, IOException {
+        if (listener == null)
+            throw new IllegalArgumentException();
+
+        final long t0 = System.currentTimeMillis();
+
+        skip(boundarySize + END_SIZE);
+
+        do {
+            final PartStream content = new PartStream();
+            try {
+                listener.onPart(readHeaders(), content);
+            } catch (IOException e) {
+                if (content.failure != null)
+                    throw content.failure;
+                throw e;
+            }
+            content.skipRest();
+            readFully(eval);
+        } while (!Arrays.equals(eval, END));
+
+        LOG.fine(PARSE_TIME + (System.currentTimeMillis() - t0));
+
+    }
+
+    /**
+     * Reads the headers of a part, up to and including the blank line.
+     */
+    private PartHeaders readHeaders() throws ParseException, IOException {
+        skip(CONTENT_DISPOSITION_2_SIZE);
+        final String name = decodeUntil(QUOTE, QUOTE_SHIFT);
+        String fileName = null;
+        String contentType = null;
+        if (skipUntilAny(QUOTE, LINE)) {
+            fileName = decodeUntil(QUOTE, QUOTE_SHIFT);
+            skip(CONTENT_TYPE_SIZE);
+            contentType = decodeUntil(LINE, LINE_SHIFT);
+        }
+        skip(LINE_SIZE);
+        return new PartHeaders(name, fileName, contentType);
+    }
+
     private String decode() throws CharacterCodingException {
         charsetDecoder.reset();
         return charsetDecoder.decode(bb).toString();
@@ -139,74 +229,198 @@ public final class MultipartParser {
         return bytes;
     }
 
-    private void read() throws ParseException, IOException {
-        if ((bi = is.read()) == END_OF_STREAM)
-            throw new ParseException("Unexpected end of stream while reading next byte");
-        b = (byte) bi;
+    /**
+     * Moves the unread bytes to the start of the block and reads more
+     * after them, counting the bytes read against the maximum content
+     * size.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws ParseException, IOException {
+        if (start > 0) {
+            System.arraycopy(block, start, block, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        final int read = is.read(block, end, block.length - end);
+        if (read == END_OF_STREAM)
+            return false;
+        end += read;
+        if ((total += read) > maxSize)
+            throw new ParseException(
+                    "Content size exceeds maximum allowed size " + maxSize);
+        return true;
     }
 
     private void readFully(final byte[] bytes) throws ParseException, IOException {
         int offset = 0;
-        int remaining = bytes.length;
-        while (remaining > 0) {
-            int read = is.read(bytes, offset, remaining);
-            if (read == END_OF_STREAM)
+        while (offset < bytes.length) {
+            if (start == end && !fill())
                 throw new ParseException(
                         "Unexpected end of stream: expected " + bytes.length
                         + " bytes but only read " + offset);
-            offset += read;
-            remaining -= read;
+            final int n = Math.min(bytes.length - offset, end - start);
+            System.arraycopy(block, start, bytes, offset, n);
+            start += n;
+            offset += n;
         }
     }
 
-    private void skip(final long n) throws ParseException, IOException {
-        long remaining = n;
-        while (remaining > 0) {
-            long skipped = is.skip(remaining);
-            if (skipped == 0) {
-                // skip(0) may mean EOF or no progress; try a single read to distinguish
-                if (is.read() == END_OF_STREAM)
-                    throw new ParseException(
-                            "Unexpected end of stream: needed to skip " + n
-                            + " bytes but could only skip " + (n - remaining));
-                remaining--;
-            } else {
-                remaining -= skipped;
+    private void skip(final int n) throws ParseException, IOException {
+        int remaining = n;
+        while (remaining > end - start) {
+            remaining -= end - start;
+            start = end;
+            if (!fill())
+                throw new ParseException(
+                        "Unexpected end of stream: needed to skip " + n
+                        + " bytes but could only skip " + (n - remaining));
+        }
+        start += remaining;
+    }
+
+    /**
+     * Returns the Boyer-Moore-Horspool shift table for a pattern: how far
+     * the search can move when the byte under the pattern's last position
+     * is the index.
+     */
+    private static int[] shift(final byte[] pattern) {
+        final int[] shift = new int[256];
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shift[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+        return shift;
+    }
+
+    /**
+     * Searches the unread bytes for the limit with Boyer-Moore-Horspool.
+     *
+     * @return the index of the match, or the complement of the index
+     *         before which no match can start, even one running past the
+     *         bytes read so far
+     */
+    private int search(final byte[] limit, final int[] shift) {
+        final int m = limit.length;
+        final byte last = limit[m - 1];
+        int i = start;
+        final int stop = end - m;
+        while (i <= stop) {
+            final byte c = block[i + m - 1];
+            if (c == last) {
+                int j = m - 2;
+                while (j >= 0 && block[i + j] == limit[j])
+                    j--;
+                if (j < 0)
+                    return i;
             }
+            i += shift[c & 0xFF];
         }
+        return ~Math.min(i, end);
     }
 
     /**
-     * Reads until the limit is met.
+     * Reads until the limit is met, copying the bytes before it to the
+     * buffer. Bytes that can no longer be the start of a match are copied
+     * in bulk, and only a possible partial match at the end of the block
+     * is kept for the next read.
      */
-    private void readUntil(final byte[] limit) throws ParseException,
-            IOException {
-        boolean coincidenceComplete = false;
-        int coincidence = 0;
+    private void readUntil(final byte[] limit, final int[] shift)
+            throws ParseException, IOException {
         bb.clear();
-        try {
-            while (!coincidenceComplete) {
-                read();
-                if (coincidence > 0 && b != limit[coincidence]) {
-                    bb.put(buffer, 0, coincidence);
-                    coincidence = 0;
-                }
-                if (b == limit[coincidence]) {
-                    buffer[coincidence] = b;
-                    coincidenceComplete = (++coincidence == limit.length);
-                } else {
-                    bb.put(b);
-                }
+        while (true) {
+            final int found = search(limit, shift);
+            if (found >= 0) {
+                put(block, start, found - start);
+                start = found + limit.length;
+                bb.flip();
+                return;
             }
-        } catch (BufferOverflowException e) {
-            throw new ParseException("Multipart field value exceeds buffer capacity");
+            put(block, start, ~found - start);
+            start = ~found;
+            if (!fill())
+                throw new ParseException("Unexpected end of stream while reading next byte");
         }
-        bb.flip();
     }
 
-    private String decodeUntil(final byte[] limit) throws ParseException,
+    /**
+     * Reads a file part up to the separator into an {@link UploadedFile},
+     * moving it from the buffer to a temporary file once it exceeds the
+     * file threshold.
+     */
+    private UploadedFile readFile(final PartHeaders part) throws ParseException,
             IOException {
-        readUntil(limit);
+        spilled = 0;
+        spilling = true;
+        try {
+            readUntil(separator, separatorShift);
+            if (spill == null) {
+                return new UploadedFile(part.getFileName(),
+                        part.getContentType(), bytes());
+            }
+            final long size = spilled + bb.remaining();
+            spill.write(bb.array(), bb.position(), bb.remaining());
+            spill.close();
+            return new UploadedFile(part.getFileName(),
+                    part.getContentType(), spillPath, size);
+        } catch (ParseException | IOException | RuntimeException e) {
+            if (spill != null) {
+                spill.close();
+            }
+            if (spillPath != null) {
+                Files.deleteIfExists(spillPath);
+            }
+            throw e;
+        } finally {
+            spilling = false;
+            spill = null;
+            spillPath = null;
+        }
+    }
+
+    /**
+     * Appends bytes to the buffer. The buffer starts small and grows as
+     * needed up to the maximum content size. While a file part is read,
+     * crossing the file threshold moves the content to a temporary file,
+     * and from then on bytes are written straight to it.
+     */
+    private void put(final byte[] src, final int offset, final int length)
+            throws ParseException, IOException {
+        if (length == 0)
+            return;
+        if (spilling && (spill != null || bb.position() + length > fileThreshold)) {
+            if (spill == null) {
+                spillPath = tempDirectory != null
+                        ? Files.createTempFile(tempDirectory, TEMP_PREFIX, TEMP_SUFFIX)
+                        : Files.createTempFile(TEMP_PREFIX, TEMP_SUFFIX);
+                spill = Files.newOutputStream(spillPath);
+            }
+            spill.write(bb.array(), 0, bb.position());
+            spilled += bb.position();
+            bb.clear();
+            spill.write(src, offset, length);
+            spilled += length;
+            return;
+        }
+        if (bb.remaining() < length) {
+            final long required = (long) bb.position() + length;
+            if (required > maxSize) {
+                throw new ParseException(
+                        "Multipart field value exceeds maximum content size "
+                        + maxSize);
+            }
+            final ByteBuffer grown = ByteBuffer.allocate((int) Math.max(required,
+                    Math.min((long) bb.capacity() << 1, maxSize)));
+            bb.flip();
+            grown.put(bb);
+            bb = grown;
+        }
+        bb.put(src, offset, length);
+    }
+
+    private String decodeUntil(final byte[] limit, final int[] shift)
+            throws ParseException, IOException {
+        readUntil(limit, shift);
         return decode();
     }
 
@@ -217,24 +431,126 @@ public final class MultipartParser {
      */
     private boolean skipUntilAny(final byte[] limit, final byte[] limit2)
             throws ParseException, IOException {
-        boolean coincidenceComplete = false;
-        boolean coincidenceComplete2 = false;
-        int coincidenceNumber = 0;
-        int coincidenceNumber2 = 0;
-        while (!coincidenceComplete && !coincidenceComplete2) {
-            read();
-            if (coincidenceNumber > 0 && b != limit[coincidenceNumber])
-                coincidenceNumber = 0;
-            if (coincidenceNumber2 > 0 && b != limit2[coincidenceNumber2])
-                coincidenceNumber2 = 0;
-
-            if (b == limit[coincidenceNumber]) {
-                coincidenceComplete = (++coincidenceNumber == limit.length);
-            } else if (b == limit2[coincidenceNumber2]) {
-                coincidenceComplete2 = (++coincidenceNumber2 == limit2.length);
+        final int m = Math.max(limit.length, limit2.length);
+        while (true) {
+            int i = start;
+            for (; i <= end - m; i++) {
+                if (matches(limit, i)) {
+                    start = i + limit.length;
+                    return true;
+                }
+                if (matches(limit2, i)) {
+                    start = i + limit2.length;
+                    return false;
+                }
+            }
+            start = i;
+            if (!fill())
+                throw new ParseException("Unexpected end of stream while reading next byte");
+        }
+    }
+
+    private boolean matches(final byte[] pattern, final int at) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (block[at + i] != pattern[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Content of the current part for a {@link PartListener}, read
+     * straight from the block up to the next separator.
+     */
+    private final class PartStream extends InputStream {
+
+        /** Bytes before this index are content; -1 when not searched yet. */
+        private int stop = -1;
+        private boolean matched;
+        private boolean done;
+        /** Rethrown by the parser if the listener passes on its wrapper. */
+        private ParseException failure;
+
+        @Override
+        public int read() throws IOException {
+            if (!advance())
+                return END_OF_STREAM;
+            return block[start++] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+                throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0)
+                return 0;
+            if (!advance())
+                return END_OF_STREAM;
+            final int n = Math.min(len, stop - start);
+            System.arraycopy(block, start, b, off, n);
+            start += n;
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0 || !advance())
+                return 0;
+            final int skipped = (int) Math.min(n, stop - start);
+            start += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return done || stop < 0 ? 0 : stop - start;
+        }
+
+        /**
+         * Makes content available at the read position.
+         *
+         * @return false once the separator is reached, which is consumed
+         */
+        private boolean advance() throws IOException {
+            try {
+                return next();
+            } catch (ParseException e) {
+                failure = e;
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        private boolean next() throws ParseException, IOException {
+            while (!done) {
+                if (stop < 0) {
+                    final int found = search(separator, separatorShift);
+                    matched = found >= 0;
+                    stop = matched ? found : ~found;
+                }
+                if (start < stop)
+                    return true;
+                if (matched) {
+                    start = stop + separator.length;
+                    done = true;
+                } else {
+                    stop = -1;
+                    if (!fill())
+                        throw new EOFException("Unexpected end of stream while reading part");
+                }
+            }
+            return false;
+        }
+
+        /** Skips what the listener left unread, up to the separator. */
+        void skipRest() throws ParseException, IOException {
+            try {
+                while (next()) {
+                    start = stop;
+                }
+            } catch (EOFException e) {
+                throw new ParseException(e.getMessage());
             }
         }
-        return coincidenceComplete;
     }
 
     private static final String LINE_STRING = "\r\n";
@@ -244,13 +560,17 @@ public final class MultipartParser {
             + "Content-Type: ".getBytes(US_ASCII).length;
     private static final int CONTENT_DISPOSITION_SIZE = LINE_SIZE
             + "Content-Disposition: form-data; name=\"".getBytes(US_ASCII).length;
-    private static final int BUFFER_SIZE = 10 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final String TEMP_PREFIX = "upload-";
+    private static final String TEMP_SUFFIX = ".part";
     private static final byte[] QUOTE = "\"".getBytes(US_ASCII);
+    private static final int[] QUOTE_SHIFT = shift(QUOTE);
+    private static final int[] LINE_SHIFT = shift(LINE);
     private static final byte[] END = "--".getBytes(US_ASCII);
     private static final int END_SIZE = END.length;
     private static final int CONTENT_DISPOSITION_2_SIZE = CONTENT_DISPOSITION_SIZE
             - END_SIZE;
-    private static final int OFFSET = 1;
     private static final int FILE_DESC = 2;
     private static final int CONTENT_TYPE_POS = 0;
     private static final int NAME_POS = 1;
@@ -263,12 +583,20 @@ public final class MultipartParser {
     private CharsetDecoder charsetDecoder;
     private int boundarySize;
     private byte[] separator;
-    private byte[] buffer;
-
-    private boolean isFile;
+    private int[] separatorShift;
+    private byte[] block;
+    private int start;
+    private int end;
+    private final int maxSize;
+    private long total;
+
+    private int fileThreshold = -1;
+    private Path tempDirectory;
+    private boolean spilling;
+    private OutputStream spill;
+    private Path spillPath;
+    private long spilled;
 
-    private byte b;
-    private int bi;
     private ByteBuffer bb;
 
     private final byte[] eval = new byte[END_SIZE];
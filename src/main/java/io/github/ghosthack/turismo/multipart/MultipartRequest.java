@@ -1,18 +1,33 @@
 package io.github.ghosthack.turismo.multipart;
 
+import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Wrapper that stores multipart form parameters.
- * 
+ *
+ * <p>A request from {@link #wrap(HttpServletRequest, String, int, Path)}
+ * parses its body on the first {@code getParameter*} call, or
+ * {@code getAttribute} call for a name without a dot, so handlers that
+ * never look at the form, or reject the request first, don't pay for the
+ * upload. Parse errors then
+ * surface as {@link IllegalStateException} (or
+ * {@link UncheckedIOException}); call {@link #parse()} first to handle
+ * them as checked exceptions.</p>
  */
 public class MultipartRequest extends HttpServletRequestWrapper implements
         Parametrizable {
@@ -28,10 +43,18 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
     public static final String MULTIPART_FORM_DATA_BOUNDARY = "multipart/form-data; boundary=";
 
     private static final String BOUNDARY_HEAD = "--";
+    private static final Logger LOG = Logger.getLogger(MultipartRequest.class.getName());
 
     private final Map<String, String[]> parameterMap = new HashMap<>();
+    private final List<UploadedFile> files = new ArrayList<>();
     private String boundary;
 
+    private String defaultCharset;
+    private int fileThreshold;
+    private Path tempDirectory;
+    private boolean parsed = true;
+    private Exception failure;
+
     /**
      * Creates a new multipart request wrapper, extracting the boundary from the Content-Type header.
      *
@@ -45,6 +68,18 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
         }
     }
 
+    /**
+     * Returns whether the request has a multipart/form-data content type.
+     *
+     * @param request the request
+     * @return {@code true} for a multipart/form-data request
+     */
+    public static boolean isMultipart(ServletRequest request) {
+        final String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase(java.util.Locale.US)
+                .startsWith(MULTIPART_FORM_DATA);
+    }
+
     /**
      * Extracts the boundary parameter from a Content-Type header value.
      * Handles quoted values and arbitrary parameter ordering per RFC 2046.
@@ -81,12 +116,55 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
         return null;
     }
 
+    /**
+     * Parses the body now, if it has not been parsed yet. Calling it again
+     * rethrows the first failure.
+     *
+     * @throws ParseException if the multipart data cannot be parsed
+     * @throws IOException if an I/O error occurs
+     */
+    public void parse() throws ParseException, IOException {
+        if (parsed) {
+            if (failure instanceof ParseException)
+                throw (ParseException) failure;
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            if (failure != null)
+                throw (RuntimeException) failure;
+            return;
+        }
+        parsed = true;
+        try (InputStream is = getInputStream()) {
+            final MultipartParser parser = newParser(is, defaultCharset);
+            parser.setFileThreshold(fileThreshold);
+            parser.setTempDirectory(tempDirectory);
+            parser.parse();
+        } catch (ParseException | IOException | RuntimeException e) {
+            failure = e;
+            deleteFiles();
+            throw e;
+        }
+    }
+
+    private void parseUnchecked() {
+        if (!parsed || failure != null) {
+            try {
+                parse();
+            } catch (ParseException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /**
      * @see jakarta.servlet.ServletRequest#getParameterMap()
      * @return an unmodifiable view of the parameter map
      */
     @Override
     public Map<String, String[]> getParameterMap() {
+        parseUnchecked();
         return Collections.unmodifiableMap(parameterMap);
     }
 
@@ -100,12 +178,14 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
     /** @see jakarta.servlet.ServletRequest#getParameterNames() */
     @Override
     public Enumeration<String> getParameterNames() {
+        parseUnchecked();
         return Collections.enumeration(parameterMap.keySet());
     }
 
     /** @see jakarta.servlet.ServletRequest#getParameterValues(java.lang.String) */
     @Override
     public String[] getParameterValues(String name) {
+        parseUnchecked();
         return parameterMap.get(name);
     }
 
@@ -129,6 +209,64 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
         parameterMap.put(name, value);
     }
 
+    /**
+     * Sets a request attribute, keeping track of {@link UploadedFile}
+     * values so their temporary files can be deleted later.
+     *
+     * @see jakarta.servlet.ServletRequest#setAttribute(String, Object)
+     * @see #deleteFiles()
+     */
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value instanceof UploadedFile) {
+            files.add((UploadedFile) value);
+        }
+        super.setAttribute(name, value);
+    }
+
+    /**
+     * Returns a request attribute, parsing the body first unless the
+     * attribute is already set or its name contains a dot. Dotted names
+     * ({@code jakarta.*}, {@code org.apache.*}, a filter's own flags)
+     * belong to the container and other filters, which look them up on
+     * every request; a form field named with a dot is only found once
+     * the body has been parsed.
+     *
+     * @see jakarta.servlet.ServletRequest#getAttribute(String)
+     */
+    @Override
+    public Object getAttribute(String name) {
+        final Object value = super.getAttribute(name);
+        if (value != null || parsed || name.indexOf('.') >= 0) {
+            return value;
+        }
+        parseUnchecked();
+        return super.getAttribute(name);
+    }
+
+    /** @see jakarta.servlet.ServletRequest#getAttributeNames() */
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        parseUnchecked();
+        return super.getAttributeNames();
+    }
+
+    /**
+     * Deletes the temporary files of the uploaded files that were not
+     * moved. {@link MultipartFilter} calls this once the chain returns;
+     * callers of {@code wrapAndParse} should call it when done.
+     */
+    public void deleteFiles() {
+        for (UploadedFile file : files) {
+            try {
+                file.delete();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not delete " + file.getPath(), e);
+            }
+        }
+        files.clear();
+    }
+
     /**
      * Gets the boundary obtained from the underlying request.
      * 
@@ -161,23 +299,101 @@ public class MultipartRequest extends HttpServletRequestWrapper implements
      */
     public static MultipartRequest wrapAndParse(HttpServletRequest req, String defaultCharset)
             throws ParseException, IOException {
+        return wrapAndParse(req, defaultCharset, -1, null);
+    }
+
+    /**
+     * Wraps the request and parses multipart data, storing file parts as
+     * {@link UploadedFile} attributes. Files larger than
+     * {@code fileThreshold} bytes are streamed to temporary files, which
+     * must be released with {@link #deleteFiles()}.
+     *
+     * @param req the HTTP request
+     * @param defaultCharset the charset to use if the request has no encoding
+     * @param fileThreshold the in-memory limit per file, in bytes; negative
+     *        to store file contents as {@code byte[]} attributes instead
+     * @param tempDirectory the directory for temporary files, or null for
+     *        the system default
+     * @return the wrapped multipart request
+     * @throws ParseException if the multipart data cannot be parsed
+     * @throws IOException if an I/O error occurs
+     * @see MultipartParser#setFileThreshold(int)
+     */
+    public static MultipartRequest wrapAndParse(HttpServletRequest req, String defaultCharset,
+            int fileThreshold, Path tempDirectory) throws ParseException, IOException {
+        final MultipartRequest multipart = wrap(req, defaultCharset, fileThreshold,
+                tempDirectory);
+        multipart.parse();
+        return multipart;
+    }
+
+    /**
+     * Wraps the request without reading it. The body is parsed on the
+     * first {@code getParameter*} or {@code getAttribute} call, or by
+     * {@link #parse()}; until then {@link #getInputStream()} is untouched,
+     * so a handler can still stream it with
+     * {@link #parse(HttpServletRequest, PartListener)}. Release files
+     * with {@link #deleteFiles()}.
+     *
+     * @param req the HTTP request
+     * @param defaultCharset the charset to use if the request has no encoding
+     * @param fileThreshold the in-memory limit per file, in bytes; negative
+     *        to store file contents as {@code byte[]} attributes instead
+     * @param tempDirectory the directory for temporary files, or null for
+     *        the system default
+     * @return the wrapped multipart request
+     */
+    public static MultipartRequest wrap(HttpServletRequest req, String defaultCharset,
+            int fileThreshold, Path tempDirectory) {
         final MultipartRequest multipart = new MultipartRequest(req);
-        final String boundary = multipart.getBoundary();
-        final int size = req.getContentLength();
-        if (size < 0) {
-            throw new ParseException("Content-Length is missing or invalid");
+        multipart.defaultCharset = defaultCharset;
+        multipart.fileThreshold = fileThreshold;
+        multipart.tempDirectory = tempDirectory;
+        multipart.parsed = false;
+        return multipart;
+    }
+
+    /**
+     * Parses the request's multipart data with the default charset,
+     * handing each part to the listener as it arrives. Nothing is stored
+     * in the request.
+     *
+     * @param req the HTTP request
+     * @param listener receives each part
+     * @throws ParseException if the multipart data cannot be parsed
+     * @throws IOException if an I/O error occurs, or the listener fails
+     * @see MultipartParser#parse(PartListener)
+     */
+    public static void parse(HttpServletRequest req, PartListener listener)
+            throws ParseException, IOException {
+        parse(req, MultipartFilter.getDefaultCharsetName(), listener);
+    }
+
+    /**
+     * Parses the request's multipart data, handing each part to the
+     * listener as it arrives. Nothing is stored in the request.
+     *
+     * @param req the HTTP request
+     * @param defaultCharset the charset to use if the request has no encoding
+     * @param listener receives each part
+     * @throws ParseException if the multipart data cannot be parsed
+     * @throws IOException if an I/O error occurs, or the listener fails
+     * @see MultipartParser#parse(PartListener)
+     */
+    public static void parse(HttpServletRequest req, String defaultCharset,
+            PartListener listener) throws ParseException, IOException {
+        try (InputStream is = req.getInputStream()) {
+            new MultipartRequest(req).newParser(is, defaultCharset).parse(listener);
         }
-        String encoding = req.getCharacterEncoding();
+    }
+
+    private MultipartParser newParser(InputStream is, String defaultCharset) {
+        String encoding = getCharacterEncoding();
         if (encoding == null) {
             encoding = defaultCharset;
         }
-        InputStream is = req.getInputStream();
-        try {
-            new MultipartParser(is, boundary, multipart, encoding, size).parse();
-        } finally {
-            is.close();
-        }
-        return multipart;
+        // -1 when the length is unknown, as with chunked transfer encoding
+        return new MultipartParser(is, boundary, this, encoding, getContentLength());
     }
 
 }
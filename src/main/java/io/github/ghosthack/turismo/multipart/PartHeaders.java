@@ -0,0 +1,59 @@
+package io.github.ghosthack.turismo.multipart;
+
+/**
+ * Headers of a multipart part, as passed to a {@link PartListener}.
+ */
+public final class PartHeaders {
+
+    private final String name;
+    private final String fileName;
+    private final String contentType;
+
+    PartHeaders(String name, String fileName, String contentType) {
+        this.name = name;
+        this.fileName = fileName;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Returns the form field name.
+     *
+     * @return the field name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the file name sent by the client.
+     *
+     * @return the file name, or null if the part is not a file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the content type sent by the client.
+     *
+     * @return the content type, or null if the part is not a file
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns whether the part is a file upload.
+     *
+     * @return {@code true} for a file part
+     */
+    public boolean isFile() {
+        return fileName != null;
+    }
+
+    @Override
+    public String toString() {
+        return "PartHeaders[" + name + (fileName != null
+                ? ", " + fileName + ", " + contentType : "") + "]";
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.ghosthack.turismo.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the parts of a multipart body as they are read, for
+ * {@link MultipartParser#parse(PartListener)}.
+ *
+ * <p>Nothing is buffered for the listener: the content stream reads
+ * straight from the request and ends at the part's boundary. Whatever
+ * the listener leaves unread is skipped, so an upload can be hashed,
+ * validated or stored with constant memory, or ignored.</p>
+ */
+public interface PartListener {
+
+    /**
+     * Called for each part, in order.
+     *
+     * @param headers the part headers
+     * @param content the part content; only valid until this method
+     *        returns, and need not be closed
+     * @throws IOException if reading the content or handling it fails;
+     *         an {@link java.io.EOFException} from the content means the
+     *         body ended inside the part
+     */
+    void onPart(PartHeaders headers, InputStream content) throws IOException;
+
+}
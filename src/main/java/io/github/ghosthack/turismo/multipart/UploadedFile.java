@@ -0,0 +1,180 @@
+package io.github.ghosthack.turismo.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Handle to the content of an uploaded file part. Small files are kept in
+ * memory; larger ones are written to a temporary file by the parser as
+ * they arrive, so their content never has to fit in the heap.
+ *
+ * <p>Temporary files are deleted by {@link #delete()}, which
+ * {@link MultipartFilter} and {@link MultipartRequest#deleteFiles()} call
+ * once the request is done. Use {@link #moveTo(Path)} to keep a file.</p>
+ *
+ * @see MultipartParser#setFileThreshold(int)
+ */
+public final class UploadedFile {
+
+    private final String fileName;
+    private final String contentType;
+    private final long size;
+    private final byte[] bytes;
+    private Path path;
+    private boolean moved;
+
+    UploadedFile(String fileName, String contentType, byte[] bytes) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = bytes.length;
+        this.bytes = bytes;
+    }
+
+    UploadedFile(String fileName, String contentType, Path path, long size) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.bytes = null;
+        this.path = path;
+    }
+
+    /**
+     * Returns the file name sent by the client.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the content type sent by the client.
+     *
+     * @return the content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the content size.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns whether the content is held in memory rather than in a file.
+     *
+     * @return {@code true} if in memory
+     */
+    public boolean isInMemory() {
+        return bytes != null;
+    }
+
+    /**
+     * Returns the file holding the content, or {@code null} if it is held
+     * in memory.
+     *
+     * @return the file path, or {@code null}
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Opens a stream over the content.
+     *
+     * @return a new input stream; the caller closes it
+     * @throws IOException if the file cannot be opened
+     */
+    public InputStream openStream() throws IOException {
+        return bytes != null ? new ByteArrayInputStream(bytes)
+                : Files.newInputStream(path);
+    }
+
+    /**
+     * Returns the content as a byte array, reading the file if needed.
+     *
+     * @return the content
+     * @throws IOException if the file cannot be read
+     */
+    public byte[] getBytes() throws IOException {
+        return bytes != null ? bytes.clone() : Files.readAllBytes(path);
+    }
+
+    /**
+     * Writes the content to a channel. File content is copied with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * which lets the operating system move the bytes without passing
+     * them through the heap.
+     *
+     * @param target the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if reading or writing fails
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return size;
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position,
+                        target);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Moves the content to the given file, replacing it if it exists.
+     * A temporary file is renamed when possible rather than copied.
+     * Afterwards this handle refers to the target, which
+     * {@link #delete()} leaves in place.
+     *
+     * @param target the destination file
+     * @throws IOException if the file cannot be written or moved
+     */
+    public void moveTo(Path target) throws IOException {
+        if (bytes != null) {
+            Files.write(target, bytes);
+        } else {
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+            path = target;
+        }
+        moved = true;
+    }
+
+    /**
+     * Deletes the temporary file, if any and not moved.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        if (path != null && !moved) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UploadedFile[" + fileName + ", " + contentType + ", "
+                + size + " bytes" + (path != null ? ", " + path : "") + "]";
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import io.github.ghosthack.turismo.Turismo;
+import io.github.ghosthack.turismo.annotation.DELETE;
+import io.github.ghosthack.turismo.annotation.GET;
+import io.github.ghosthack.turismo.annotation.PATCH;
+import io.github.ghosthack.turismo.annotation.POST;
+import io.github.ghosthack.turismo.annotation.PUT;
+
+/**
+ * Annotation processor that generates, for each controller class with
+ * {@link GET @GET}, {@link POST @POST}, {@link PUT @PUT},
+ * {@link DELETE @DELETE} or {@link PATCH @PATCH} methods, a registration
+ * class that adds its routes with plain method references:
+ *
+ * <pre>{@code
+ * // generated for com.example.UserController
+ * public final class UserController_Routes {
+ *     public static void register(UserController controller) {
+ *         Turismo.get("/users/:id", controller::getUser);
+ *         Turismo.post("/users", controller::createUser);
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>{@link Turismo#controller(Object)} uses the generated class when it
+ * exists, so registering a controller needs no method scanning,
+ * annotation parsing or {@code setAccessible}. Nested classes are named
+ * after their enclosing classes, joined by {@code _}
+ * ({@code Outer_Inner_Routes}).
+ *
+ * <p>Controllers whose annotated methods are private, or that are
+ * private or local classes themselves, cannot be referenced from
+ * generated code; no class is generated for them and they keep being
+ * registered reflectively. Annotated methods with parameters are
+ * reported as errors.
+ *
+ * <p>The processor is not registered for discovery, so projects that
+ * merely depend on turismo never run it. Enable it by name, with
+ * {@code javac -processor
+ * io.github.ghosthack.turismo.processor.RoutesProcessor} or the compiler
+ * plugin's {@code annotationProcessors}, with turismo on the processor
+ * path.
+ */
+@SupportedAnnotationTypes({
+        "io.github.ghosthack.turismo.annotation.GET",
+        "io.github.ghosthack.turismo.annotation.POST",
+        "io.github.ghosthack.turismo.annotation.PUT",
+        "io.github.ghosthack.turismo.annotation.DELETE",
+        "io.github.ghosthack.turismo.annotation.PATCH"})
+public class RoutesProcessor extends AbstractProcessor {
+
+    /** Suffix appended to the flattened controller name. */
+    public static final String SUFFIX = "_Routes";
+
+    private static final Map<String, String> HELPERS = Map.of(
+            GET.class.getName(), "get",
+            POST.class.getName(), "post",
+            PUT.class.getName(), "put",
+            DELETE.class.getName(), "delete",
+            PATCH.class.getName(), "patch");
+
+    /** Creates a new processor. */
+    public RoutesProcessor() {
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+        Map<TypeElement, List<ExecutableElement>> controllers =
+                new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (e.getKind() != ElementKind.METHOD) {
+                    continue;
+                }
+                TypeElement type = (TypeElement) e.getEnclosingElement();
+                List<ExecutableElement> methods = controllers
+                        .computeIfAbsent(type, k -> new ArrayList<>());
+                if (!methods.contains(e)) {
+                    methods.add((ExecutableElement) e);
+                }
+            }
+        }
+        for (Map.Entry<TypeElement, List<ExecutableElement>> c
+                : controllers.entrySet()) {
+            generate(c.getKey(), sorted(c.getKey(), c.getValue()));
+        }
+        return false;
+    }
+
+    /** Orders the methods as they appear in the source. */
+    private static List<ExecutableElement> sorted(TypeElement type,
+            List<ExecutableElement> methods) {
+        List<ExecutableElement> result = new ArrayList<>();
+        for (Element e : type.getEnclosedElements()) {
+            if (methods.contains(e)) {
+                result.add((ExecutableElement) e);
+            }
+        }
+        return result;
+    }
+
+    private void generate(TypeElement type, List<ExecutableElement> methods) {
+        Messager messager = processingEnv.getMessager();
+        boolean valid = true;
+        for (ExecutableElement m : methods) {
+            if (!m.getParameters().isEmpty()) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Controller method " + m.getSimpleName()
+                        + " must not declare parameters", m);
+                valid = false;
+            }
+        }
+        if (!valid || !referenceable(type, methods)) {
+            return;
+        }
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String simpleName = flatName(type) + SUFFIX;
+        String typeName = processingEnv.getTypeUtils()
+                .erasure(type.asType()).toString();
+        boolean isPublic = isPublic(type);
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("/** Routes of {@link ").append(typeName)
+           .append("}, generated by ").append(getClass().getSimpleName())
+           .append(". */\n");
+        src.append("@javax.annotation.processing.Generated(\"")
+           .append(getClass().getName()).append("\")\n");
+        if (isPublic) {
+            src.append("public ");
+        }
+        src.append("final class ").append(simpleName).append(" {\n\n");
+        src.append("    private ").append(simpleName).append("() {\n    }\n\n");
+        src.append("    /**\n");
+        src.append("     * Registers the routes of the given controller.\n");
+        src.append("     *\n");
+        src.append("     * @param controller the controller instance\n");
+        src.append("     */\n");
+        src.append("    public static void register(").append(typeName)
+           .append(" controller) {\n");
+        for (ExecutableElement m : methods) {
+            Route route = route(m);
+            src.append("        io.github.ghosthack.turismo.Turismo.")
+               .append(route.helper)
+               .append("(").append(literal(route.path)).append(", ")
+               .append(action(typeName, m)).append(");\n");
+        }
+        src.append("    }\n");
+        src.append("}\n");
+
+        String qualified = packageName.isEmpty()
+                ? simpleName : packageName + "." + simpleName;
+        try (Writer w = processingEnv.getFiler()
+                .createSourceFile(qualified, type).openWriter()) {
+            w.write(src.toString());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + qualified + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Returns whether generated code in the controller's package can
+     * reference the controller and all of its annotated methods.
+     */
+    private boolean referenceable(TypeElement type,
+            List<ExecutableElement> methods) {
+        for (Element e = type; e instanceof TypeElement;
+                e = e.getEnclosingElement()) {
+            TypeElement t = (TypeElement) e;
+            if (t.getModifiers().contains(Modifier.PRIVATE)
+                    || t.getNestingKind() == NestingKind.LOCAL
+                    || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                note(type);
+                return false;
+            }
+        }
+        if (type.getKind() == ElementKind.INTERFACE) {
+            note(type);
+            return false;
+        }
+        for (ExecutableElement m : methods) {
+            if (m.getModifiers().contains(Modifier.PRIVATE)) {
+                note(type);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void note(TypeElement type) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No route class generated for " + type.getQualifiedName()
+                + ": private or local members; registered reflectively",
+                type);
+    }
+
+    private static boolean isPublic(TypeElement type) {
+        for (Element e = type; e instanceof TypeElement;
+                e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the controller name with its enclosing classes joined by
+     * {@code _}; matches the binary name with {@code $} replaced.
+     */
+    static String flatName(TypeElement type) {
+        StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e instanceof TypeElement;
+                e = e.getEnclosingElement()) {
+            sb.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return sb.toString();
+    }
+
+    private String action(String typeName, ExecutableElement m) {
+        String name = m.getSimpleName().toString();
+        boolean isStatic = m.getModifiers().contains(Modifier.STATIC);
+        if (!throwsChecked(m)) {
+            return (isStatic ? typeName : "controller") + "::" + name;
+        }
+        String call = (isStatic ? typeName : "controller") + "." + name + "();";
+        return "() -> {\n"
+                + "            try {\n"
+                + "                " + call + "\n"
+                + "            } catch (RuntimeException | Error e) {\n"
+                + "                throw e;\n"
+                + "            } catch (Throwable e) {\n"
+                + "                throw new RuntimeException(e);\n"
+                + "            }\n"
+                + "        }";
+    }
+
+    private boolean throwsChecked(ExecutableElement m) {
+        TypeMirror runtime = processingEnv.getElementUtils()
+                .getTypeElement("java.lang.RuntimeException").asType();
+        TypeMirror error = processingEnv.getElementUtils()
+                .getTypeElement("java.lang.Error").asType();
+        for (TypeMirror t : m.getThrownTypes()) {
+            if (t.getKind() == TypeKind.DECLARED
+                    && !processingEnv.getTypeUtils().isAssignable(t, runtime)
+                    && !processingEnv.getTypeUtils().isAssignable(t, error)) {
+                return true;
+            }
+            if (t.getKind() == TypeKind.TYPEVAR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the route declared by a method. Like the reflective scan,
+     * the last route annotation on the method wins.
+     */
+    private static Route route(ExecutableElement m) {
+        Route route = null;
+        for (AnnotationMirror a : m.getAnnotationMirrors()) {
+            String name = ((TypeElement) a.getAnnotationType().asElement())
+                    .getQualifiedName().toString();
+            String helper = HELPERS.get(name);
+            if (helper != null) {
+                for (Map.Entry<? extends ExecutableElement,
+                        ? extends AnnotationValue> v
+                        : a.getElementValues().entrySet()) {
+                    if (v.getKey().getSimpleName().contentEquals("value")) {
+                        route = new Route(helper, (String) v.getValue().getValue());
+                    }
+                }
+            }
+        }
+        return route;
+    }
+
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class Route {
+        final String helper;
+        final String path;
+
+        Route(String helper, String path) {
+            this.helper = helper;
+            this.path = path;
+        }
+    }
+}
@@ -175,10 +175,15 @@ public class ListResolver extends MethodPathResolver {
     protected Runnable resolve(String method, String path) {
         List<ParsedEntry> pathList = methodPathList.get(method);
         if (pathList != null && path != null) {
-            String[] requestParts = path.split("/");
+            int[] bounds = new int[16];
+            int count = PathPattern.segments(path, bounds);
+            if (count << 1 > bounds.length) {
+                bounds = new int[count << 1];
+                PathPattern.segments(path, bounds);
+            }
             for (ParsedEntry parsedEntry : pathList) {
-                Map<String, String> params = parsedEntry.pattern.match(requestParts);
-                if (params != null) {
+                if (parsedEntry.pattern.match(path, bounds, count)) {
+                    Map<String, String> params = parsedEntry.pattern.params(path, bounds);
                     if (!params.isEmpty()) {
                         Env.setResourceParams(params);
                     }
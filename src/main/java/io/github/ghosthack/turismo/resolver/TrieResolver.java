@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.resolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.ghosthack.turismo.PathPattern;
+import io.github.ghosthack.turismo.RouteTrie;
+import io.github.ghosthack.turismo.servlet.Env;
+
+/**
+ * A resolver that stores routes in a {@link RouteTrie} per HTTP method and
+ * supports wildcard ({@code *}) and named parameter ({@code :param}) path
+ * segments.
+ *
+ * <p>Behaves like {@link ListResolver}, including route aliases and
+ * first-registered-wins precedence, but resolves in time proportional to
+ * the depth of the request path instead of the number of routes.
+ */
+public class TrieResolver extends MethodPathResolver {
+
+    private final Map<String, RouteTrie> methodTries = new HashMap<>();
+    private final Map<String, Map<String, Runnable>> methodPaths = new HashMap<>();
+    private Runnable defaultRunnable;
+
+    /** Creates a new trie-based resolver. */
+    public TrieResolver() {
+    }
+
+    /**
+     * Creates an alias so that {@code newPath} resolves to the same action as {@code targetPath}.
+     * The target path must already be registered.
+     *
+     * @param method     the HTTP method
+     * @param newPath    the new path to register
+     * @param targetPath the existing path whose action should be reused
+     * @throws IllegalArgumentException if no routes exist for the method or the target path is not found
+     */
+    @Override
+    public void route(String method, String newPath, String targetPath) {
+        Map<String, Runnable> paths = methodPaths.get(method);
+        if(paths == null) throw new IllegalArgumentException(
+                "No routes registered for HTTP method '" + method + "'");
+        Runnable runnable = paths.get(targetPath);
+        if(runnable == null) throw new IllegalArgumentException(
+                "Target path '" + targetPath + "' not found in routes for method '" + method + "'");
+        route(method, newPath, runnable);
+    }
+
+    @Override
+    public void route(String method, String path, Runnable runnable) {
+        RouteTrie trie = methodTries.get(method);
+        if(trie == null) {
+            trie = new RouteTrie();
+            methodTries.put(method, trie);
+            methodPaths.put(method, new HashMap<>());
+        }
+        trie.add(path, runnable);
+        methodPaths.get(method).putIfAbsent(path, runnable);
+    }
+
+    @Override
+    public void route(Runnable runnable) {
+        this.defaultRunnable = runnable;
+    }
+
+    @Override
+    protected Runnable resolve(String method, String path) {
+        RouteTrie trie = methodTries.get(method);
+        if (trie != null && path != null) {
+            int[] bounds = new int[16];
+            int count = PathPattern.segments(path, bounds);
+            if (count << 1 > bounds.length) {
+                bounds = new int[count << 1];
+                PathPattern.segments(path, bounds);
+            }
+            RouteTrie.Route route = trie.find(path, bounds, count);
+            if (route != null) {
+                Map<String, String> params = route.pattern().params(path, bounds);
+                if (!params.isEmpty()) {
+                    Env.setResourceParams(params);
+                }
+                return route.action();
+            }
+        }
+        // default route, no mapping found
+        return defaultRunnable;
+    }
+
+}
@@ -19,6 +19,7 @@ package io.github.ghosthack.turismo.routes;
 import io.github.ghosthack.turismo.Resolver;
 import io.github.ghosthack.turismo.Routes;
 import io.github.ghosthack.turismo.action.NotFoundAction;
+import io.github.ghosthack.turismo.multipart.MultipartAction;
 
 /**
  * Base class for route containers. Provides HTTP method shortcut methods
@@ -164,6 +165,23 @@ public abstract class AbstractRoutes implements Routes {
         resolver.route(PATCH, path, runnable);
     }
 
+    /**
+     * Declares that an action accepts multipart form data, parsed lazily
+     * with the default settings. Routes not declared this way never parse
+     * an upload, unless {@code MultipartFilter} is installed.
+     *
+     * <pre>
+     * post("/upload", multipart(new Action() { ... }));
+     * </pre>
+     *
+     * @param runnable the action
+     * @return the action, wrapped
+     * @see MultipartAction
+     */
+    protected Runnable multipart(Runnable runnable) {
+        return new MultipartAction(runnable);
+    }
+
     /**
      * Registers the default (fallback) route.
      *
@@ -16,6 +16,7 @@
 
 package io.github.ghosthack.turismo.routes;
 
+import io.github.ghosthack.turismo.Resolver;
 import io.github.ghosthack.turismo.resolver.ListResolver;
 
 /**
@@ -30,6 +31,16 @@ public abstract class RoutesList extends AbstractRoutes {
         super(new ListResolver());
     }
 
+    /**
+     * Creates a route container backed by another resolver with the same
+     * wildcard, named parameter and alias semantics.
+     *
+     * @param resolver the resolver to store routes in
+     */
+    protected RoutesList(Resolver resolver) {
+        super(resolver);
+    }
+
     // Route-alias shortcut methods
 
     /**
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.routes;
+
+import io.github.ghosthack.turismo.resolver.TrieResolver;
+
+/**
+ * Routes container using trie-based resolution with wildcard and
+ * named parameter support. A drop-in replacement for {@link RoutesList}
+ * whose lookup cost does not grow with the number of routes.
+ * Extend this class and override {@link #map()} to define your routes.
+ */
+public abstract class RoutesTrie extends RoutesList {
+
+    /** Creates a new trie-based route container. */
+    public RoutesTrie() {
+        super(new TrieResolver());
+    }
+
+}
@@ -163,6 +163,16 @@ public class Env {
         return req;
     }
 
+    /**
+     * Replaces the request, for actions that wrap it for the routes they
+     * run.
+     *
+     * @param req the request
+     */
+    public void setReq(HttpServletRequest req) {
+        this.req = req;
+    }
+
     /**
      * Returns the HTTP response.
      *
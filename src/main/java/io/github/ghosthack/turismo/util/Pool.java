@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011 Adrian Fernandez
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.github.ghosthack.turismo.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of reusable objects, such as buffers. Each thread probes
+ * a few slots starting at a position derived from its id, so concurrent
+ * requests mostly touch different slots. Takes from an empty pool create
+ * a new object; returns to a full pool drop it for the GC.
+ *
+ * <p>The pool is shared rather than per thread: with one virtual thread
+ * per request, thread-local objects would never be reused.
+ *
+ * @param <T> the type of the pooled objects
+ */
+public final class Pool<T> {
+
+    private static final int PROBES = 8;
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final Supplier<? extends T> factory;
+
+    /**
+     * Creates a pool sized for the available processors: eight slots
+     * per processor, and at least 64.
+     *
+     * @param factory creates an object when the pool is empty
+     */
+    public Pool(Supplier<? extends T> factory) {
+        this(Math.max(64, Runtime.getRuntime().availableProcessors() * 8),
+                factory);
+    }
+
+    /**
+     * Creates a pool holding up to about {@code capacity} idle objects.
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param factory  creates an object when the pool is empty
+     */
+    public Pool(int capacity, Supplier<? extends T> factory) {
+        int n = Integer.highestOneBit(Math.max(capacity, PROBES) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(n);
+        this.mask = n - 1;
+        this.factory = factory;
+    }
+
+    /**
+     * Takes an idle object from the pool, or creates one if none is
+     * found.
+     *
+     * @return an object the caller owns until it is released
+     */
+    public T acquire() {
+        int start = start();
+        for (int k = 0; k < PROBES; k++) {
+            int i = (start + k) & mask;
+            T item = slots.get(i);
+            if (item != null && slots.compareAndSet(i, item, null)) {
+                return item;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Returns an object to the pool. The caller must not use it
+     * afterwards.
+     *
+     * @param item the object to return
+     */
+    public void release(T item) {
+        int start = start();
+        for (int k = 0; k < PROBES; k++) {
+            int i = (start + k) & mask;
+            if (slots.get(i) == null && slots.compareAndSet(i, null, item)) {
+                return;
+            }
+        }
+    }
+
+    private static int start() {
+        return (int) Thread.currentThread().getId() * 0x9E3779B9;
+    }
+}
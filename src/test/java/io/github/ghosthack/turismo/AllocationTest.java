@@ -0,0 +1,127 @@
+package io.github.ghosthack.turismo;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.memory.MemoryContext;
+
+/**
+ * Allocation budgets for {@link Turismo#handle(Context)}: bytes allocated
+ * per request on the routing and response path, measured with
+ * {@link Allocations} through a reused {@link MemoryContext}. Most budgets
+ * hold for a thread that keeps handling requests, as in a pool of platform
+ * threads; the {@code OnNewThreads} tests measure a thread per request, as
+ * with virtual threads, where per-thread caches never pay off. A failure
+ * here means a change made every request allocate more; raise a budget
+ * only when that is intended.
+ */
+public class AllocationTest {
+
+    private static final Map<String, Object> PAYLOAD = Map.of("id", 42,
+            "name", "turismo", "roles", List.of("reader", "writer"));
+
+    private final MemoryContext ctx = new MemoryContext();
+
+    @Before
+    public void setUp() {
+        Turismo.reset();
+        Turismo.get("/hello", "Hello World!");
+        Turismo.get("/ping", () -> Turismo.status(204));
+        Turismo.get("/users/:id", () -> Turismo.param("id"));
+        Turismo.get("/users/:id/posts/:post", () -> Turismo.param("post"));
+        Turismo.get("/files/*", () -> Turismo.status(204));
+        Turismo.get("/json", () -> Turismo.json(PAYLOAD));
+        Turismo.post("/ids", () -> Turismo.status(
+                Turismo.bodyJson(long[].class).length == 3 ? 204 : 400));
+        for (int i = 0; i < 200; i++) {
+            Turismo.get("/r" + i + "/leaf", () -> { });
+            Turismo.get("/r" + i + "/:id", () -> { });
+        }
+        Turismo.freeze();
+    }
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    private void assertBudget(String path, long budget) {
+        Allocations.assertBudget(path, budget,
+                () -> Turismo.handle(ctx.request("GET", path)));
+    }
+
+    @Test
+    public void testStringRoute() {
+        assertBudget("/hello", 64);
+    }
+
+    @Test
+    public void testExactRoute() {
+        assertBudget("/ping", 64);
+    }
+
+    @Test
+    public void testParamRoute() {
+        assertBudget("/users/42", 128);
+        assertBudget("/users/42/posts/7", 128);
+    }
+
+    @Test
+    public void testParamRouteAmongMany() {
+        assertBudget("/r150/77", 128);
+    }
+
+    @Test
+    public void testWildcardRoute() {
+        assertBudget("/files/a/b/c.txt", 64);
+    }
+
+    @Test
+    public void testJson() {
+        assertBudget("/json", 256);
+        assertTrue(ctx.text().contains("\"id\":42"));
+    }
+
+    @Test
+    public void testBodyJson() {
+        byte[] body = "[1, 22, 333]".getBytes(StandardCharsets.UTF_8);
+        Allocations.assertBudget("/ids", 256,
+                () -> Turismo.handle(ctx.request("POST", "/ids").body(body)));
+        assertEquals(204, ctx.status());
+    }
+
+    @Test
+    public void testParamRouteOnNewThreads() {
+        Allocations.assertThreadBudget("/users/42", 384,
+                () -> Turismo.handle(ctx.request("GET", "/users/42")));
+    }
+
+    @Test
+    public void testJsonOnNewThreads() {
+        Allocations.assertThreadBudget("/json", 512,
+                () -> Turismo.handle(ctx.request("GET", "/json")));
+        byte[] body = "[1, 22, 333]".getBytes(StandardCharsets.UTF_8);
+        Allocations.assertThreadBudget("/ids", 512,
+                () -> Turismo.handle(ctx.request("POST", "/ids").body(body)));
+    }
+
+    @Test
+    public void testNotFound() {
+        assertBudget("/missing/path", 64);
+        assertEquals(404, ctx.status());
+    }
+
+    @Test
+    public void testMetricsEnabled() {
+        Turismo.enableMetrics();
+        assertBudget("/users/42", 256);
+        assertTrue(Turismo.metrics().route("GET", "/users/:id").requests() > 0);
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.ghosthack.turismo;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes a piece of code allocates on the current thread,
+ * through {@code com.sun.management.ThreadMXBean}, so tests can hold
+ * request handling to an allocation budget.
+ */
+public final class Allocations {
+
+    private static final int WARMUP = 20_000;
+    private static final int RUNS = 10_000;
+    private static final int ROUNDS = 5;
+    private static final int THREADS_PER_ROUND = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * Returns whether the JVM can report per-thread allocation.
+     *
+     * @return {@code true} if {@link #perCall(Runnable)} can measure
+     */
+    public static boolean supported() {
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+        if (!THREADS.isThreadAllocatedMemoryEnabled()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+        return true;
+    }
+
+    /**
+     * Runs the operation enough times for the JIT to compile it, then
+     * returns the bytes it allocates per run: the lowest mean over a few
+     * rounds, so a one-off allocation (a resized table, class loading)
+     * does not count against it.
+     *
+     * @param op the operation to measure
+     * @return bytes allocated per run
+     */
+    public static long perCall(Runnable op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < RUNS; i++) {
+                op.run();
+            }
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() - before;
+            best = Math.min(best, allocated / RUNS);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the bytes the operation allocates on a thread that has never
+     * run it, as every request does under an executor that starts a
+     * thread per task, like {@code Server.defaultExecutor()} with virtual
+     * threads on Java 21+. Per-thread caches show up here as the cost of
+     * filling them. After warming up on the current thread, runs the
+     * operation once on each of a batch of new threads, measured on that
+     * thread, and returns the lowest mean over a few batches.
+     *
+     * @param op the operation to measure
+     * @return bytes allocated per run on a new thread
+     */
+    public static long perThread(Runnable op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] allocated = new long[1];
+            for (int i = 0; i < THREADS_PER_ROUND; i++) {
+                Thread thread = new Thread(() -> {
+                    long before = THREADS.getCurrentThreadAllocatedBytes();
+                    op.run();
+                    allocated[0] += THREADS.getCurrentThreadAllocatedBytes() - before;
+                });
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            best = Math.min(best, allocated[0] / THREADS_PER_ROUND);
+        }
+        return best;
+    }
+
+    /**
+     * Fails if the operation allocates more than the budget per run on a
+     * new thread. Skips the test on JVMs that cannot report allocation.
+     *
+     * @param what   what is measured, for the failure message
+     * @param budget the most bytes a run may allocate
+     * @param op     the operation to measure
+     * @see #perThread(Runnable)
+     */
+    public static void assertThreadBudget(String what, long budget, Runnable op) {
+        assumeTrue("per-thread allocation not supported", supported());
+        long bytes = perThread(op);
+        assertTrue(what + " allocated " + bytes + " bytes per call on a new thread,"
+                + " budget " + budget, bytes <= budget);
+    }
+
+    /**
+     * Fails if the operation allocates more than the budget per run.
+     * Skips the test on JVMs that cannot report allocation.
+     *
+     * @param what   what is measured, for the failure message
+     * @param budget the most bytes a run may allocate
+     * @param op     the operation to measure
+     */
+    public static void assertBudget(String what, long budget, Runnable op) {
+        assumeTrue("per-thread allocation not supported", supported());
+        long bytes = perCall(op);
+        assertTrue(what + " allocated " + bytes + " bytes per call, budget "
+                + budget, bytes <= budget);
+    }
+}
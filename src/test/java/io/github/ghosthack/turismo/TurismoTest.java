@@ -6,6 +6,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,7 +41,7 @@ public class TurismoTest {
 
         Turismo.RouteMatch match = Turismo.resolve("GET", "/hello");
         assertSame(action, match.action);
-        assertTrue(match.params.isEmpty());
+        assertTrue(match.params().isEmpty());
     }
 
     @Test
@@ -61,7 +62,7 @@ public class TurismoTest {
     public void testNoMatchReturnsNotFoundHandler() {
         Turismo.RouteMatch match = Turismo.resolve("GET", "/missing");
         assertNotNull(match.action);
-        assertTrue(match.params.isEmpty());
+        assertTrue(match.params().isEmpty());
     }
 
     @Test
@@ -71,7 +72,7 @@ public class TurismoTest {
 
         Turismo.RouteMatch match = Turismo.resolve("GET", "/users/42");
         assertSame(action, match.action);
-        assertEquals("42", match.params.get("id"));
+        assertEquals("42", match.param("id"));
     }
 
     @Test
@@ -81,8 +82,8 @@ public class TurismoTest {
 
         Turismo.RouteMatch match = Turismo.resolve("GET", "/users/7/posts/99");
         assertSame(action, match.action);
-        assertEquals("7", match.params.get("userId"));
-        assertEquals("99", match.params.get("postId"));
+        assertEquals("7", match.param("userId"));
+        assertEquals("99", match.param("postId"));
     }
 
     @Test
@@ -92,7 +93,7 @@ public class TurismoTest {
 
         Turismo.RouteMatch match = Turismo.resolve("GET", "/files/report/download");
         assertSame(action, match.action);
-        assertTrue(match.params.isEmpty());
+        assertTrue(match.params().isEmpty());
     }
 
     @Test
@@ -101,7 +102,7 @@ public class TurismoTest {
 
         Turismo.RouteMatch match = Turismo.resolve("POST", "/users/42");
         // Should fall through to not-found
-        assertEquals(0, match.params.size());
+        assertEquals(0, match.params().size());
     }
 
     @Test
@@ -110,7 +111,7 @@ public class TurismoTest {
 
         // Too many segments
         Turismo.RouteMatch match = Turismo.resolve("GET", "/users/42/extra");
-        assertTrue(match.params.isEmpty());
+        assertTrue(match.params().isEmpty());
     }
 
     @Test
@@ -124,6 +125,55 @@ public class TurismoTest {
         assertSame(exact, Turismo.resolve("GET", "/users/admin").action);
     }
 
+    @Test
+    public void testFirstRegisteredPatternWins() {
+        Runnable first = () -> {};
+        Runnable second = () -> {};
+        Turismo.get("/a/:x/c", first);
+        Turismo.get("/a/b/:y", second);
+
+        // Both match; the earlier registration wins even though the
+        // later one has a literal segment in the contested position
+        Turismo.RouteMatch match = Turismo.resolve("GET", "/a/b/c");
+        assertSame(first, match.action);
+        assertEquals("b", match.param("x"));
+        assertSame(second, Turismo.resolve("GET", "/a/b/d").action);
+    }
+
+    @Test
+    public void testParamAndWildcardShareSegmentPosition() {
+        Runnable param = () -> {};
+        Runnable wildcard = () -> {};
+        Turismo.get("/files/:name", param);
+        Turismo.get("/files/*", wildcard);
+
+        assertSame(param, Turismo.resolve("GET", "/files/a.txt").action);
+    }
+
+    @Test
+    public void testPatternRouteTrailingSlash() {
+        Runnable action = () -> {};
+        Turismo.get("/users/:id", action);
+
+        // Same segmentation as String.split: trailing empties are dropped
+        assertSame(action, Turismo.resolve("GET", "/users/42/").action);
+        assertEquals("42", Turismo.resolve("GET", "/users/42/").param("id"));
+    }
+
+    @Test
+    public void testManyPatternRoutes() {
+        for (int i = 0; i < 2000; i++) {
+            Turismo.get("/tenants/:t/orders" + i + "/:id", () -> {});
+        }
+        Runnable last = () -> {};
+        Turismo.get("/tenants/:t/invoices/:id", last);
+
+        Turismo.RouteMatch match = Turismo.resolve("GET", "/tenants/acme/invoices/7");
+        assertSame(last, match.action);
+        assertEquals("acme", match.param("t"));
+        assertEquals("7", match.param("id"));
+    }
+
     @Test
     public void testCustomNotFoundHandler() {
         Runnable custom = () -> {};
@@ -159,7 +209,47 @@ public class TurismoTest {
 
         // Should be not-found now
         Turismo.RouteMatch match = Turismo.resolve("GET", "/hello");
-        assertTrue(match.params.isEmpty());
+        assertTrue(match.params().isEmpty());
+    }
+
+    @Test
+    public void testFreezeKeepsRegisteredRoutes() {
+        Runnable exact = () -> {};
+        Runnable pattern = () -> {};
+        Turismo.get("/hello", exact);
+        Turismo.get("/users/:id", pattern);
+        Turismo.freeze();
+
+        assertSame(exact, Turismo.resolve("GET", "/hello").action);
+        Turismo.RouteMatch match = Turismo.resolve("GET", "/users/5");
+        assertSame(pattern, match.action);
+        assertEquals("5", match.param("id"));
+    }
+
+    @Test
+    public void testRouteAfterFreezeRebuildsTable() {
+        Turismo.get("/before", () -> {});
+        Turismo.freeze();
+
+        Runnable after = () -> {};
+        Runnable custom = () -> {};
+        Turismo.get("/after/:id", after);
+        Turismo.notFound(custom);
+
+        assertSame(after, Turismo.resolve("GET", "/after/1").action);
+        assertSame(custom, Turismo.resolve("GET", "/missing").action);
+    }
+
+    @Test
+    public void testResetAfterFreeze() {
+        Turismo.get("/hello", () -> {});
+        Turismo.freeze();
+        Turismo.reset();
+
+        Runnable action = () -> {};
+        Turismo.get("/other", action);
+        assertSame(action, Turismo.resolve("GET", "/other").action);
+        assertNotSame(action, Turismo.resolve("GET", "/hello").action);
     }
 
     // ---------------------------------------------------------------
@@ -296,6 +386,52 @@ public class TurismoTest {
         assertEquals(200, ctx.statusCode);
     }
 
+    @Test
+    public void testGetStringBodyHeaders() {
+        MockContext ctx = new MockContext("GET", "/hello");
+        Turismo.get("/hello", "Hello World!");
+
+        Turismo.handle(ctx);
+        assertEquals("text/plain; charset=utf-8", ctx.responseHeaders.get("Content-Type"));
+        String etag = ctx.responseHeaders.get("ETag");
+        assertEquals(StaticResponse.etag("Hello World!".getBytes(StandardCharsets.UTF_8)), etag);
+        assertTrue(etag.matches("\"[0-9a-f]{32}\""));
+    }
+
+    @Test
+    public void testGetStringBodyNotModified() {
+        Turismo.get("/hello", "Hello World!");
+        MockContext first = new MockContext("GET", "/hello");
+        Turismo.handle(first);
+        String etag = first.responseHeaders.get("ETag");
+
+        for (String header : new String[] {etag, "W/" + etag, "\"x\", " + etag, "*"}) {
+            MockContext ctx = new MockContext("GET", "/hello");
+            ctx.requestHeaders.put("If-None-Match", header);
+            Turismo.handle(ctx);
+            assertEquals(header, 304, ctx.statusCode);
+            assertEquals("", ctx.printed.toString());
+            assertEquals(etag, ctx.responseHeaders.get("ETag"));
+        }
+
+        MockContext stale = new MockContext("GET", "/hello");
+        stale.requestHeaders.put("If-None-Match", "\"other\"");
+        Turismo.handle(stale);
+        assertEquals(200, stale.statusCode);
+        assertEquals("Hello World!", stale.printed.toString());
+    }
+
+    @Test
+    public void testPostStringBodyIgnoresIfNoneMatch() {
+        Turismo.post("/create", "Created!");
+        MockContext ctx = new MockContext("POST", "/create");
+        ctx.requestHeaders.put("If-None-Match", "*");
+        Turismo.handle(ctx);
+        assertEquals(201, ctx.statusCode);
+        assertEquals("Created!", ctx.printed.toString());
+        assertNull(ctx.responseHeaders.get("ETag"));
+    }
+
     @Test
     public void testPostStringBody() {
         MockContext ctx = new MockContext("POST", "/create");
@@ -528,6 +664,53 @@ public class TurismoTest {
         assertNull(p.match("/a/b/c".split("/")));
     }
 
+    @Test
+    public void testPathPatternSegmentsLikeSplit() {
+        int[] bounds = new int[16];
+        for (String path : new String[] {
+                "", "/", "//", "a", "/a", "/a/", "/a//b", "a/b//", "/a/b/c" }) {
+            String[] parts = path.split("/");
+            int count = PathPattern.segments(path, bounds);
+            assertEquals(path, parts.length, count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(path, parts[i],
+                        path.substring(bounds[2 * i], bounds[2 * i + 1]));
+            }
+        }
+    }
+
+    @Test
+    public void testPathPatternSegmentsReportsOverflow() {
+        int[] bounds = new int[2];
+        assertEquals(3, PathPattern.segments("/a/b", bounds));
+    }
+
+    @Test
+    public void testPathPatternMatchByIndex() {
+        PathPattern p = new PathPattern("/users/:id/posts/:postId");
+        int[] bounds = new int[16];
+        String path = "/users/42/posts/7";
+        int count = PathPattern.segments(path, bounds);
+        assertTrue(p.match(path, bounds, count));
+        assertEquals("42", p.param("id", path, bounds));
+        assertEquals("7", p.param("postId", path, bounds));
+        assertNull(p.param("missing", path, bounds));
+        assertEquals(p.match(path.split("/")), p.params(path, bounds));
+
+        String other = "/users/42/comments/7";
+        assertFalse(p.match(other, bounds, PathPattern.segments(other, bounds)));
+    }
+
+    @Test
+    public void testPathPatternDuplicateNameLastWins() {
+        PathPattern p = new PathPattern("/:a/:a");
+        int[] bounds = new int[16];
+        String path = "/x/y";
+        assertTrue(p.match(path, bounds, PathPattern.segments(path, bounds)));
+        assertEquals("y", p.param("a", path, bounds));
+        assertEquals("y", p.match(path.split("/")).get("a"));
+    }
+
     // ---------------------------------------------------------------
     // Annotation-based controller registration
     // ---------------------------------------------------------------
@@ -619,6 +802,72 @@ public class TurismoTest {
         Turismo.controller(new Object());
     }
 
+    @Test
+    public void testControllerCheckedExceptionWrapped() {
+        MockContext ctx = new MockContext("GET", "/checked");
+        Turismo.controller(new CheckedController());
+
+        try {
+            Turismo.handle(ctx);
+            fail("Expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof java.io.IOException);
+            assertEquals("checked", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testControllerPrivateStaticAndNonVoid() {
+        Turismo.controller(new PrivateController());
+
+        MockContext ctx = new MockContext("GET", "/private");
+        Turismo.handle(ctx);
+        assertEquals("private", ctx.printed.toString());
+
+        ctx = new MockContext("GET", "/static");
+        Turismo.handle(ctx);
+        assertEquals("static", ctx.printed.toString());
+
+        ctx = new MockContext("GET", "/value");
+        Turismo.handle(ctx);
+        assertEquals("value", ctx.printed.toString());
+    }
+
+    @Test
+    public void testControllerBoundWithoutReflection() {
+        Turismo.scanController(new TestController());
+        Runnable action = Turismo.resolve("GET", "/ctrl/hello").action;
+        // a lambda spun in the controller's nest, not a wrapper in Turismo
+        assertTrue(action.getClass().isHidden());
+        assertSame(TurismoTest.class, action.getClass().getNestHost());
+    }
+
+    @Test
+    public void testControllerUsesGeneratedRoutes() {
+        Turismo.controller(new TestController());
+        Runnable action = Turismo.resolve("GET", "/ctrl/hello").action;
+        assertSame(TurismoTest_TestController_Routes.class,
+                action.getClass().getNestHost());
+    }
+
+    @Test
+    public void testControllerScanMatchesGeneratedRoutes() {
+        Turismo.scanController(new TestController());
+        MockContext ctx = new MockContext("POST", "/ctrl/items");
+        Turismo.handle(ctx);
+        assertEquals(201, ctx.statusCode);
+        assertEquals("created", ctx.printed.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testControllerMethodWithParametersThrows() {
+        Turismo.controller(new Object() {
+            @GET("/args")
+            void args(String s) {
+            }
+        });
+    }
+
     /** Test controller used by annotation tests. */
     static class TestController {
         @GET("/ctrl/hello")
@@ -657,6 +906,31 @@ public class TurismoTest {
         }
     }
 
+    static class CheckedController {
+        @GET("/checked")
+        void checked() throws java.io.IOException {
+            throw new java.io.IOException("checked");
+        }
+    }
+
+    private static final class PrivateController {
+        @GET("/private")
+        private void hidden() {
+            Turismo.print("private");
+        }
+
+        @GET("/static")
+        static void shared() {
+            Turismo.print("static");
+        }
+
+        @GET("/value")
+        String value() {
+            Turismo.print("value");
+            return "ignored";
+        }
+    }
+
     // ---------------------------------------------------------------
     // Mock context for unit tests
     // ---------------------------------------------------------------
@@ -685,5 +959,8 @@ public class TurismoTest {
         @Override public void header(String name, String value) { responseHeaders.put(name, value); }
         @Override public void print(String text) { printed.append(text); }
         @Override public OutputStream output() { return outputStream; }
+        @Override public void send(byte[] body) {
+            printed.append(new String(body, StandardCharsets.UTF_8));
+        }
     }
 }
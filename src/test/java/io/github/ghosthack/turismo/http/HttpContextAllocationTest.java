@@ -0,0 +1,117 @@
+package io.github.ghosthack.turismo.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import io.github.ghosthack.turismo.Allocations;
+import io.github.ghosthack.turismo.Turismo;
+
+public class HttpContextAllocationTest {
+
+    /** Exchange over reused buffers, as the server would hand one out. */
+    static final class MemoryExchange extends HttpExchange {
+        final Headers requestHeaders = new Headers();
+        final Headers responseHeaders = new Headers();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        String method;
+        URI uri;
+        int status;
+
+        MemoryExchange request(String method, URI uri) {
+            this.method = method;
+            this.uri = uri;
+            status = -1;
+            responseHeaders.clear();
+            out.reset();
+            return this;
+        }
+
+        @Override public Headers getRequestHeaders() { return requestHeaders; }
+        @Override public Headers getResponseHeaders() { return responseHeaders; }
+        @Override public URI getRequestURI() { return uri; }
+        @Override public String getRequestMethod() { return method; }
+        @Override public com.sun.net.httpserver.HttpContext getHttpContext() { return null; }
+        @Override public void close() { }
+        @Override public InputStream getRequestBody() { return InputStream.nullInputStream(); }
+        @Override public OutputStream getResponseBody() { return out; }
+        @Override public void sendResponseHeaders(int code, long length) { status = code; }
+        @Override public InetSocketAddress getRemoteAddress() { return null; }
+        @Override public int getResponseCode() { return status; }
+        @Override public InetSocketAddress getLocalAddress() { return null; }
+        @Override public String getProtocol() { return "HTTP/1.1"; }
+        @Override public Object getAttribute(String name) { return null; }
+        @Override public void setAttribute(String name, Object value) { }
+        @Override public void setStreams(InputStream i, OutputStream o) { }
+        @Override public HttpPrincipal getPrincipal() { return null; }
+    }
+
+    private final MemoryExchange exchange = new MemoryExchange();
+
+    @Before
+    public void setUp() {
+        Turismo.reset();
+        Turismo.get("/hello", "Hello World!");
+        Turismo.get("/text", () -> Turismo.print("Hello World!"));
+        Turismo.get("/users/:id", () -> Turismo.print(Turismo.param("id")));
+        Turismo.freeze();
+    }
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    private void assertBudget(String path, long budget) {
+        URI uri = URI.create(path);
+        Allocations.assertBudget(path, budget, () -> {
+            HttpContext ctx = new HttpContext(exchange.request("GET", uri));
+            Turismo.handle(ctx);
+            try {
+                ctx.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testStringRoute() {
+        assertBudget("/hello", 1024);
+        assertEquals(200, exchange.status);
+        assertEquals("Hello World!", exchange.out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPrint() {
+        assertBudget("/text", 256);
+        assertEquals("Hello World!", exchange.out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testParamRoute() {
+        assertBudget("/users/42", 384);
+        assertEquals("42", exchange.out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNotFound() {
+        assertBudget("/missing", 256);
+        assertEquals(404, exchange.status);
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.ghosthack.turismo.http;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ResponseBufferTest {
+
+    private static byte[] bytes(ResponseBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static void assertUtf8(String s) throws IOException {
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.writeUtf8(s);
+        byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, buffer.size());
+        assertArrayEquals(expected, bytes(buffer));
+        buffer.release();
+    }
+
+    @Test
+    public void testUtf8MatchesGetBytes() throws IOException {
+        assertUtf8("");
+        assertUtf8("hello");
+        assertUtf8("café ñandú");
+        assertUtf8("€100 中文");
+        assertUtf8("emoji 😀 end");
+    }
+
+    @Test
+    public void testUnpairedSurrogates() throws IOException {
+        assertUtf8("a\ud83db");
+        assertUtf8("a\ude00b");
+        assertUtf8("trailing\ud83d");
+    }
+
+    @Test
+    public void testUtf8AcrossSegments() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ResponseBuffer.SEGMENT_SIZE * 3; i++) {
+            sb.append(i % 7 == 0 ? "é" : i % 11 == 0 ? "😀" : "x");
+        }
+        assertUtf8(sb.toString());
+        assertUtf8("y".repeat(ResponseBuffer.SEGMENT_SIZE - 1) + "€");
+    }
+
+    @Test
+    public void testWriteBytesAcrossSegments() throws IOException {
+        byte[] data = new byte[ResponseBuffer.SEGMENT_SIZE * 2 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.write(data, 0, 5);
+        buffer.write(data, 5, data.length - 6);
+        buffer.write(data[data.length - 1]);
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, bytes(buffer));
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.writeUtf8("x".repeat(ResponseBuffer.SEGMENT_SIZE + 1));
+        buffer.reset();
+        assertEquals(0, buffer.size());
+        assertEquals(0, bytes(buffer).length);
+        buffer.writeUtf8("after");
+        assertEquals("after", new String(bytes(buffer), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPooledSegmentSize() {
+        byte[] segment = ResponseBuffer.POOL.acquire();
+        assertEquals(ResponseBuffer.SEGMENT_SIZE, segment.length);
+        ResponseBuffer.POOL.release(segment);
+    }
+}
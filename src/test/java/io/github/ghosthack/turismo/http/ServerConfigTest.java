@@ -0,0 +1,170 @@
+package io.github.ghosthack.turismo.http;
+
+import static org.junit.Assert.*;
+
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.Turismo;
+
+public class ServerConfigTest {
+
+    private Properties saved;
+
+    @Before
+    public void setUp() {
+        saved = (Properties) System.getProperties().clone();
+    }
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+        System.setProperties(saved);
+    }
+
+    @Test
+    public void testDefaults() {
+        ServerConfig config = ServerConfig.builder().build();
+        assertEquals(0, config.port());
+        assertNull(config.bindAddress());
+        assertEquals(ServerConfig.DEFAULT_BACKLOG, config.backlog());
+        assertNull(config.executor());
+        assertEquals(Duration.ZERO, config.stopGrace());
+        assertNull(config.idleTimeout());
+        assertNull(config.requestTimeout());
+        assertNull(config.responseTimeout());
+        assertEquals(-1, config.maxIdleConnections());
+        assertEquals(-1, config.maxConnections());
+        assertNull(config.tcpNoDelay());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPort() {
+        ServerConfig.builder().port(70000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBacklog() {
+        ServerConfig.builder().backlog(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeStopGrace() {
+        ServerConfig.builder().stopGrace(Duration.ofSeconds(-1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroIdleTimeout() {
+        ServerConfig.builder().idleTimeout(Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMaxConnections() {
+        ServerConfig.builder().maxConnections(0);
+    }
+
+    @Test
+    public void testSecondsRoundUp() {
+        assertEquals(0, ServerConfig.seconds(Duration.ZERO));
+        assertEquals(1, ServerConfig.seconds(Duration.ofMillis(1)));
+        assertEquals(2, ServerConfig.seconds(Duration.ofMillis(1500)));
+        assertEquals(3, ServerConfig.seconds(Duration.ofSeconds(3)));
+    }
+
+    @Test
+    public void testApplySystemProperties() {
+        ServerConfig.builder()
+                .idleTimeout(Duration.ofSeconds(45))
+                .requestTimeout(Duration.ofMillis(2500))
+                .responseTimeout(Duration.ofSeconds(10))
+                .maxIdleConnections(50)
+                .maxConnections(500)
+                .tcpNoDelay(false)
+                .build()
+                .applySystemProperties();
+        assertEquals("45", System.getProperty("sun.net.httpserver.idleInterval"));
+        assertEquals("3", System.getProperty("sun.net.httpserver.maxReqTime"));
+        assertEquals("10", System.getProperty("sun.net.httpserver.maxRspTime"));
+        assertEquals("50", System.getProperty("sun.net.httpserver.maxIdleConnections"));
+        assertEquals("500", System.getProperty("jdk.httpserver.maxConnections"));
+        assertEquals("false", System.getProperty("sun.net.httpserver.nodelay"));
+    }
+
+    @Test
+    public void testNoDelayDefaultKeepsCommandLineValue() {
+        System.clearProperty("sun.net.httpserver.nodelay");
+        ServerConfig.builder().build().applySystemProperties();
+        assertEquals("true", System.getProperty("sun.net.httpserver.nodelay"));
+
+        System.setProperty("sun.net.httpserver.nodelay", "false");
+        ServerConfig.builder().build().applySystemProperties();
+        assertEquals("false", System.getProperty("sun.net.httpserver.nodelay"));
+    }
+
+    @Test
+    public void testUnsetPropertiesLeftAlone() {
+        System.clearProperty("sun.net.httpserver.idleInterval");
+        ServerConfig.builder().build().applySystemProperties();
+        assertNull(System.getProperty("sun.net.httpserver.idleInterval"));
+    }
+
+    @Test
+    public void testStartWithConfig() throws Exception {
+        Turismo.get("/ping", () -> Turismo.print("pong"));
+        Turismo.start(ServerConfig.builder()
+                .bindAddress(InetAddress.getLoopbackAddress())
+                .backlog(16)
+                .build());
+        try {
+            HttpURLConnection conn = (HttpURLConnection) URI.create(
+                    "http://127.0.0.1:" + Turismo.port() + "/ping")
+                    .toURL().openConnection();
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("pong", new String(conn.getInputStream().readAllBytes(),
+                    StandardCharsets.UTF_8));
+        } finally {
+            Turismo.stop();
+        }
+    }
+
+    @Test
+    public void testStopGraceLetsRequestFinish() throws Exception {
+        Turismo.get("/slow", () -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Turismo.print("done");
+        });
+        Server server = new Server(ServerConfig.builder()
+                .stopGrace(Duration.ofSeconds(5))
+                .build());
+        server.start();
+        String[] body = new String[1];
+        Thread client = new Thread(() -> {
+            try {
+                HttpURLConnection conn = (HttpURLConnection) URI.create(
+                        "http://localhost:" + server.port() + "/slow")
+                        .toURL().openConnection();
+                body[0] = new String(conn.getInputStream().readAllBytes(),
+                        StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                body[0] = e.toString();
+            }
+        });
+        client.start();
+        Thread.sleep(100);
+        server.stop();
+        client.join(5000);
+        assertEquals("done", body[0]);
+    }
+}
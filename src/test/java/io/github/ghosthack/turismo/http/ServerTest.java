@@ -3,10 +3,23 @@ package io.github.ghosthack.turismo.http;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.After;
 import org.junit.Test;
@@ -81,6 +94,152 @@ public class ServerTest {
         }
     }
 
+    @Test
+    public void testStaticBody() throws Exception {
+        String text = "ok ✓ ".repeat(20000); // above the stream threshold
+        Turismo.get("/health", text);
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/health");
+            assertEquals(200, conn.getResponseCode());
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            assertEquals(String.valueOf(bytes.length),
+                    conn.getHeaderField("Content-Length"));
+            assertEquals("text/plain; charset=utf-8", conn.getContentType());
+            assertEquals(text, read(conn));
+            String etag = conn.getHeaderField("ETag");
+            assertNotNull(etag);
+
+            conn = open(server, "/health");
+            conn.setRequestProperty("If-None-Match", etag);
+            assertEquals(304, conn.getResponseCode());
+            assertEquals(etag, conn.getHeaderField("ETag"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testSendThenPrint() throws Exception {
+        Turismo.get("/mixed", () -> {
+            Turismo.send("a".getBytes(StandardCharsets.UTF_8));
+            Turismo.print("b");
+            Turismo.send("c".getBytes(StandardCharsets.UTF_8));
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/mixed");
+            assertEquals("abc", read(conn));
+            assertEquals("3", conn.getHeaderField("Content-Length"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testJsonStream() throws Exception {
+        Turismo.get("/rows", () -> Turismo.jsonStream(
+                IntStream.range(0, 50000).mapToObj(i -> Map.of("id", i))));
+        Turismo.get("/lines", () -> Turismo.ndjson(List.of(1, "two").iterator()));
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/rows");
+            assertEquals("application/json", conn.getContentType());
+            assertEquals("chunked", conn.getHeaderField("Transfer-Encoding"));
+            String body = read(conn);
+            assertTrue(body.startsWith("[{\"id\":0},{\"id\":1},"));
+            assertTrue(body.endsWith(",{\"id\":49999}]"));
+
+            conn = open(server, "/lines");
+            assertEquals("application/x-ndjson", conn.getContentType());
+            assertEquals("1\n\"two\"\n", read(conn));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testJsonStreamStopsWhenClientDisconnects() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Stream<String> endless = Stream.generate(() -> {
+            pulled.incrementAndGet();
+            return "row".repeat(30);
+        }).onClose(done::countDown);
+        Turismo.get("/endless", () -> Turismo.ndjson(endless));
+        Server server = startServer();
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.getOutputStream().write(("GET /endless HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertTrue(in.readNBytes(64 * 1024).length > 0);
+            socket.setSoLinger(true, 0); // reset rather than close politely
+        }
+        try {
+            assertTrue("stream not closed", done.await(10, TimeUnit.SECONDS));
+            int after = pulled.get();
+            Thread.sleep(200);
+            assertEquals(after, pulled.get());
+        } finally {
+            server.stop();
+        }
+    }
+
+    record Greeting(String name, int times) { }
+
+    @Test
+    public void testBodyJson() throws Exception {
+        Turismo.post("/greet", () -> {
+            try {
+                Greeting g = Turismo.bodyJson(Greeting.class);
+                Turismo.json(Map.of("text", (g.name() + "!").repeat(g.times())));
+            } catch (IllegalArgumentException e) {
+                Turismo.status(400);
+                Turismo.print("Bad Request");
+            }
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/greet");
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.getOutputStream().write(
+                    "{\"name\":\"olá\",\"times\":2}".getBytes(StandardCharsets.UTF_8));
+            assertEquals(201, conn.getResponseCode());
+            assertEquals("{\"text\":\"olá!olá!\"}", read(conn));
+
+            conn = open(server, "/greet");
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.getOutputStream().write("{\"name\":".getBytes(StandardCharsets.UTF_8));
+            assertEquals(400, conn.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testDeeplyNestedBodyJsonFailsCleanly() throws Exception {
+        Turismo.post("/echo", () -> {
+            try {
+                Turismo.json(Turismo.bodyJson());
+            } catch (IllegalArgumentException e) {
+                Turismo.status(400);
+                Turismo.print("Bad Request");
+            }
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/echo");
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.getOutputStream().write("[".repeat(200_000).getBytes(StandardCharsets.US_ASCII));
+            assertEquals(400, conn.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
     @Test
     public void testNotFound() throws Exception {
         Server server = startServer();
@@ -176,6 +335,282 @@ public class ServerTest {
         }
     }
 
+    @Test
+    public void testRouteAddedAfterStart() throws Exception {
+        Turismo.get("/ping", () -> Turismo.print("pong"));
+        Turismo.start(0);
+        try {
+            Turismo.get("/late/:id", () ->
+                    Turismo.print("late=" + Turismo.param("id")));
+            HttpResult result = fetch("GET",
+                    "http://localhost:" + Turismo.port() + "/late/9");
+            assertEquals(200, result.status);
+            assertEquals("late=9", result.body);
+        } finally {
+            Turismo.stop();
+        }
+    }
+
+    @Test
+    public void testSlowRouteDoesNotBlockOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Turismo.get("/slow", () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Turismo.print("slow");
+        });
+        Turismo.get("/fast", () -> Turismo.print("fast"));
+        Server server = startServer();
+        ExecutorService clients = Executors.newSingleThreadExecutor();
+        try {
+            String base = "http://localhost:" + server.port();
+            Future<HttpResult> slow = clients.submit(() -> fetch("GET", base + "/slow"));
+            HttpResult fast = fetch("GET", base + "/fast");
+            assertEquals("fast", fast.body);
+            assertFalse(slow.isDone());
+            release.countDown();
+            assertEquals("slow", slow.get(10, TimeUnit.SECONDS).body);
+        } finally {
+            release.countDown();
+            clients.shutdownNow();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testMetricsRoute() throws Exception {
+        Turismo.get("/users/:id", () -> Turismo.print("user"));
+        Turismo.metricsRoute("/metrics");
+        Turismo.start(0);
+        try {
+            String base = "http://localhost:" + Turismo.port();
+            fetch("GET", base + "/users/1");
+            fetch("GET", base + "/users/2");
+            fetch("GET", base + "/missing");
+            HttpResult result = fetch("GET", base + "/metrics");
+            assertEquals(200, result.status);
+            assertTrue(result.body, result.body.contains(
+                    "turismo_requests_total{method=\"GET\",route=\"/users/:id\",status=\"2xx\"} 2"));
+            assertTrue(result.body, result.body.contains(
+                    "turismo_requests_total{method=\"*\",route=\"notFound\",status=\"4xx\"} 1"));
+            assertTrue(result.body, result.body.contains(
+                    "turismo_response_bytes_total{method=\"GET\",route=\"/users/:id\"} 8"));
+        } finally {
+            Turismo.stop();
+        }
+    }
+
+    @Test
+    public void testCustomExecutor() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            pool.execute(task);
+        };
+        Turismo.get("/ping", () -> Turismo.print("pong"));
+        Turismo.start(0, executor);
+        try {
+            HttpResult result = fetch("GET",
+                    "http://localhost:" + Turismo.port() + "/ping");
+            assertEquals("pong", result.body);
+            assertTrue(tasks.get() > 0);
+        } finally {
+            Turismo.stop();
+            assertFalse(pool.isShutdown());
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        ExecutorService executor = Server.defaultExecutor();
+        try {
+            Future<Boolean> virtual = executor.submit(() ->
+                    Thread.currentThread().getClass().getName().contains("Virtual"));
+            assertEquals(Runtime.version().feature() >= 21,
+                    virtual.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallResponseHasContentLength() throws Exception {
+        Turismo.get("/small", () -> Turismo.print("small"));
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/small");
+            assertEquals("5", conn.getHeaderField("Content-Length"));
+            assertNull(conn.getHeaderField("Transfer-Encoding"));
+            assertEquals("small", read(conn));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testLargeResponseStreamed() throws Exception {
+        Turismo.get("/large", () -> {
+            Turismo.header("X-Before", "yes");
+            for (int i = 0; i < 10; i++) {
+                Turismo.print("0123456789");
+            }
+        });
+        Server server = new Server(ServerConfig.builder()
+                .streamThreshold(32).build());
+        server.start();
+        try {
+            HttpURLConnection conn = open(server, "/large");
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("chunked", conn.getHeaderField("Transfer-Encoding"));
+            assertNull(conn.getHeaderField("Content-Length"));
+            assertEquals("yes", conn.getHeaderField("X-Before"));
+            assertEquals("0123456789".repeat(10), read(conn));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testStreamOptIn() throws Exception {
+        Turismo.get("/stream", () -> {
+            Turismo.status(202);
+            Turismo.stream();
+            Turismo.print("a");
+            Turismo.print("b");
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/stream");
+            assertEquals(202, conn.getResponseCode());
+            assertEquals("chunked", conn.getHeaderField("Transfer-Encoding"));
+            assertEquals("ab", read(conn));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testStreamFlushSendsFirstBytes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Turismo.get("/ttfb", () -> {
+            Turismo.stream();
+            Turismo.print("first");
+            try {
+                Turismo.output().flush();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            Turismo.print("-last");
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/ttfb");
+            InputStream in = conn.getInputStream();
+            byte[] first = new byte[5];
+            int n = 0;
+            while (n < first.length) {
+                n += in.read(first, n, first.length - n);
+            }
+            assertEquals("first", new String(first, StandardCharsets.UTF_8));
+            release.countDown();
+            assertEquals("-last", new String(in.readAllBytes(),
+                    StandardCharsets.UTF_8));
+        } finally {
+            release.countDown();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testExceptionAfterStreamAbortsResponse() throws Exception {
+        Turismo.get("/broken", () -> {
+            Turismo.stream();
+            Turismo.print("partial");
+            throw new RuntimeException("boom");
+        });
+        Server server = startServer();
+        try {
+            HttpURLConnection conn = open(server, "/broken");
+            assertEquals(200, conn.getResponseCode());
+            try {
+                read(conn);
+                fail("truncated body read as complete");
+            } catch (IOException expected) {
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testErrorAfterFlushOmitsTerminatingChunk() throws Exception {
+        Turismo.get("/broken", () -> {
+            Turismo.stream();
+            Turismo.print("partial");
+            try {
+                Turismo.output().flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            throw new AssertionError("boom");
+        });
+        Server server = startServer();
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(("GET /broken HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String response = new String(socket.getInputStream().readAllBytes(),
+                    StandardCharsets.US_ASCII);
+            assertTrue(response, response.startsWith("HTTP/1.1 200"));
+            assertTrue(response, response.endsWith("\r\n\r\n7\r\npartial\r\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testErrorBeforeStreamDropsConnection() throws Exception {
+        Turismo.get("/error", () -> {
+            Turismo.print("partial");
+            throw new AssertionError("boom");
+        });
+        Turismo.get("/ok", () -> Turismo.print("ok"));
+        Server server = startServer();
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(("GET /error HTTP/1.1\r\n"
+                    + "Host: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            assertEquals(0, socket.getInputStream().readAllBytes().length);
+            assertEquals("ok", fetch("GET",
+                    "http://localhost:" + server.port() + "/ok").body);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testHeadStreamed() throws Exception {
+        Turismo.head("/head", () -> {
+            Turismo.stream();
+            Turismo.print("ignored");
+        });
+        Server server = startServer();
+        try {
+            HttpResult result = fetch("HEAD",
+                    "http://localhost:" + server.port() + "/head");
+            assertEquals(200, result.status);
+            assertEquals("", result.body);
+        } finally {
+            server.stop();
+        }
+    }
+
     // ---------------------------------------------------------------
     // Helpers
     // ---------------------------------------------------------------
@@ -186,6 +621,17 @@ public class ServerTest {
         return server;
     }
 
+    private HttpURLConnection open(Server server, String path) throws IOException {
+        return (HttpURLConnection) URI.create(
+                "http://localhost:" + server.port() + path)
+                .toURL().openConnection();
+    }
+
+    private String read(HttpURLConnection conn) throws IOException {
+        return new String(conn.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+    }
+
     private HttpResult fetch(String method, String urlStr) throws Exception {
         HttpURLConnection conn = (HttpURLConnection)
                 URI.create(urlStr).toURL().openConnection();
@@ -0,0 +1,307 @@
+package io.github.ghosthack.turismo.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JsonReaderTest {
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new ByteArrayInputStream(
+                json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Object parse(String json) {
+        return JsonReader.fromJson(json, Object.class);
+    }
+
+    /** Delivers one byte per read, to exercise every buffer boundary. */
+    private static InputStream trickle(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    @Test
+    public void testScalars() {
+        assertNull(parse("null"));
+        assertEquals(true, parse("true"));
+        assertEquals(false, parse(" false "));
+        assertEquals("hi", parse("\"hi\""));
+        assertEquals(0L, parse("0"));
+        assertEquals(-42L, parse("-42"));
+        assertEquals(Long.MAX_VALUE, parse("9223372036854775807"));
+        assertEquals(Long.MIN_VALUE, parse("-9223372036854775808"));
+        assertEquals(9223372036854775808.0, parse("9223372036854775808"));
+        assertEquals(1.5, parse("1.5"));
+        assertEquals(-0.0, parse("-0.0"));
+        assertEquals(1e10, parse("1E10"));
+        assertEquals(2.5e-3, parse("25e-4"));
+        assertEquals(100.0, parse("1e+2"));
+    }
+
+    @Test
+    public void testStrings() {
+        assertEquals("quote\"back\\slash/", parse("\"quote\\\"back\\\\slash\\/\""));
+        assertEquals("\b\f\n\r\t", parse("\"\\b\\f\\n\\r\\t\""));
+        assertEquals("\u0001é", parse("\"\\u0001\\u00E9\""));
+        assertEquals("😀", parse("\"\\ud83d\\ude00\""));
+        assertEquals("café € 中文 😀", parse("\"café € 中文 😀\""));
+        assertEquals("", parse("\"\""));
+    }
+
+    @Test
+    public void testMalformedUtf8IsReplaced() throws IOException {
+        byte[] bytes = {'"', 'a', (byte) 0xC3, 'b', (byte) 0xFF, '"'};
+        assertEquals("a\uFFFDb\uFFFD", JsonReader.fromJson(
+                new ByteArrayInputStream(bytes), String.class));
+    }
+
+    @Test
+    public void testObjectsAndArrays() {
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("name", "turismo");
+        expected.put("version", 3L);
+        expected.put("tags", Arrays.asList("a", "b"));
+        expected.put("nested", Map.of("ok", true));
+        expected.put("none", null);
+        expected.put("empty", List.of());
+        assertEquals(expected, parse("{\"name\":\"turismo\", \"version\" : 3,"
+                + "\n\t\"tags\":[\"a\",\"b\"],\"nested\":{\"ok\":true},"
+                + "\"none\":null,\"empty\":[]}"));
+        assertEquals(Map.of(), parse("{ }"));
+    }
+
+    @Test
+    public void testRoundTripAcrossBufferBoundaries() throws IOException {
+        Random random = new Random(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append((char) (0x20 + random.nextInt(0x3000)));
+        }
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("text", sb.toString());
+        value.put("emoji", "😀".repeat(2000));
+        value.put("numbers", List.of(1L, -2L, 3.25, 1234567890123L));
+        value.put("nested", List.of(Map.of("a", List.of()), "x".repeat(5000)));
+        String json = JsonWriter.toJson(value);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertEquals(value, JsonReader.fromJson(
+                new ByteArrayInputStream(bytes), Object.class));
+        assertEquals(value, JsonReader.fromJson(trickle(bytes), Object.class));
+    }
+
+    @Test
+    public void testPullApi() throws IOException {
+        JsonReader r = reader("{\"a\":[1,2.5,\"x\"],\"b\":{\"skip\":[{}]},\"c\":null}");
+        assertEquals(JsonReader.Token.BEGIN_OBJECT, r.peek());
+        r.beginObject();
+        assertEquals("a", r.nextName());
+        r.beginArray();
+        assertEquals(1, r.nextInt());
+        assertEquals(2.5, r.nextDouble(), 0);
+        assertEquals("x", r.nextString());
+        assertFalse(r.hasNext());
+        r.endArray();
+        assertEquals("b", r.nextName());
+        r.skipValue();
+        assertEquals("c", r.nextName());
+        r.nextNull();
+        r.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, r.peek());
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        JsonReader r = reader("[1]");
+        assertEquals(List.of(1L), r.readValue());
+        r.reset(new ByteArrayInputStream("\"again\"".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("again", r.nextString());
+    }
+
+    @Test
+    public void testReadDocumentReusedAfterFailure() throws IOException {
+        JsonReader r = reader("[1] 2");
+        try {
+            r.readDocument(Object.class);
+            fail("trailing value accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        String longString = "x".repeat(10_000);
+        r.reset(new ByteArrayInputStream(("\"" + longString + "\"")
+                .getBytes(StandardCharsets.UTF_8)));
+        assertEquals(longString, r.readDocument(String.class));
+        r.reset(new ByteArrayInputStream("{\"a\": [true]}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Map.of("a", List.of(true)), r.readDocument(Map.class));
+    }
+
+    @Test
+    public void testFromJsonAfterFailure() {
+        try {
+            JsonReader.fromJson("[[1, 2", Object.class);
+            fail("unterminated array accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(List.of(3L), JsonReader.fromJson("[3]", Object.class));
+    }
+
+    @Test
+    public void testMalformed() {
+        for (String json : new String[] {"", "   ", "{", "[1,]", "[1 2]",
+                "{\"a\"}", "{\"a\":1,}", "{,}", "{1:2}", "tru", "nul",
+                "\"open", "01", "-", "1.", "1e", ".5", "[1]]", "{} {}",
+                "\"\\x\"", "\"\\u12\"", "\"tab\there\"", "'single'"}) {
+            try {
+                parse(json);
+                fail("Expected failure for: " + json);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage(),
+                        expected.getMessage().contains("offset"));
+            }
+        }
+    }
+
+    @Test
+    public void testDeepNesting() {
+        int max = JsonReader.MAX_DEPTH;
+        String json = "[".repeat(max) + "]".repeat(max);
+        Object value = parse(json);
+        for (int i = 0; i < max - 1; i++) {
+            value = ((List<?>) value).get(0);
+        }
+        assertEquals(List.of(), value);
+    }
+
+    @Test
+    public void testTooDeepNestingFails() throws IOException {
+        int max = JsonReader.MAX_DEPTH;
+        String[] bodies = {"[".repeat(max + 1) + "]".repeat(max + 1),
+                "[".repeat(200_000), "{\"a\":".repeat(200_000)};
+        for (String json : bodies) {
+            try {
+                parse(json);
+                fail("Expected failure for depth " + json.length());
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage(),
+                        expected.getMessage().startsWith("Nesting deeper than " + max));
+            }
+        }
+        JsonReader r = reader("[".repeat(200_000));
+        try {
+            r.skipValue();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            JsonReader.fromJson("[".repeat(200_000), Object[].class);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            JsonReader.fromJson("{\"tags\":" + "[".repeat(200_000), Map.class);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Binding
+    // ---------------------------------------------------------------
+
+    enum Kind { BOOK, MUSIC }
+
+    record Item(String name, int quantity, double price, boolean gift,
+            Kind kind, char grade, Long optional) { }
+
+    private record Order(long id, List<Item> items, Map<String, List<Integer>> tags,
+            int[] codes, Item[] extra) { }
+
+    record Node(String name, List<Node> children) { }
+
+    @Test
+    public void testBindRecord() {
+        Item item = JsonReader.fromJson("{\"name\":\"pen\",\"quantity\":2,"
+                + "\"price\":1.5,\"gift\":true,\"kind\":\"BOOK\",\"grade\":\"A\","
+                + "\"optional\":7}", Item.class);
+        assertEquals(new Item("pen", 2, 1.5, true, Kind.BOOK, 'A', 7L), item);
+    }
+
+    @Test
+    public void testBindMissingAndUnknownProperties() {
+        Item item = JsonReader.fromJson("{\"unknown\":{\"deep\":[1,{\"x\":\"y\"}]},"
+                + "\"name\":\"pen\"}", Item.class);
+        assertEquals(new Item("pen", 0, 0.0, false, null, '\0', null), item);
+    }
+
+    @Test
+    public void testBindNestedGenerics() {
+        Order order = JsonReader.fromJson("{\"id\":9,\"items\":[{\"name\":\"a\"},"
+                + "{\"name\":\"b\",\"quantity\":3}],\"tags\":{\"x\":[1,2]},"
+                + "\"codes\":[4,5],\"extra\":[null]}", Order.class);
+        assertEquals(9, order.id());
+        assertEquals("b", order.items().get(1).name());
+        assertEquals(3, order.items().get(1).quantity());
+        assertEquals(Map.of("x", List.of(1, 2)), order.tags());
+        assertArrayEquals(new int[] {4, 5}, order.codes());
+        assertArrayEquals(new Item[] {null}, order.extra());
+    }
+
+    @Test
+    public void testBindRecursiveRecord() {
+        Node node = JsonReader.fromJson("{\"name\":\"root\",\"children\":"
+                + "[{\"name\":\"leaf\",\"children\":[]}]}", Node.class);
+        assertEquals(new Node("root", List.of(new Node("leaf", List.of()))), node);
+    }
+
+    @Test
+    public void testBindWriterOutput() {
+        Item item = new Item("x\"y", 1, 2.0, false, Kind.MUSIC, 'z', null);
+        assertEquals(item, JsonReader.fromJson(JsonWriter.toJson(item), Item.class));
+    }
+
+    @Test
+    public void testBindCollections() {
+        assertEquals(List.of(1L, "a"), JsonReader.fromJson("[1,\"a\"]", List.class));
+        assertEquals(Map.of("k", 1L), JsonReader.fromJson("{\"k\":1}", Map.class));
+        assertArrayEquals(new String[] {"a", null},
+                JsonReader.fromJson("[\"a\",null]", String[].class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindTypeMismatch() {
+        JsonReader.fromJson("{\"quantity\":\"two\"}", Item.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindNullPrimitive() {
+        JsonReader.fromJson("{\"quantity\":null}", Item.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindIntOverflow() {
+        JsonReader.fromJson("{\"quantity\":3000000000}", Item.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindUnknownEnum() {
+        JsonReader.fromJson("{\"kind\":\"FOOD\"}", Item.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindUnsupportedType() {
+        JsonReader.fromJson("{}", Thread.class);
+    }
+}
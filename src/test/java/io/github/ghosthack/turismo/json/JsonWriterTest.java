@@ -0,0 +1,482 @@
+package io.github.ghosthack.turismo.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JsonWriterTest {
+
+    private static byte[] write(Object obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value(obj);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static void assertSameAsLegacy(Object obj) throws IOException {
+        String expected = Legacy.toJson(obj);
+        assertArrayEquals(expected, expected.getBytes(StandardCharsets.UTF_8),
+                write(obj));
+    }
+
+    @Test
+    public void testScalars() throws IOException {
+        assertSameAsLegacy(null);
+        assertSameAsLegacy("");
+        assertSameAsLegacy("hello");
+        assertSameAsLegacy(true);
+        assertSameAsLegacy(false);
+        for (long v : new long[] {0, 1, -1, 9, 10, 42, -42, 1234567890123L,
+                Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertSameAsLegacy(v);
+        }
+        assertSameAsLegacy(7);
+        assertSameAsLegacy((short) -3);
+        assertSameAsLegacy((byte) 127);
+        assertSameAsLegacy(1.5f);
+        assertSameAsLegacy(new BigDecimal("1.000"));
+    }
+
+    @Test
+    public void testDoubles() throws IOException {
+        for (double v : new double[] {0.0, -0.0, 1.0, -1.0, 3.14, 42.0,
+                9999999.0, 1e7, -1e7, 1e-3, 1e-4, 123456.789, Double.MAX_VALUE,
+                Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, 0.1 + 0.2}) {
+            assertSameAsLegacy(v);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            assertSameAsLegacy(random.nextDouble() * 1e9 - 5e8);
+            assertSameAsLegacy((double) random.nextInt());
+        }
+    }
+
+    @Test
+    public void testStringEscapes() throws IOException {
+        assertSameAsLegacy("quote\"back\\slash");
+        assertSameAsLegacy("\b\f\n\r\t");
+        for (char c = 0; c < 0x20; c++) {
+            assertSameAsLegacy("x" + c + "y");
+        }
+        assertSameAsLegacy("\u007f\u0080\u07ff\u0800\uffff");
+    }
+
+    @Test
+    public void testNonAscii() throws IOException {
+        assertSameAsLegacy("café ñandú");
+        assertSameAsLegacy("€ 中文 😀");
+        assertSameAsLegacy("😀".repeat(3000));
+    }
+
+    @Test
+    public void testUnpairedSurrogatesAsOnTheWire() throws IOException {
+        // the old path sent print(toJson(...)), i.e. getBytes(UTF_8)
+        assertSameAsLegacy("a\ud83db");
+        assertSameAsLegacy("a\ude00b");
+        assertSameAsLegacy("end\ud83d");
+    }
+
+    @Test
+    public void testLargeStringsCrossBuffer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) (random.nextInt(0x3000)));
+        }
+        String s = sb.toString();
+        assertSameAsLegacy(s);
+        assertSameAsLegacy(Arrays.asList(s, s));
+    }
+
+    @Test
+    public void testCollections() throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "turismo");
+        map.put("version", 3);
+        map.put("tags", Arrays.asList("a", "b"));
+        map.put("nested", Map.of("ok", true));
+        map.put("none", null);
+        Map<Object, Object> keys = new LinkedHashMap<>();
+        keys.put(1, "one");
+        keys.put(null, "null key");
+        map.put("keys", keys);
+        assertSameAsLegacy(map);
+        assertSameAsLegacy(Collections.emptyMap());
+        assertSameAsLegacy(Collections.emptyList());
+        assertSameAsLegacy(List.of(1, 2.5, "x", false));
+    }
+
+    @Test
+    public void testArrays() throws IOException {
+        assertSameAsLegacy(new String[] {"a", null});
+        assertSameAsLegacy(new int[] {1, -2, 3});
+        assertSameAsLegacy(new long[] {Long.MIN_VALUE, 0});
+        assertSameAsLegacy(new double[] {1.5, 2.0, -0.0});
+        assertSameAsLegacy(new boolean[] {true, false});
+        assertSameAsLegacy(new int[0]);
+        assertSameAsLegacy(new Object[] {new int[] {1}, List.of()});
+    }
+
+    @Test
+    public void testLargeArray() throws IOException {
+        long[] values = new long[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) i * 1_000_003L;
+        }
+        assertSameAsLegacy(values);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() throws IOException {
+        write(new Object());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJdkTypesAreNotBeans() throws IOException {
+        write(new Thread());
+    }
+
+    enum Color { RED, GREEN { } }
+
+    record Point(int x, long y, double z, float w, boolean visible,
+            char tag, String label) { }
+
+    private record Line(Point from, Point to, List<String> notes) { }
+
+    @JsonBean
+    public static class Bean {
+        public String getName() { return "b"; }
+        public int getCount() { return 2; }
+        public boolean isActive() { return true; }
+        public Color getColor() { return Color.RED; }
+        public String getURL() { return "u"; }
+        public static String getStatic() { return "no"; }
+        public String getWithArg(int i) { return "no"; }
+        public String describe() { return "no"; }
+        String getPackagePrivate() { return "no"; }
+    }
+
+    @Test
+    public void testRecord() throws IOException {
+        Point p = new Point(1, -2L, 1.5, 0.1f, true, 'q', "a\"b");
+        assertEquals("{\"x\":1,\"y\":-2,\"z\":1.5,\"w\":0.1,"
+                + "\"visible\":true,\"tag\":\"q\",\"label\":\"a\\\"b\"}",
+                new String(write(p), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNestedPrivateRecord() throws IOException {
+        Point p = new Point(0, 0, 0, 0, false, 'x', null);
+        String point = JsonWriter.toJson(p);
+        assertEquals("{\"from\":" + point + ",\"to\":" + point
+                + ",\"notes\":[\"n\"]}",
+                JsonWriter.toJson(new Line(p, p, List.of("n"))));
+        assertEquals("[" + point + "]", JsonWriter.toJson(List.of(p)));
+    }
+
+    @Test
+    public void testEnum() {
+        assertEquals("[\"RED\",\"GREEN\"]",
+                JsonWriter.toJson(List.of(Color.RED, Color.GREEN)));
+    }
+
+    @Test
+    public void testBean() {
+        assertEquals("{\"URL\":\"u\",\"active\":true,\"color\":\"RED\","
+                + "\"count\":2,\"name\":\"b\"}",
+                JsonWriter.toJson(new Bean()));
+    }
+
+    public static class NotABean {
+        public String getPassword() { return "secret"; }
+    }
+
+    @Test
+    public void testBeanNeedsAnnotation() {
+        try {
+            JsonWriter.toJson(new NotABean());
+            fail("unannotated class written as a bean");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(NotABean.class.getName()));
+        }
+    }
+
+    @JsonBean
+    public static class Node {
+        Node parent;
+        final List<Node> children = new ArrayList<>();
+
+        public Node getParent() { return parent; }
+        public List<Node> getChildren() { return children; }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycleFails() {
+        Node parent = new Node();
+        Node child = new Node();
+        child.parent = parent;
+        parent.children.add(child);
+        JsonWriter.toJson(parent);
+    }
+
+    @Test
+    public void testMaxDepth() {
+        Object value = "x";
+        for (int i = 0; i < JsonWriter.MAX_DEPTH; i++) {
+            value = List.of(value);
+        }
+        String json = JsonWriter.toJson(value);
+        assertEquals(JsonWriter.MAX_DEPTH, json.indexOf('"'));
+        try {
+            JsonWriter.toJson(List.of(value));
+            fail("nesting past MAX_DEPTH accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testSerializerIsCached() {
+        assertSame(ObjectSerializer.CACHE.get(Point.class),
+                ObjectSerializer.CACHE.get(Point.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedArrayType() throws IOException {
+        write(new char[] {'a'});
+    }
+
+    @Test
+    public void testToJson() {
+        assertEquals("{\"a\":[1,2]}", JsonWriter.toJson(Map.of("a", List.of(1, 2))));
+    }
+
+    /** Counts flushes, recording the byte count at each. */
+    private static final class FlushCounter extends ByteArrayOutputStream {
+        final List<Integer> flushes = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            flushes.add(size());
+        }
+    }
+
+    @Test
+    public void testArrayMatchesIterable() throws IOException {
+        List<Object> values = List.of(1, "two", Map.of("three", 3), List.of());
+        for (List<Object> list : List.of(values, List.<Object>of())) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new JsonWriter(out).array(list.iterator(), 1);
+            assertEquals(JsonWriter.toJson(list), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonWriter(out).lines(List.of(Map.of("a", 1), "b\nc", 2).iterator(), 1);
+        assertEquals("{\"a\":1}\n\"b\\nc\"\n2\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testArrayFlushesAtThreshold() throws IOException {
+        String element = "x".repeat(98); // 100 bytes quoted
+        FlushCounter out = new FlushCounter();
+        new JsonWriter(out).array(Collections.nCopies(100, element).iterator(), 1000);
+        // roughly every 10 elements, plus the final flush
+        assertEquals(11, out.flushes.size());
+        int previous = 0;
+        for (int size : out.flushes) {
+            assertTrue(size - previous >= 1000 || size == out.size());
+            assertTrue(size - previous < 1200);
+            previous = size;
+        }
+    }
+
+    @Test
+    public void testSize() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(out);
+        writer.value("x".repeat(10000)).value(List.of(1, 2));
+        assertEquals(10007, writer.size());
+        writer.flush();
+        assertEquals(out.size(), writer.size());
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(first);
+        writer.value(List.of(1, 2)).flush();
+        writer.value("unflushed");
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        writer.reset(second);
+        assertEquals(0, writer.size());
+        writer.value(Map.of("a", true)).flush();
+        assertEquals("[1,2]", first.toString(StandardCharsets.UTF_8));
+        assertEquals("{\"a\":true}", second.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArrayRejectsNonPositiveFlushBytes() throws IOException {
+        new JsonWriter(new ByteArrayOutputStream()).array(List.of().iterator(), 0);
+    }
+
+    /** The string-building serializer that {@link JsonWriter} replaced. */
+    static final class Legacy {
+
+        static String toJson(Object obj) {
+            if (obj == null) {
+                return "null";
+            }
+            if (obj instanceof String) {
+                return jsonString((String) obj);
+            }
+            if (obj instanceof Number || obj instanceof Boolean) {
+                return obj.toString();
+            }
+            if (obj instanceof Map<?, ?>) {
+                return jsonMap((Map<?, ?>) obj);
+            }
+            if (obj instanceof Iterable<?>) {
+                return jsonIterable((Iterable<?>) obj);
+            }
+            if (obj.getClass().isArray()) {
+                return jsonArray(obj);
+            }
+            throw new IllegalArgumentException(
+                    "Unsupported type: " + obj.getClass().getName());
+        }
+
+        private static String jsonString(String s) {
+            StringBuilder sb = new StringBuilder(s.length() + 2);
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':  sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\b': sb.append("\\b");  break;
+                    case '\f': sb.append("\\f");  break;
+                    case '\n': sb.append("\\n");  break;
+                    case '\r': sb.append("\\r");  break;
+                    case '\t': sb.append("\\t");  break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+            return sb.toString();
+        }
+
+        private static String jsonMap(Map<?, ?> map) {
+            StringBuilder sb = new StringBuilder();
+            sb.append('{');
+            Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<?, ?> entry = it.next();
+                sb.append(toJson(String.valueOf(entry.getKey())));
+                sb.append(':');
+                sb.append(toJson(entry.getValue()));
+                if (it.hasNext()) {
+                    sb.append(',');
+                }
+            }
+            sb.append('}');
+            return sb.toString();
+        }
+
+        private static String jsonIterable(Iterable<?> iter) {
+            StringBuilder sb = new StringBuilder();
+            sb.append('[');
+            Iterator<?> it = iter.iterator();
+            while (it.hasNext()) {
+                sb.append(toJson(it.next()));
+                if (it.hasNext()) {
+                    sb.append(',');
+                }
+            }
+            sb.append(']');
+            return sb.toString();
+        }
+
+        private static String jsonArray(Object arr) {
+            if (arr instanceof Object[]) {
+                Object[] a = (Object[]) arr;
+                StringBuilder sb = new StringBuilder();
+                sb.append('[');
+                for (int i = 0; i < a.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(toJson(a[i]));
+                }
+                sb.append(']');
+                return sb.toString();
+            }
+            if (arr instanceof int[]) {
+                int[] a = (int[]) arr;
+                StringBuilder sb = new StringBuilder();
+                sb.append('[');
+                for (int i = 0; i < a.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(a[i]);
+                }
+                sb.append(']');
+                return sb.toString();
+            }
+            if (arr instanceof long[]) {
+                long[] a = (long[]) arr;
+                StringBuilder sb = new StringBuilder();
+                sb.append('[');
+                for (int i = 0; i < a.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(a[i]);
+                }
+                sb.append(']');
+                return sb.toString();
+            }
+            if (arr instanceof double[]) {
+                double[] a = (double[]) arr;
+                StringBuilder sb = new StringBuilder();
+                sb.append('[');
+                for (int i = 0; i < a.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(a[i]);
+                }
+                sb.append(']');
+                return sb.toString();
+            }
+            if (arr instanceof boolean[]) {
+                boolean[] a = (boolean[]) arr;
+                StringBuilder sb = new StringBuilder();
+                sb.append('[');
+                for (int i = 0; i < a.length; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(a[i]);
+                }
+                sb.append(']');
+                return sb.toString();
+            }
+            throw new IllegalArgumentException(
+                    "Unsupported array type: " + arr.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.ghosthack.turismo.load;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long v : new long[] {0, 1, 127, 128, 129, 255, 256, 1_000, 1_000_000,
+                123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(v + " above its bucket", v <= LatencyHistogram.highest(index));
+            if (index > 0) {
+                assertTrue(v + " below its bucket",
+                        v > LatencyHistogram.highest(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPrecision() {
+        for (long v = 1; v < 1L << 40; v = v * 3 + 1) {
+            long high = LatencyHistogram.highest(LatencyHistogram.index(v));
+            assertTrue(v + " reported as " + high, high - v <= v / 60);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean(), 0.001);
+        assertEquals(500_000, histogram.percentile(50), 500_000 / 60);
+        assertEquals(990_000, histogram.percentile(99), 990_000 / 60);
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean(), 0);
+    }
+}
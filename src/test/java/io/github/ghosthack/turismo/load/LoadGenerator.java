@@ -0,0 +1,93 @@
+package io.github.ghosthack.turismo.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop load generator: requests are scheduled at a constant rate
+ * whatever the server's response time, and each latency is measured from
+ * the time its request was scheduled, not from when it was actually sent.
+ * A server that stalls therefore shows the stall in every request queued
+ * behind it, instead of the generator slowing down to match it
+ * (coordinated omission).
+ */
+final class LoadGenerator {
+
+    /** Outcome of one run. */
+    record Result(long scheduled, long completed, long errors, double seconds,
+            LatencyHistogram latency) {
+
+        double rps() {
+            return completed / seconds;
+        }
+    }
+
+    private final HttpClient client;
+    private final Supplier<HttpRequest> requests;
+    private final int rate;
+    private final int maxInFlight;
+
+    /**
+     * @param client      the client to send with
+     * @param requests    supplies the request to send each time
+     * @param rate        requests per second
+     * @param maxInFlight requests outstanding at once; once reached, sends
+     *                    wait, and the wait counts toward their latency
+     */
+    LoadGenerator(HttpClient client, Supplier<HttpRequest> requests, int rate,
+            int maxInFlight) {
+        if (rate <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate and maxInFlight must be positive");
+        }
+        this.client = client;
+        this.requests = requests;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+    }
+
+    Result run(Duration duration) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong lastDone = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double period = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long scheduled = 0;
+        while (true) {
+            long intended = start + (long) (scheduled * period);
+            if (intended >= end) {
+                break;
+            }
+            for (long wait; (wait = intended - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            scheduled++;
+            client.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long now = System.nanoTime();
+                        if (failure != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else {
+                            latency.record(now - intended);
+                        }
+                        lastDone.accumulateAndGet(now, Math::max);
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Requests still outstanding after 30 s");
+        }
+        long completed = latency.count() + errors.get();
+        double seconds = (Math.max(lastDone.get(), end) - start) / 1e9;
+        return new Result(scheduled, completed, errors.get(), seconds, latency);
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.ghosthack.turismo.load;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.Turismo;
+import io.github.ghosthack.turismo.multipart.MultipartParser;
+import io.github.ghosthack.turismo.multipart.Parametrizable;
+
+/**
+ * Drives the embedded server at a constant request rate per route and
+ * prints throughput and latency percentiles. Not part of the default
+ * build; run with {@code mvn test -Pload}, tuning with
+ * {@code -Dload.rate=} (requests per second), {@code -Dload.seconds=},
+ * {@code -Dload.warmup=} (seconds discarded before measuring),
+ * {@code -Dload.connections=} (maximum requests in flight) and
+ * {@code -Dload.middleware=} (wrapper layers around every action, to
+ * see what each layer costs).
+ */
+public class LoadTest {
+
+    private static final int RATE = Integer.getInteger("load.rate", 1000);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int WARMUP = Integer.getInteger("load.warmup", 3);
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 256);
+    private static final int MIDDLEWARE = Integer.getInteger("load.middleware", 0);
+
+    private static final String BOUNDARY = "----TurismoLoadBoundary";
+    private static final byte[] UPLOAD = upload(64 * 1024);
+
+    private static final Parametrizable NONE = new Parametrizable() {
+        @Override
+        public void addParameter(String name, String value) {
+        }
+
+        @Override
+        public void addParameter(String name, String[] value) {
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+    };
+
+    private static HttpClient client;
+    private static String base;
+
+    @BeforeClass
+    public static void startServer() {
+        Turismo.reset();
+        Turismo.get("/static", "Hello World");
+        Turismo.get("/users/:id", middleware(() ->
+                Turismo.print("user " + Turismo.param("id"))));
+        Turismo.get("/json", middleware(() ->
+                Turismo.json(Map.of("id", 42, "name", "turismo",
+                        "roles", List.of("reader", "writer")))));
+        Turismo.post("/upload", middleware(LoadTest::upload));
+        Turismo.start(0);
+        base = "http://localhost:" + Turismo.port();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        System.out.printf("%-8s %7s %9s %9s %9s %9s %9s %9s %7s%n", "route",
+                "rate", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms",
+                "errors");
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        Turismo.reset();
+    }
+
+    /**
+     * Wraps the action in {@code load.middleware} layers, each checking a
+     * request header and setting a response header before delegating, as
+     * an authentication or tracing filter would.
+     */
+    private static Runnable middleware(Runnable action) {
+        Runnable wrapped = action;
+        for (int i = 0; i < MIDDLEWARE; i++) {
+            Runnable next = wrapped;
+            String name = "X-Layer-" + i;
+            wrapped = () -> {
+                if (Turismo.header("X-Deny") != null) {
+                    Turismo.status(403);
+                    return;
+                }
+                Turismo.header(name, "1");
+                next.run();
+            };
+        }
+        return wrapped;
+    }
+
+    /** Streams the uploaded parts, replying with the byte count. */
+    private static void upload() {
+        String type = Turismo.header("Content-Type");
+        String boundary = "--" + type.substring(type.indexOf("boundary=") + 9);
+        long[] total = new long[1];
+        byte[] buffer = new byte[8192];
+        try {
+            new MultipartParser(Turismo.body(), boundary, NONE, "UTF-8", -1)
+                    .parse((headers, content) -> {
+                        for (int n; (n = content.read(buffer)) != -1; ) {
+                            total[0] += n;
+                        }
+                    });
+        } catch (Exception e) {
+            Turismo.status(400);
+            Turismo.print(e.getMessage());
+            return;
+        }
+        Turismo.print(Long.toString(total[0]));
+    }
+
+    private static byte[] upload(int size) {
+        byte[] file = new byte[size];
+        new Random(7).nextBytes(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; "
+                + "name=\"title\"\r\n\r\nload\r\n--" + BOUNDARY
+                + "\r\nContent-Disposition: form-data; name=\"file\"; "
+                + "filename=\"load.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(file);
+        out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).build();
+    }
+
+    private static void run(String route, Supplier<HttpRequest> requests)
+            throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(client, requests, RATE, CONNECTIONS);
+        if (WARMUP > 0) {
+            generator.run(Duration.ofSeconds(WARMUP));
+        }
+        LoadGenerator.Result result = generator.run(Duration.ofSeconds(SECONDS));
+        LatencyHistogram latency = result.latency();
+        System.out.printf("%-8s %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", route,
+                RATE, result.rps(), latency.percentile(50) / 1e6,
+                latency.percentile(90) / 1e6, latency.percentile(99) / 1e6,
+                latency.percentile(99.9) / 1e6, latency.max() / 1e6, result.errors());
+        assertEquals(route + " errors", 0, result.errors());
+        assertEquals(route + " completed", result.scheduled(), result.completed());
+    }
+
+    @Test
+    public void testStaticString() throws Exception {
+        HttpRequest request = get("/static");
+        run("static", () -> request);
+    }
+
+    @Test
+    public void testPathParam() throws Exception {
+        Random random = new Random(1);
+        run("param", () -> get("/users/" + random.nextInt(100_000)));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        HttpRequest request = get("/json");
+        run("json", () -> request);
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(UPLOAD))
+                .build();
+        run("upload", () -> request);
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.ghosthack.turismo.memory;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.Allocations;
+import io.github.ghosthack.turismo.Turismo;
+
+public class MemoryContextTest {
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Test
+    public void testRequest() {
+        Turismo.get("/users/:id", () -> Turismo.print("user " + Turismo.param("id")
+                + " " + Turismo.query("sort") + " " + Turismo.header("accept")));
+        MemoryContext ctx = new MemoryContext();
+        Turismo.handle(ctx.request("GET", "/users/42").query("sort", "name")
+                .requestHeader("Accept", "text/plain"));
+        assertEquals(200, ctx.status());
+        assertEquals("user 42 name text/plain", ctx.text());
+    }
+
+    @Test
+    public void testBody() {
+        Turismo.post("/echo", () -> Turismo.json(Turismo.bodyJson()));
+        MemoryContext ctx = new MemoryContext();
+        Turismo.handle(ctx.request("POST", "/echo").body("{\"a\":[1,2]}"));
+        assertEquals(201, ctx.status());
+        assertEquals("application/json", ctx.responseHeader("content-type"));
+        assertEquals("{\"a\":[1,2]}", ctx.text());
+    }
+
+    @Test
+    public void testRequestResets() {
+        Turismo.get("/a", () -> {
+            Turismo.status(418);
+            Turismo.header("X-A", "1");
+            Turismo.print("a");
+        });
+        Turismo.get("/b", () -> Turismo.print(String.valueOf(Turismo.header("X-In"))));
+        MemoryContext ctx = new MemoryContext();
+        Turismo.handle(ctx.request("GET", "/a").requestHeader("X-In", "x"));
+        assertEquals(418, ctx.status());
+        assertEquals("1", ctx.responseHeader("X-A"));
+        Turismo.handle(ctx.request("GET", "/b"));
+        assertEquals(200, ctx.status());
+        assertNull(ctx.responseHeader("X-A"));
+        assertEquals("null", ctx.text());
+    }
+
+    @Test
+    public void testHeaderReplaces() {
+        MemoryContext ctx = new MemoryContext();
+        ctx.header("Content-Type", "text/plain");
+        ctx.header("content-type", "text/html");
+        assertEquals("text/html", ctx.responseHeader("Content-Type"));
+    }
+
+    @Test
+    public void testStreamFreezesStatusAndHeaders() {
+        MemoryContext ctx = new MemoryContext();
+        ctx.header("X-A", "1");
+        ctx.stream();
+        ctx.status(500);
+        ctx.header("X-B", "2");
+        assertTrue(ctx.streamed());
+        assertEquals(200, ctx.status());
+        assertNull(ctx.responseHeader("X-B"));
+    }
+
+    @Test
+    public void testUtf8() {
+        String text = "ñandú – 😀 \uD800";
+        MemoryContext ctx = new MemoryContext();
+        ctx.print(text);
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), ctx.bytes());
+        assertEquals(text.replace('\uD800', '?'), ctx.text());
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() throws Exception {
+        byte[] big = new byte[100_000];
+        MemoryContext ctx = new MemoryContext();
+        for (int i = 0; i < 20; i++) {
+            ctx.requestHeader("H" + i, "v" + i);
+        }
+        ctx.output().write(big);
+        ctx.print("end");
+        assertEquals(big.length + 3, ctx.length());
+        assertEquals("v19", ctx.header("h19"));
+    }
+
+    @Test
+    public void testReuseDoesNotAllocate() {
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        byte[] read = new byte[16];
+        MemoryContext ctx = new MemoryContext();
+        Allocations.assertBudget("MemoryContext", 0, () -> {
+            ctx.request("POST", "/x").query("q", "1").requestHeader("Accept", "*/*")
+                    .body(body);
+            try {
+                ctx.body().read(read, 0, read.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ctx.header("Content-Type", "text/plain");
+            ctx.print("Hello World!");
+        });
+        assertEquals("Hello World!", ctx.text());
+    }
+
+    @Test
+    public void testUnmatchedRoute() {
+        MemoryContext ctx = new MemoryContext();
+        Turismo.handle(ctx.request("GET", "/nowhere"));
+        assertEquals(404, ctx.status());
+    }
+
+    @Test
+    public void testJson() {
+        Turismo.get("/json", () -> Turismo.json(Map.of("ok", true)));
+        MemoryContext ctx = new MemoryContext();
+        Turismo.handle(ctx.request("GET", "/json"));
+        assertEquals("{\"ok\":true}", ctx.text());
+    }
+}
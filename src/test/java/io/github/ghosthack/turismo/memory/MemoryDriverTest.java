@@ -0,0 +1,68 @@
+package io.github.ghosthack.turismo.memory;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.Turismo;
+
+public class MemoryDriverTest {
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    @Test
+    public void testRunsEveryRequest() throws Exception {
+        AtomicLong handled = new AtomicLong();
+        Turismo.get("/users/:id", () -> {
+            handled.incrementAndGet();
+            Turismo.print(Turismo.param("id"));
+        });
+        String[] paths = {"/users/1", "/users/2", "/users/3"};
+        MemoryDriver.Result result = new MemoryDriver().run(4, 10_000,
+                (ctx, i) -> ctx.request("GET", paths[(int) (i % paths.length)]));
+        assertEquals(4, result.threads());
+        assertEquals(40_000, result.requests());
+        assertEquals(40_000, handled.get());
+        assertEquals(0, result.errors());
+        assertNull(result.failure());
+        assertTrue(result.perSecond() > 0);
+        assertTrue(result.toString(), result.toString().contains("40000 requests"));
+    }
+
+    @Test
+    public void testCountsErrors() throws Exception {
+        Turismo.get("/fail", () -> {
+            throw new IllegalStateException("boom");
+        });
+        Turismo.get("/500", () -> Turismo.status(503));
+        Turismo.get("/ok", () -> { });
+        MemoryDriver.Result result = new MemoryDriver().run(2, 300, (ctx, i) ->
+                ctx.request("GET", i % 3 == 0 ? "/fail" : i % 3 == 1 ? "/500" : "/ok"));
+        assertEquals(400, result.errors());
+        assertEquals("boom", result.failure().getMessage());
+    }
+
+    @Test
+    public void testCustomHandler() throws Exception {
+        AtomicLong seen = new AtomicLong();
+        MemoryDriver driver = new MemoryDriver(ctx -> seen.addAndGet(ctx.path().length()));
+        driver.run(1, 5, (ctx, i) -> ctx.request("GET", "/abc"));
+        assertEquals(20, seen.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoThreads() throws Exception {
+        new MemoryDriver().run(0, 1, (ctx, i) -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullHandler() {
+        new MemoryDriver(null);
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.ghosthack.turismo.metrics;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.Turismo;
+import io.github.ghosthack.turismo.memory.MemoryContext;
+
+public class MetricsTest {
+
+    private final MemoryContext ctx = new MemoryContext();
+
+    @After
+    public void tearDown() {
+        Turismo.reset();
+    }
+
+    private void handle(String method, String path) {
+        Turismo.handle(ctx.request(method, path));
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        Turismo.get("/ctx", () -> Turismo.print(Turismo.context().getClass().getSimpleName()));
+        assertNull(Turismo.metrics());
+        handle("GET", "/ctx");
+        assertEquals("MemoryContext", ctx.text());
+    }
+
+    @Test
+    public void testKeyedByRegisteredRoute() {
+        Turismo.get("/users/:id", () -> Turismo.print("user " + Turismo.param("id")));
+        Turismo.get("/health", "OK");
+        Metrics metrics = Turismo.enableMetrics();
+        handle("GET", "/users/1");
+        handle("GET", "/users/22");
+        handle("GET", "/health");
+        RouteMetrics users = metrics.route("GET", "/users/:id");
+        assertEquals(2, users.requests());
+        assertEquals(2, users.requests(2));
+        assertEquals("user 1user 22".length(), users.bytes());
+        assertEquals(2, users.latency().count());
+        assertEquals(1, metrics.route("GET", "/health").requests());
+        assertEquals(2, metrics.routes().size());
+    }
+
+    @Test
+    public void testStatusClasses() {
+        Turismo.get("/teapot", () -> Turismo.status(418));
+        Turismo.post("/items", () -> { });
+        Turismo.get("/moved", () -> Turismo.redirect("/teapot"));
+        Metrics metrics = Turismo.enableMetrics();
+        handle("GET", "/teapot");
+        handle("POST", "/items");
+        handle("GET", "/moved");
+        handle("GET", "/nowhere");
+        handle("DELETE", "/items");
+        assertEquals(1, metrics.route("GET", "/teapot").requests(4));
+        assertEquals(1, metrics.route("POST", "/items").requests(2));
+        assertEquals(1, metrics.route("GET", "/moved").requests(3));
+        RouteMetrics missing = metrics.route("*", Metrics.NOT_FOUND);
+        assertEquals(2, missing.requests(4));
+    }
+
+    @Test
+    public void testExceptionCountsAsServerError() {
+        Turismo.get("/fail", () -> {
+            Turismo.status(200);
+            throw new IllegalStateException("boom");
+        });
+        Metrics metrics = Turismo.enableMetrics();
+        try {
+            handle("GET", "/fail");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, metrics.route("GET", "/fail").requests(5));
+    }
+
+    @Test
+    public void testBytesCountEveryWritePath() throws Exception {
+        byte[] bytes = new byte[100];
+        Turismo.get("/mixed", () -> {
+            Turismo.print("ñ😀");
+            Turismo.send(bytes);
+            try {
+                Turismo.output().write(bytes, 0, 10);
+                Turismo.output().write('x');
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        Metrics metrics = Turismo.enableMetrics();
+        handle("GET", "/mixed");
+        assertEquals(ctx.length(), metrics.route("GET", "/mixed").bytes());
+        assertEquals(6 + 100 + 10 + 1, ctx.length());
+    }
+
+    @Test
+    public void testStatusAfterStreamIgnored() {
+        Turismo.get("/stream", () -> {
+            Turismo.stream();
+            Turismo.status(500);
+        });
+        Metrics metrics = Turismo.enableMetrics();
+        handle("GET", "/stream");
+        assertEquals(1, metrics.route("GET", "/stream").requests(2));
+    }
+
+    @Test
+    public void testDisableAndReset() {
+        Turismo.get("/a", "a");
+        Metrics first = Turismo.enableMetrics();
+        assertSame(first, Turismo.enableMetrics());
+        Turismo.disableMetrics();
+        handle("GET", "/a");
+        assertTrue(first.routes().isEmpty());
+        Turismo.enableMetrics();
+        Turismo.reset();
+        assertNull(Turismo.metrics());
+    }
+
+    @Test
+    public void testMetricsRoute() {
+        Turismo.get("/users/:id", () -> Turismo.print("x"));
+        Turismo.metricsRoute("/metrics");
+        handle("GET", "/users/7");
+        handle("GET", "/metrics");
+        assertEquals(Metrics.CONTENT_TYPE, ctx.responseHeader("Content-Type"));
+        String text = ctx.text();
+        assertTrue(text, text.contains(
+                "turismo_requests_total{method=\"GET\",route=\"/users/:id\",status=\"2xx\"} 1\n"));
+        assertTrue(text, text.contains(
+                "turismo_response_bytes_total{method=\"GET\",route=\"/users/:id\"} 1\n"));
+        assertTrue(text, text.contains(
+                "turismo_request_duration_seconds_count{method=\"GET\",route=\"/users/:id\"} 1\n"));
+        assertFalse(text, text.contains("/users/7"));
+    }
+
+    @Test
+    public void testExpositionFormat() {
+        Metrics metrics = new Metrics();
+        metrics.record("GET", "/a", 200, 20_000, 5);
+        metrics.record("GET", "/a", 503, 3_000_000, 0);
+        metrics.record("GET", "/a", 200, 60_000_000_000L, 0);
+        metrics.record("GET", "/q\"\\\n", 200, 1, 0);
+        String text = metrics.scrape();
+        String[] expected = {
+            "# TYPE turismo_requests_total counter",
+            "turismo_requests_total{method=\"GET\",route=\"/a\",status=\"2xx\"} 2",
+            "turismo_requests_total{method=\"GET\",route=\"/a\",status=\"5xx\"} 1",
+            "# TYPE turismo_request_duration_seconds histogram",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"0.00001\"} 0",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"0.000025\"} 1",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"0.0025\"} 1",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"0.005\"} 2",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"10\"} 2",
+            "turismo_request_duration_seconds_bucket{method=\"GET\",route=\"/a\",le=\"+Inf\"} 3",
+            "turismo_request_duration_seconds_sum{method=\"GET\",route=\"/a\"} 60.00302",
+            "turismo_request_duration_seconds_count{method=\"GET\",route=\"/a\"} 3",
+            "turismo_response_bytes_total{method=\"GET\",route=\"/a\"} 5",
+            "turismo_requests_total{method=\"GET\",route=\"/q\\\"\\\\\\n\",status=\"2xx\"} 1",
+        };
+        List<String> lines = List.of(text.split("\n"));
+        for (String line : expected) {
+            assertTrue(line, lines.contains(line));
+        }
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        assertEquals(25, Histogram.buckets());
+        assertEquals(10_000, Histogram.bound(0));
+        assertEquals(10_000_000_000L, Histogram.bound(Histogram.buckets() - 1));
+        assertEquals(0, Histogram.bucket(0));
+        assertEquals(0, Histogram.bucket(10_000));
+        assertEquals(1, Histogram.bucket(10_001));
+        assertEquals(Histogram.buckets(), Histogram.bucket(Long.MAX_VALUE));
+        Histogram h = new Histogram();
+        h.record(1_000_000);
+        h.record(1_000_000);
+        h.record(Long.MAX_VALUE / 2);
+        assertEquals(3, h.count());
+        assertEquals(2, h.count(Histogram.bucket(1_000_000)));
+        assertEquals(1, h.count(Histogram.buckets()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStatusClass() {
+        new Metrics().route("GET", "/").requests(6);
+    }
+}
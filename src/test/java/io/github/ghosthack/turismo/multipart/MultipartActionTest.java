@@ -0,0 +1,70 @@
+package io.github.ghosthack.turismo.multipart;
+
+import static io.github.ghosthack.turismo.HttpMocks.getRequestMock;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.github.ghosthack.turismo.servlet.Env;
+
+public class MultipartActionTest {
+
+    @After
+    public void tearDown() {
+        Env.destroy();
+    }
+
+    @Test
+    public void testWrapsMultipartRequestWhileRunning() throws Exception {
+        HttpServletRequest req = MultipartRequestTest.request(
+                MultipartParserTest.body("name", "value"));
+        Env.create(req, null, null);
+        String[] seen = new String[1];
+        new MultipartAction(() -> seen[0] = Env.params("name")).run();
+        assertEquals("value", seen[0]);
+        assertSame(req, Env.req());
+    }
+
+    @Test
+    public void testUnreadUploadIsNotParsed() throws Exception {
+        HttpServletRequest req = MultipartRequestTest.request(
+                MultipartParserTest.body("name", "value"));
+        Env.create(req, null, null);
+        new MultipartAction(() -> assertTrue(Env.req() instanceof MultipartRequest)).run();
+        verify(req, never()).getInputStream();
+    }
+
+    @Test
+    public void testOtherRequestsAreLeftAlone() {
+        HttpServletRequest req = getRequestMock("POST", "/");
+        when(req.getContentType()).thenReturn("application/json");
+        Env.create(req, null, null);
+        new MultipartAction(() -> assertSame(req, Env.req())).run();
+    }
+
+    @Test
+    public void testDeletesFilesAfterwards() throws Exception {
+        Path dir = Files.createTempDirectory("multipart-action");
+        try {
+            HttpServletRequest req = MultipartRequestTest.request(MultipartParserTest
+                    .body("f", MultipartParserTest.random(5000, 1)));
+            Env.create(req, null, null);
+            Path[] file = new Path[1];
+            new MultipartAction(() -> file[0] = ((UploadedFile) Env.req()
+                    .getAttribute("f")).getPath(), "UTF-8", 100, dir).run();
+            assertEquals(dir, file[0].getParent());
+            assertFalse(Files.exists(file[0]));
+        } finally {
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package io.github.ghosthack.turismo.multipart;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultipartParserTest {
+
+    static final String BOUNDARY = "----TurismoBoundary7MA4YWxkTrZu0gW";
+
+    /** Collects what the parser stores. */
+    static final class Collector implements Parametrizable {
+        final Map<String, String[]> parameters = new HashMap<>();
+        final Map<String, Object> attributes = new HashMap<>();
+
+        @Override
+        public void addParameter(String name, String value) {
+            String[] prev = parameters.get(name);
+            if (prev == null) {
+                parameters.put(name, new String[] {value});
+            } else {
+                String[] values = java.util.Arrays.copyOf(prev, prev.length + 1);
+                values[prev.length] = value;
+                parameters.put(name, values);
+            }
+        }
+
+        @Override
+        public void addParameter(String name, String[] value) {
+            parameters.put(name, value);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+    }
+
+    /** Builds a multipart body from name/value pairs; byte[] values are files. */
+    static byte[] body(Object... nameValues) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            String name = (String) nameValues[i];
+            Object value = nameValues[i + 1];
+            out.write(("--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            if (value instanceof byte[]) {
+                out.write(("Content-Disposition: form-data; name=\"" + name
+                        + "\"; filename=\"" + name + ".bin\"\r\n"
+                        + "Content-Type: application/octet-stream\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.write((byte[]) value);
+            } else {
+                out.write(("Content-Disposition: form-data; name=\"" + name
+                        + "\"\r\n\r\n" + value).getBytes(StandardCharsets.UTF_8));
+            }
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    /** Delivers at most one byte per read, to exercise every block boundary. */
+    static InputStream trickle(byte[] bytes) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    static byte[] random(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private Path tempDir;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("multipart-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(java.util.Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private Collector parse(byte[] body, int fileThreshold) throws Exception {
+        return parse(new ByteArrayInputStream(body), body.length, fileThreshold);
+    }
+
+    private Collector parse(InputStream in, int size, int fileThreshold)
+            throws Exception {
+        Collector collector = new Collector();
+        MultipartParser parser = new MultipartParser(in, "--" + BOUNDARY,
+                collector, "UTF-8", size);
+        parser.setFileThreshold(fileThreshold);
+        parser.setTempDirectory(tempDir);
+        parser.parse();
+        return collector;
+    }
+
+    private static MultipartParser parser(InputStream in, int size) {
+        return new MultipartParser(in, "--" + BOUNDARY, new Collector(), "UTF-8", size);
+    }
+
+    private long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void testFieldsAndByteArrayFiles() throws Exception {
+        byte[] file = random(50000, 1);
+        Collector c = parse(body("title", "héllo", "empty", "", "file", file,
+                "title", "again"), -1);
+        assertArrayEquals(new String[] {"héllo", "again"}, c.parameters.get("title"));
+        assertArrayEquals(new String[] {""}, c.parameters.get("empty"));
+        assertArrayEquals(new String[] {"application/octet-stream", "file.bin"},
+                c.parameters.get("file"));
+        assertArrayEquals(file, (byte[]) c.attributes.get("file"));
+    }
+
+    @Test
+    public void testPartialSeparatorsInContent() throws Exception {
+        // Every proper prefix of the separator, and prefixes that restart
+        // inside a previous partial match
+        String separator = "\r\n--" + BOUNDARY;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < separator.length(); i++) {
+            sb.append(separator, 0, i).append('x');
+        }
+        sb.append("\r\r\n\r\n-\r\n--\r\n---").append(BOUNDARY, 0, 10)
+                .append("\r\n--").append(separator, 0, separator.length() - 1)
+                .append("\r");
+        String tricky = sb.toString();
+        byte[] file = tricky.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = body("text", tricky, "file", file);
+        for (InputStream in : new InputStream[] {new ByteArrayInputStream(body),
+                trickle(body)}) {
+            Collector c = parse(in, body.length, -1);
+            assertEquals(tricky, c.parameters.get("text")[0]);
+            assertArrayEquals(file, (byte[]) c.attributes.get("file"));
+        }
+    }
+
+    @Test
+    public void testManyPartsAcrossBlocks() throws Exception {
+        Object[] parts = new Object[400];
+        for (int i = 0; i < parts.length; i += 2) {
+            parts[i] = "p" + i;
+            parts[i + 1] = i % 4 == 0 ? (Object) random(97 * i, i) : "v" + i;
+        }
+        byte[] body = body(parts);
+        Collector c = parse(trickle(body), body.length, 5000);
+        for (int i = 0; i < parts.length; i += 2) {
+            if (i % 4 == 0) {
+                assertArrayEquals(random(97 * i, i),
+                        ((UploadedFile) c.attributes.get("p" + i)).getBytes());
+            } else {
+                assertEquals("v" + i, c.parameters.get("p" + i)[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testSmallFileStaysInMemory() throws Exception {
+        byte[] file = random(1000, 2);
+        Collector c = parse(body("file", file), 1000);
+        UploadedFile upload = (UploadedFile) c.attributes.get("file");
+        assertTrue(upload.isInMemory());
+        assertNull(upload.getPath());
+        assertEquals(1000, upload.getSize());
+        assertEquals("file.bin", upload.getFileName());
+        assertEquals("application/octet-stream", upload.getContentType());
+        assertArrayEquals(file, upload.getBytes());
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testLargeFileSpillsToDisk() throws Exception {
+        byte[] file = random(300000, 3);
+        byte[] small = random(10, 4);
+        Collector c = parse(body("a", "x", "big", file, "small", small, "b", "y"), 1000);
+        UploadedFile upload = (UploadedFile) c.attributes.get("big");
+        assertFalse(upload.isInMemory());
+        assertEquals(tempDir, upload.getPath().getParent());
+        assertEquals(file.length, upload.getSize());
+        assertArrayEquals(file, upload.getBytes());
+        try (InputStream in = upload.openStream()) {
+            assertArrayEquals(file, in.readAllBytes());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(file.length, upload.transferTo(Channels.newChannel(out)));
+        assertArrayEquals(file, out.toByteArray());
+        assertTrue(((UploadedFile) c.attributes.get("small")).isInMemory());
+        assertEquals("y", c.parameters.get("b")[0]);
+
+        upload.delete();
+        assertFalse(Files.exists(upload.getPath()));
+    }
+
+    @Test
+    public void testFileOfExactlyThresholdSize() throws Exception {
+        assertTrue(((UploadedFile) parse(body("f", random(4096, 5)), 4096)
+                .attributes.get("f")).isInMemory());
+        assertFalse(((UploadedFile) parse(body("f", random(4097, 5)), 4096)
+                .attributes.get("f")).isInMemory());
+    }
+
+    @Test
+    public void testZeroThresholdSpillsEveryNonEmptyFile() throws Exception {
+        Collector c = parse(body("f", random(1, 6), "e", new byte[0]), 0);
+        assertFalse(((UploadedFile) c.attributes.get("f")).isInMemory());
+        assertTrue(((UploadedFile) c.attributes.get("e")).isInMemory());
+    }
+
+    @Test
+    public void testMoveTo() throws Exception {
+        Collector c = parse(body("f", random(5000, 7)), 100);
+        UploadedFile upload = (UploadedFile) c.attributes.get("f");
+        Path temp = upload.getPath();
+        Path target = tempDir.resolve("kept.bin");
+        upload.moveTo(target);
+        assertFalse(Files.exists(temp));
+        assertEquals(target, upload.getPath());
+        upload.delete();
+        assertTrue(Files.exists(target));
+        assertArrayEquals(random(5000, 7), Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testTruncatedUploadLeavesNoTempFile() throws Exception {
+        byte[] full = body("f", random(100000, 8));
+        byte[] truncated = java.util.Arrays.copyOf(full, 60000);
+        try {
+            parse(truncated, 100);
+            fail();
+        } catch (ParseException expected) {
+        }
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testSpillingUploadMemoryIsBounded() throws Exception {
+        byte[] body = body("f", random(4 * 1024 * 1024, 9));
+        parse(body, 8192); // warm up
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = bean.getCurrentThreadAllocatedBytes();
+        Collector c = parse(body, 8192);
+        long allocated = bean.getCurrentThreadAllocatedBytes() - before;
+        assertFalse(((UploadedFile) c.attributes.get("f")).isInMemory());
+        assertTrue("allocated " + allocated, allocated < 1024 * 1024);
+    }
+
+    @Test
+    public void testListenerStreamsEachPart() throws Exception {
+        byte[] big = random(500000, 10);
+        byte[] body = body("a", "first", "big", big, "skipped", random(70000, 11),
+                "z", "last");
+        for (InputStream in : new InputStream[] {new ByteArrayInputStream(body),
+                trickle(body)}) {
+            List<String> seen = new ArrayList<>();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[][] fields = new byte[1][];
+            parser(in, body.length).parse((headers, content) -> {
+                seen.add(headers.toString());
+                if (headers.getName().equals("big")) {
+                    byte[] chunk = new byte[8192];
+                    for (int n; (n = content.read(chunk)) != -1; ) {
+                        digest.update(chunk, 0, n);
+                    }
+                    assertEquals(-1, content.read());
+                } else if (!headers.isFile()) {
+                    fields[0] = content.readAllBytes();
+                    assertEquals(headers.getName().equals("a") ? "first" : "last",
+                            new String(fields[0], StandardCharsets.UTF_8));
+                }
+                // "skipped" is left unread
+            });
+            assertEquals(List.of("PartHeaders[a]",
+                    "PartHeaders[big, big.bin, application/octet-stream]",
+                    "PartHeaders[skipped, skipped.bin, application/octet-stream]",
+                    "PartHeaders[z]"), seen);
+            assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(big),
+                    digest.digest());
+        }
+    }
+
+    @Test
+    public void testListenerSingleByteReadsAndSkip() throws Exception {
+        String separator = "\r\n--" + BOUNDARY;
+        String tricky = separator.substring(0, 20) + "x" + separator.substring(0, 5);
+        byte[] body = body("t", tricky, "u", "0123456789");
+        List<String> values = new ArrayList<>();
+        parser(new ByteArrayInputStream(body), body.length).parse((headers, content) -> {
+            if (headers.getName().equals("u")) {
+                assertEquals(4, content.skip(4));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int b; (b = content.read()) != -1; ) {
+                sb.append((char) b);
+            }
+            values.add(sb.toString());
+        });
+        assertEquals(List.of(tricky, "456789"), values);
+    }
+
+    @Test
+    public void testListenerStreamEndsWhenPartDoes() throws Exception {
+        byte[] body = body("a", "one", "b", "two");
+        InputStream[] kept = new InputStream[1];
+        List<String> values = new ArrayList<>();
+        parser(new ByteArrayInputStream(body), body.length).parse((headers, content) -> {
+            if (kept[0] != null) {
+                assertEquals(-1, kept[0].read());
+            }
+            kept[0] = content;
+            values.add(new String(content.readAllBytes(), StandardCharsets.UTF_8));
+        });
+        assertEquals(List.of("one", "two"), values);
+    }
+
+    @Test
+    public void testListenerTruncatedBody() throws Exception {
+        byte[] full = body("f", random(100000, 12));
+        byte[] truncated = java.util.Arrays.copyOf(full, 60000);
+        try {
+            parser(new ByteArrayInputStream(truncated), truncated.length)
+                    .parse((headers, content) -> content.readAllBytes());
+            fail();
+        } catch (EOFException expected) {
+        }
+        try {
+            parser(new ByteArrayInputStream(truncated), truncated.length)
+                    .parse((headers, content) -> { });
+            fail();
+        } catch (ParseException expected) {
+        }
+    }
+
+    @Test
+    public void testUnknownLength() throws Exception {
+        byte[] file = random(200000, 13);
+        byte[] body = body("a", "x", "f", file);
+        Collector c = parse(trickle(body), -1, -1);
+        assertEquals("x", c.parameters.get("a")[0]);
+        assertArrayEquals(file, (byte[]) c.attributes.get("f"));
+        c = parse(new ByteArrayInputStream(body), -1, 1000);
+        assertArrayEquals(file, ((UploadedFile) c.attributes.get("f")).getBytes());
+    }
+
+    @Test
+    public void testMaxContentSizeEnforcedWhileReading() throws Exception {
+        byte[] body = body("f", random(300000, 14));
+        int max = MultipartParser.getMaxContentSize();
+        MultipartParser.setMaxContentSize(200000);
+        try {
+            try {
+                new MultipartParser(new ByteArrayInputStream(body), "--" + BOUNDARY,
+                        new Collector(), "UTF-8", body.length);
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+            for (int declared : new int[] {-1, 1000}) {
+                try {
+                    parse(new ByteArrayInputStream(body), declared, 1000);
+                    fail();
+                } catch (ParseException expected) {
+                    assertTrue(expected.getMessage().contains("200000"));
+                }
+            }
+            assertEquals(0, tempFiles());
+            try {
+                parser(new ByteArrayInputStream(body), -1).parse(
+                        (headers, content) -> content.transferTo(OutputStream.nullOutputStream()));
+                fail();
+            } catch (ParseException expected) {
+            }
+        } finally {
+            MultipartParser.setMaxContentSize(max);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.ghosthack.turismo.multipart;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+public class MultipartRequestTest {
+
+    static HttpServletRequest request(byte[] body) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(i -> attributes.put(i.getArgument(0), i.getArgument(1)))
+                .when(req).setAttribute(anyString(), any());
+        when(req.getAttribute(anyString()))
+                .thenAnswer(i -> attributes.get(i.<String>getArgument(0)));
+        when(req.getContentType()).thenReturn("multipart/form-data; boundary=\""
+                + MultipartParserTest.BOUNDARY + "\"");
+        when(req.getContentLength()).thenReturn(body.length);
+        when(req.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        });
+        return req;
+    }
+
+    @Test
+    public void testExtractBoundary() {
+        assertEquals("--abc", MultipartRequest.extractBoundary(
+                "multipart/form-data; charset=UTF-8; boundary=\"abc\""));
+        assertNull(MultipartRequest.extractBoundary("text/plain; boundary=abc"));
+        assertNull(MultipartRequest.extractBoundary("multipart/form-data"));
+    }
+
+    @Test
+    public void testWrapAndParse() throws Exception {
+        byte[] file = MultipartParserTest.random(3000, 1);
+        MultipartRequest multipart = MultipartRequest.wrapAndParse(request(
+                MultipartParserTest.body("name", "value", "file", file)));
+        assertEquals("value", multipart.getParameter("name"));
+        assertArrayEquals(new String[] {"application/octet-stream", "file.bin"},
+                multipart.getParameterValues("file"));
+    }
+
+    @Test
+    public void testParseWithListener() throws Exception {
+        byte[] file = MultipartParserTest.random(3000, 2);
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        MultipartRequest.parse(request(MultipartParserTest.body("name", "value",
+                "file", file)), (headers, content) ->
+                sizes.put(headers.getName(), content.readAllBytes().length));
+        assertEquals(Map.of("name", 5, "file", 3000), sizes);
+    }
+
+    @Test
+    public void testWithoutContentLength() throws Exception {
+        byte[] body = MultipartParserTest.body("name", "chunked");
+        HttpServletRequest req = request(body);
+        when(req.getContentLength()).thenReturn(-1);
+        assertEquals("chunked", MultipartRequest.wrapAndParse(req).getParameter("name"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testEmptyBody() throws Exception {
+        HttpServletRequest req = request(new byte[0]);
+        when(req.getContentLength()).thenReturn(-1);
+        MultipartRequest.parse(req, (headers, content) -> { });
+    }
+
+    @Test
+    public void testWrapParsesOnFirstAccess() throws Exception {
+        byte[] file = MultipartParserTest.random(3000, 3);
+        HttpServletRequest req = request(MultipartParserTest.body("name", "value",
+                "file", file));
+        req.setAttribute("preset", "x");
+        MultipartRequest multipart = MultipartRequest.wrap(req, "UTF-8", -1, null);
+        assertEquals("x", multipart.getAttribute("preset"));
+        assertNull(multipart.getAttribute("jakarta.servlet.error.status_code"));
+        verify(req, never()).getInputStream();
+        assertArrayEquals(file, (byte[]) multipart.getAttribute("file"));
+        verify(req).getInputStream();
+        assertEquals("value", multipart.getParameter("name"));
+        multipart.parse();
+    }
+
+    @Test
+    public void testDottedAttributesDoNotParse() throws Exception {
+        byte[] file = MultipartParserTest.random(100, 5);
+        HttpServletRequest req = request(MultipartParserTest.body("a.b", file));
+        MultipartRequest multipart = MultipartRequest.wrap(req, "UTF-8", -1, null);
+        assertNull(multipart.getAttribute(
+                "org.springframework.web.filter.OncePerRequestFilter.FILTERED"));
+        assertNull(multipart.getAttribute("org.apache.catalina.ASYNC_SUPPORTED"));
+        assertNull(multipart.getAttribute("org.eclipse.jetty.server.Request"));
+        assertNull(multipart.getAttribute("javax.servlet.request.X509Certificate"));
+        assertNull(multipart.getAttribute("a.b"));
+        verify(req, never()).getInputStream();
+        multipart.parse();
+        assertArrayEquals(file, (byte[]) multipart.getAttribute("a.b"));
+    }
+
+    @Test
+    public void testWrapParseFailure() throws Exception {
+        byte[] body = MultipartParserTest.body("name", "value");
+        HttpServletRequest req = request(java.util.Arrays.copyOf(body, body.length - 10));
+        MultipartRequest multipart = MultipartRequest.wrap(req, "UTF-8", -1, null);
+        try {
+            multipart.getParameter("name");
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getCause() instanceof ParseException);
+        }
+        try {
+            multipart.getParameterMap();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            multipart.parse();
+            fail();
+        } catch (ParseException expected) {
+        }
+    }
+
+    @Test
+    public void testFilterDefersParsing() throws Exception {
+        HttpServletRequest req = request(MultipartParserTest.body("name", "value"));
+        MultipartRequest[] seen = new MultipartRequest[1];
+        FilterChain chain = (request, response) -> seen[0] = (MultipartRequest) request;
+        new MultipartFilter().doFilter(req, null, chain);
+        verify(req, never()).getInputStream();
+        assertEquals("value", seen[0].getParameter("name"));
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.ghosthack.turismo.processor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RoutesProcessorTest {
+
+    private Path out;
+    private String diagnostics;
+
+    @Before
+    public void setUp() throws IOException {
+        out = Files.createTempDirectory("routes-processor");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(out)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+
+    private boolean compile(String className, String source) {
+        return compile(className, source, true);
+    }
+
+    private boolean compile(String className, String source, boolean enabled) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StringWriter log = new StringWriter();
+        JavaCompiler.CompilationTask task = compiler.getTask(log, null, null,
+                List.of("-d", out.toString(), "-s", out.toString(),
+                        "-classpath", System.getProperty("java.class.path")),
+                null, List.of(file));
+        if (enabled) {
+            task.setProcessors(List.of(new RoutesProcessor()));
+        }
+        boolean ok = task.call();
+        diagnostics = log.toString();
+        return ok;
+    }
+
+    private String generated(String path) throws IOException {
+        Path file = out.resolve(path);
+        return Files.exists(file) ? Files.readString(file) : null;
+    }
+
+    @Test
+    public void testGeneratesMethodReferences() throws IOException {
+        assertTrue(diagnostics, compile("app.Users",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Users {\n"
+                + "    @GET(\"/users/:id\") void show() {}\n"
+                + "    @POST(\"/users\") void create() {}\n"
+                + "    @DELETE(\"/users/:id\") static void remove() {}\n"
+                + "}\n"));
+        String src = generated("app/Users_Routes.java");
+        assertNotNull(src);
+        assertTrue(src.contains("public final class Users_Routes"));
+        assertTrue(src.contains("Turismo.get(\"/users/:id\", controller::show);"));
+        assertTrue(src.contains("Turismo.post(\"/users\", controller::create);"));
+        assertTrue(src.contains("Turismo.delete(\"/users/:id\", app.Users::remove);"));
+        assertTrue(src.indexOf("::show") < src.indexOf("::create"));
+    }
+
+    @Test
+    public void testNestedControllerName() throws IOException {
+        assertTrue(diagnostics, compile("app.Outer",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "class Outer {\n"
+                + "    static class Inner {\n"
+                + "        @PUT(\"/x\") void put() {}\n"
+                + "    }\n"
+                + "}\n"));
+        String src = generated("app/Outer_Inner_Routes.java");
+        assertNotNull(src);
+        assertTrue(src.contains("\nfinal class Outer_Inner_Routes"));
+        assertTrue(src.contains("register(app.Outer.Inner controller)"));
+    }
+
+    @Test
+    public void testCheckedExceptionsWrapped() throws IOException {
+        assertTrue(diagnostics, compile("app.Files",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Files {\n"
+                + "    @GET(\"/f\") void read() throws java.io.IOException {}\n"
+                + "}\n"));
+        String src = generated("app/Files_Routes.java");
+        assertTrue(src.contains("controller.read();"));
+        assertTrue(src.contains("throw new RuntimeException(e);"));
+    }
+
+    @Test
+    public void testPrivateMethodSkipped() throws IOException {
+        assertTrue(diagnostics, compile("app.Hidden",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Hidden {\n"
+                + "    @GET(\"/a\") void a() {}\n"
+                + "    @GET(\"/b\") private void b() {}\n"
+                + "}\n"));
+        assertNull(generated("app/Hidden_Routes.java"));
+    }
+
+    @Test
+    public void testParametersRejected() {
+        assertFalse(compile("app.Args",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Args {\n"
+                + "    @GET(\"/a\") void a(String s) {}\n"
+                + "}\n"));
+        assertTrue(diagnostics, diagnostics.contains("must not declare parameters"));
+    }
+
+    @Test
+    public void testNotDiscoveredFromClassPath() throws IOException {
+        assertTrue(diagnostics, compile("app.Plain",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Plain {\n"
+                + "    @GET(\"/a\") void a() {}\n"
+                + "    @GET(\"/b\") void b(String s) {}\n"
+                + "}\n", false));
+        assertNull(generated("app/Plain_Routes.java"));
+    }
+
+    @Test
+    public void testPathEscaped() throws IOException {
+        assertTrue(diagnostics, compile("app.Quotes",
+                "package app;\n"
+                + "import io.github.ghosthack.turismo.annotation.*;\n"
+                + "public class Quotes {\n"
+                + "    @GET(\"/a\\\"b\") void a() {}\n"
+                + "}\n"));
+        assertTrue(generated("app/Quotes_Routes.java")
+                .contains("Turismo.get(\"/a\\\"b\", controller::a);"));
+    }
+}
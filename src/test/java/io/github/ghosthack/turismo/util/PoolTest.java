@@ -0,0 +1,39 @@
+package io.github.ghosthack.turismo.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PoolTest {
+
+    @Test
+    public void testReusesReleased() {
+        Pool<byte[]> pool = new Pool<>(16, () -> new byte[8]);
+        byte[] item = pool.acquire();
+        pool.release(item);
+        assertSame(item, pool.acquire());
+        assertNotSame(item, pool.acquire());
+    }
+
+    @Test
+    public void testFullPoolDrops() {
+        AtomicInteger created = new AtomicInteger();
+        Pool<Object> pool = new Pool<>(8, () -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(pool.acquire());
+        }
+        items.forEach(pool::release);
+        for (int i = 0; i < 20; i++) {
+            pool.acquire();
+        }
+        assertEquals(20 + 20 - 8, created.get());
+    }
+}